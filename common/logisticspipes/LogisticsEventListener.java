@@ -30,6 +30,7 @@ import net.minecraftforge.event.entity.EntityJoinWorldEvent;
 import net.minecraftforge.event.entity.player.ItemTooltipEvent;
 import net.minecraftforge.event.entity.player.PlayerInteractEvent;
 import net.minecraftforge.event.world.BlockEvent;
+import net.minecraftforge.event.world.ChunkEvent;
 import net.minecraftforge.event.world.ChunkWatchEvent.UnWatch;
 import net.minecraftforge.event.world.ChunkWatchEvent.Watch;
 import net.minecraftforge.event.world.WorldEvent;
@@ -61,9 +62,11 @@ import logisticspipes.proxy.SimpleServiceLocator;
 import logisticspipes.renderer.LogisticsGuiOverrenderer;
 import logisticspipes.renderer.LogisticsHUDRenderer;
 import logisticspipes.routing.ItemRoutingInformation;
+import logisticspipes.routing.pathfinder.PipeSegmentGraph;
 import logisticspipes.routing.pathfinder.changedetection.TEControl;
 import logisticspipes.ticks.LPTickHandler;
 import logisticspipes.ticks.VersionChecker;
+import logisticspipes.transport.ItemTransportEngine;
 import logisticspipes.utils.PlayerCollectionList;
 import logisticspipes.utils.PlayerIdentifier;
 import logisticspipes.utils.QuickSortChestMarkerStorage;
@@ -169,6 +172,14 @@ public class LogisticsEventListener {
 		if (MainProxy.isServer(event.getWorld())) {
 			int dim = event.getWorld().provider.getDimension();
 			SimpleServiceLocator.routerManager.dimensionUnloaded(dim);
+			ItemTransportEngine.worldUnloaded(event.getWorld());
+		}
+	}
+
+	@SubscribeEvent
+	public void onChunkUnload(ChunkEvent.Unload event) {
+		if (MainProxy.isServer(event.getWorld())) {
+			PipeSegmentGraph.chunkUnloaded(event.getChunk());
 		}
 	}
 
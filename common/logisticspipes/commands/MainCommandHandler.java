@@ -12,6 +12,7 @@ import logisticspipes.commands.commands.DummyCommand;
 import logisticspipes.commands.commands.DumpCommand;
 import logisticspipes.commands.commands.NBTDebugCommand;
 import logisticspipes.commands.commands.NameLookupCommand;
+import logisticspipes.commands.commands.OrderLatencyCommand;
 import logisticspipes.commands.commands.RoutingThreadCommand;
 import logisticspipes.commands.commands.TestCommand;
 import logisticspipes.commands.commands.TransferNamesCommand;
@@ -42,6 +43,7 @@ public class MainCommandHandler extends SubCommandHandler {
 		registerSubCommand(new ChangelogCommand());
 		registerSubCommand(new NBTDebugCommand());
 		registerSubCommand(new RoutingThreadCommand());
+		registerSubCommand(new OrderLatencyCommand());
 		registerSubCommand(new TransferNamesCommand());
 		registerSubCommand(new NameLookupCommand());
 		registerSubCommand(new DumpCommand());
@@ -0,0 +1,77 @@
+package logisticspipes.commands.commands;
+
+import java.util.Map;
+
+import net.minecraft.command.ICommandSender;
+import net.minecraft.util.text.TextComponentString;
+
+import logisticspipes.commands.abstracts.ICommandHandler;
+import logisticspipes.routing.order.OrderLatencyStatistics;
+import logisticspipes.routing.order.OrderLatencyStatistics.Histogram;
+import logisticspipes.routing.order.OrderLatencyStatistics.Stage;
+
+public class OrderLatencyCommand implements ICommandHandler {
+
+	private static final int SHOWN_PIPES = 10;
+
+	@Override
+	public String[] getNames() {
+		return new String[] { "orderlatency", "ol" };
+	}
+
+	@Override
+	public boolean isCommandUsableBy(ICommandSender sender) {
+		return true;
+	}
+
+	@Override
+	public String[] getDescription() {
+		return new String[] { "Display order latencies in ticks", "start - collect latencies until the server stops", "stop - stop collecting, unless enabled in the config",
+				"pipes [stage] - the slowest pipes in the given stage (default TOTAL)", "clear - reset all latencies" };
+	}
+
+	@Override
+	public void executeCommand(ICommandSender sender, String[] args) {
+		if (args.length == 0) {
+			if (!OrderLatencyStatistics.isCollecting()) {
+				sender.sendMessage(new TextComponentString("Order latencies are not collected, use \"start\" or the orderLatencyStatistics config"));
+			}
+			for (Stage stage : Stage.values()) {
+				sender.sendMessage(new TextComponentString(stage.name() + " (" + stage.description + "): " + OrderLatencyCommand.format(OrderLatencyStatistics.getHistogram(stage))));
+			}
+		} else if (args[0].equalsIgnoreCase("start")) {
+			OrderLatencyStatistics.setStarted(true);
+			sender.sendMessage(new TextComponentString("Collecting order latencies of new orders"));
+		} else if (args[0].equalsIgnoreCase("stop")) {
+			OrderLatencyStatistics.setStarted(false);
+			sender.sendMessage(new TextComponentString(OrderLatencyStatistics.isCollecting() ? "Order latencies are collected as set in the config" : "Stopped collecting order latencies"));
+		} else if (args[0].equalsIgnoreCase("clear")) {
+			OrderLatencyStatistics.clear();
+			sender.sendMessage(new TextComponentString("Order latencies cleared"));
+		} else if (args[0].equalsIgnoreCase("pipes")) {
+			Stage stage = Stage.TOTAL;
+			if (args.length > 1) {
+				try {
+					stage = Stage.valueOf(args[1].toUpperCase());
+				} catch (IllegalArgumentException e) {
+					sender.sendMessage(new TextComponentString("Unknown stage " + args[1]));
+					return;
+				}
+			}
+			sender.sendMessage(new TextComponentString("Slowest pipes in " + stage.name() + ":"));
+			for (Map.Entry<String, Histogram> pipe : OrderLatencyStatistics.getSlowestPipes(stage, OrderLatencyCommand.SHOWN_PIPES)) {
+				sender.sendMessage(new TextComponentString(pipe.getKey() + ": " + OrderLatencyCommand.format(pipe.getValue())));
+			}
+		} else {
+			sender.sendMessage(new TextComponentString("Unknown argument " + args[0]));
+		}
+	}
+
+	private static String format(Histogram histogram) {
+		if (histogram.getCount() == 0) {
+			return "no orders";
+		}
+		return String.format("%d samples, mean %.1f, p50 %d, p90 %d, p99 %d, max %d", histogram.getCount(), histogram.getMean(), histogram.getPercentile(50),
+				histogram.getPercentile(90), histogram.getPercentile(99), histogram.getMax());
+	}
+}
@@ -27,5 +27,6 @@ public class RoutingThreadCommand implements ICommandHandler {
 	public void executeCommand(ICommandSender sender, String[] args) {
 		sender.sendMessage(new TextComponentString("RoutingTableUpdateThread: Queued: " + RoutingTableUpdateThread.size()));
 		sender.sendMessage(new TextComponentString("RoutingTableUpdateThread: Average: " + RoutingTableUpdateThread.getAverage() + "ns"));
+		sender.sendMessage(new TextComponentString("RoutingTableUpdateThread: Coalesced: " + RoutingTableUpdateThread.getCoalesced() + ", Dropped: " + RoutingTableUpdateThread.getDropped()));
 	}
 }
@@ -28,6 +28,11 @@ public class Configs {
 	public static final float LOGISTICS_ROUTED_SPEED_MULTIPLIER = 20F;
 	public static final float LOGISTICS_DEFAULTROUTED_SPEED_MULTIPLIER = 10F;
 	public static int MAX_UNROUTED_CONNECTIONS = 32;
+	public static boolean DYNAMIC_ROUTING_UPDATES = false;
+	public static int DESTINATION_CACHE_TICKS = 20;
+	public static boolean ORDER_LATENCY_STATISTICS = false;
+	public static boolean ORDER_TRACE_FILE = false;
+	public static int IDLE_PIPE_SLEEP_TICKS = 20;
 
 	public static int LOGISTICS_HUD_RENDER_DISTANCE = 15;
 
@@ -98,6 +103,43 @@ public class Configs {
 								"The amount of time that passes between checks to see if it is still connected to its neighbours (Independently from block place detection). A low value will mean that it will correct wrong values faster but use more CPU. A high value means error correction takes longer, but CPU consumption is reduced. A value of 20 will check about every second (default 600 [30 seconds])")
 								.getInt(), 1);
 
+		Configs.DYNAMIC_ROUTING_UPDATES = Configs.CONFIGURATION
+				.get(Configuration.CATEGORY_GENERAL,
+						"dynamicRoutingUpdates",
+						Configs.DYNAMIC_ROUTING_UPDATES,
+						"Repair routing tables from the changed links instead of recalculating them completely, whenever that is possible. Speeds up routing table updates in big networks, but every router keeps about 30 bytes of additional information per reachable router.")
+						.getBoolean(false);
+
+		Configs.DESTINATION_CACHE_TICKS = Math
+				.max(Configs.CONFIGURATION
+						.get(Configuration.CATEGORY_GENERAL,
+								"destinationCacheTicks",
+								Configs.DESTINATION_CACHE_TICKS,
+								"Number of ticks a destination found for an item is reused for identical items from the same pipe, as long as routing, interests and module settings stay the same and the destination still accepts the item. Sinks that get free space are only noticed after this time. 0 to disable.")
+								.getInt(), 0);
+
+		Configs.ORDER_LATENCY_STATISTICS = Configs.CONFIGURATION
+				.get(Configuration.CATEGORY_GENERAL,
+						"orderLatencyStatistics",
+						Configs.ORDER_LATENCY_STATISTICS,
+						"Collect the latency histograms of the orderlatency command from the start. Without this, they are only collected after \"orderlatency start\".")
+						.getBoolean(false);
+
+		Configs.ORDER_TRACE_FILE = Configs.CONFIGURATION
+				.get(Configuration.CATEGORY_GENERAL,
+						"orderTraceFile",
+						Configs.ORDER_TRACE_FILE,
+						"Append the timestamps of every completed order to logs/logisticspipes-order-trace.csv. Also collects the latency histograms of the orderlatency command.")
+						.getBoolean(false);
+
+		Configs.IDLE_PIPE_SLEEP_TICKS = Math
+				.max(Configs.CONFIGURATION
+						.get(Configuration.CATEGORY_GENERAL,
+								"idlePipeSleepTicks",
+								Configs.IDLE_PIPE_SLEEP_TICKS,
+								"Maximum number of ticks an idle basic or satellite pipe skips its update for. Items, orders, neighbor and configuration changes wake it up early. 0 to update every pipe in every tick.")
+								.getInt(), 0);
+
 		Configs.MAX_ROBOT_DISTANCE = Configs.CONFIGURATION
 				.get(Configuration.CATEGORY_GENERAL, "maxRobotDistance",
 						Configs.MAX_ROBOT_DISTANCE,
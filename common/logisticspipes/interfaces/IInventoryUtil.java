@@ -10,11 +10,27 @@ import logisticspipes.utils.item.ItemIdentifier;
 
 public interface IInventoryUtil {
 
+	/**
+	 * Returned by {@link #getChangeToken()} of inventories, which cannot tell whether their contents changed.
+	 */
+	long NO_CHANGE_TOKEN = -1;
+
 	int itemCount(@Nonnull ItemIdentifier item);
 
 	@Nonnull
 	Map<ItemIdentifier, Integer> getItemsAndCount();
 
+	/**
+	 * Inventories, which are notified about changes of their contents, can hand out a token with their item counts. As
+	 * long as the token stays the same, {@link #getItemsAndCount()} returns the same counts and callers can keep using
+	 * the counts they got before. Tokens are unique across all inventories and never reused.
+	 *
+	 * @return the current change token or {@link #NO_CHANGE_TOKEN}, if the contents have to be looked at every time
+	 */
+	default long getChangeToken() {
+		return IInventoryUtil.NO_CHANGE_TOKEN;
+	}
+
 	@Deprecated
 	@Nonnull
 	ItemStack getSingleItem(ItemIdentifier item);
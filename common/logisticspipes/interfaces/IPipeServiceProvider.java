@@ -30,6 +30,11 @@ public interface IPipeServiceProvider extends IRoutedPowerProvider, ISpawnPartic
 
 	void markTileDirty();
 
+	/**
+	 * Collects the interests and crafted items of the pipe again soon, after the configuration of a module changed.
+	 */
+	void interestsChanged();
+
 	/**
 	 * @return the available adjacent cache.
 	 */
@@ -0,0 +1,78 @@
+package logisticspipes.logistics;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.function.ObjIntConsumer;
+
+import logisticspipes.interfaces.routing.IFilter;
+import logisticspipes.interfaces.routing.IProvideItems;
+import logisticspipes.routing.ExitRoute;
+import logisticspipes.routing.PipeRoutingConnectionType;
+import logisticspipes.utils.item.ItemIdentifier;
+
+/**
+ * Walks the valid destinations once and hands the items of every provider to a consumer. The map the providers fill
+ * and the set of routers already asked are kept per thread and reused, so collecting the items of a large network does
+ * not allocate a map per router anymore.
+ */
+final class AvailableItemsCollector {
+
+	private static final ThreadLocal<AvailableItemsCollector> collectors = ThreadLocal.withInitial(AvailableItemsCollector::new);
+
+	private final HashMap<ItemIdentifier, Integer> routerItems = new HashMap<>();
+	private final BitSet used = new BitSet();
+	private boolean busy = false;
+
+	private AvailableItemsCollector() {}
+
+	/**
+	 * The amounts of an item are handed over once per router providing it, the consumer has to sum them up.
+	 */
+	static void forEachAvailableItem(List<ExitRoute> validDestinations, ObjIntConsumer<ItemIdentifier> consumer) {
+		AvailableItemsCollector collector = AvailableItemsCollector.collectors.get();
+		if (collector.busy) {
+			// the consumer collects items itself
+			collector = new AvailableItemsCollector();
+		}
+		collector.collect(validDestinations, consumer);
+	}
+
+	private void collect(List<ExitRoute> validDestinations, ObjIntConsumer<ItemIdentifier> consumer) {
+		busy = true;
+		try {
+			outer:
+			for (ExitRoute r : validDestinations) {
+				if (r == null) {
+					continue;
+				}
+				if (!r.containsFlag(PipeRoutingConnectionType.canRequestFrom)) {
+					continue;
+				}
+				if (!(r.destination.getPipe() instanceof IProvideItems)) {
+					continue;
+				}
+				if (used.get(r.destination.getSimpleID())) {
+					continue;
+				}
+				for (IFilter filter : r.filters) {
+					if (filter.blockProvider()) {
+						continue outer;
+					}
+				}
+				used.set(r.destination.getSimpleID());
+				IProvideItems provider = (IProvideItems) r.destination.getPipe();
+				provider.getAllItems(routerItems, r.filters);
+				for (Entry<ItemIdentifier, Integer> item : routerItems.entrySet()) {
+					consumer.accept(item.getKey(), item.getValue());
+				}
+				routerItems.clear();
+			}
+		} finally {
+			routerItems.clear();
+			used.clear();
+			busy = false;
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package logisticspipes.logistics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+import logisticspipes.config.Configs;
+import logisticspipes.routing.ExitRoute;
+import logisticspipes.routing.ServerRouter;
+import logisticspipes.utils.SinkReply;
+import logisticspipes.utils.item.ItemIdentifier;
+
+/**
+ * Remembers the destination last chosen for an item by one source router, so a stream of identical items does not have
+ * to collect, sort and ask all interested routers every time.
+ * <p>
+ * An entry is only handed out while the route table of the source router, the interests of all routers and the sink
+ * configuration of all modules are unchanged and for at most {@link Configs#DESTINATION_CACHE_TICKS} ticks. The caller
+ * still has to check the route and ask the cached destination whether it sinks the item with the same priority, a
+ * destination which got full or was changed in any other way is noticed that way. The time limit covers sinks which
+ * rejected the item before, but would take it now.
+ */
+public class DestinationCache {
+
+	private static final int MAX_ENTRIES = 256;
+
+	// increased whenever a sink might answer differently, apart from the contents of its inventory
+	private static final AtomicLong sinkStateVersion = new AtomicLong();
+
+	// indexed by the flags of the request, see index(boolean, boolean)
+	@SuppressWarnings("unchecked")
+	private final Map<ItemIdentifier, Entry>[] entries = new Map[] { new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>(),
+			new ConcurrentHashMap<>() };
+
+	/**
+	 * Invalidates all cached destinations, because a module, upgrade or pipe setting changed.
+	 */
+	public static void sinkStateChanged() {
+		DestinationCache.sinkStateVersion.incrementAndGet();
+	}
+
+	/**
+	 * Starts a decision, which can be stored with {@link #put(Stamp, ItemIdentifier, boolean, boolean, ExitRoute,
+	 * SinkReply)} afterwards. Any change between this call and the put makes the entry invalid.
+	 */
+	public static Stamp stamp(Object routeTable, long worldTime) {
+		return new Stamp(routeTable, ServerRouter.getInterestVersion(), DestinationCache.sinkStateVersion.get(), worldTime);
+	}
+
+	private static int index(boolean allowDefault, boolean excludeSource) {
+		return (allowDefault ? 1 : 0) | (excludeSource ? 2 : 0);
+	}
+
+	/**
+	 * @return the last destination chosen for the item with the given flags, if it is still valid for the given route
+	 * table and time
+	 */
+	@Nullable
+	public Entry get(ItemIdentifier item, boolean allowDefault, boolean excludeSource, Object routeTable, long worldTime) {
+		if (Configs.DESTINATION_CACHE_TICKS <= 0) {
+			return null;
+		}
+		final Entry entry = entries[DestinationCache.index(allowDefault, excludeSource)].get(item);
+		if (entry == null) {
+			return null;
+		}
+		final Stamp stamp = entry.stamp;
+		if (stamp.routeTable != routeTable || stamp.interestVersion != ServerRouter.getInterestVersion()
+				|| stamp.sinkStateVersion != DestinationCache.sinkStateVersion.get() || worldTime < stamp.worldTime
+				|| worldTime >= stamp.worldTime + Configs.DESTINATION_CACHE_TICKS) {
+			invalidate(item, allowDefault, excludeSource, entry);
+			return null;
+		}
+		return entry;
+	}
+
+	public void put(Stamp stamp, ItemIdentifier item, boolean allowDefault, boolean excludeSource, ExitRoute route, SinkReply reply) {
+		if (Configs.DESTINATION_CACHE_TICKS <= 0) {
+			return;
+		}
+		final Map<ItemIdentifier, Entry> map = entries[DestinationCache.index(allowDefault, excludeSource)];
+		if (map.size() >= DestinationCache.MAX_ENTRIES) {
+			map.clear();
+		}
+		map.put(item, new Entry(stamp, route, reply));
+	}
+
+	/**
+	 * Removes the given entry, after the cached destination did not want the item anymore.
+	 */
+	public void invalidate(ItemIdentifier item, boolean allowDefault, boolean excludeSource, Entry entry) {
+		entries[DestinationCache.index(allowDefault, excludeSource)].remove(item, entry);
+	}
+
+	public void clear() {
+		for (Map<ItemIdentifier, Entry> map : entries) {
+			map.clear();
+		}
+	}
+
+	/**
+	 * @return true, if the fresh reply of the cached destination would still win against all other destinations
+	 */
+	public static boolean isSameDecision(SinkReply cached, @Nullable SinkReply fresh) {
+		return fresh != null && fresh.fixedPriority == cached.fixedPriority && fresh.customPriority == cached.customPriority
+				&& fresh.isPassive == cached.isPassive && fresh.isDefault == cached.isDefault;
+	}
+
+	public static final class Stamp {
+
+		private final Object routeTable;
+		private final long interestVersion;
+		private final long sinkStateVersion;
+		private final long worldTime;
+
+		private Stamp(Object routeTable, long interestVersion, long sinkStateVersion, long worldTime) {
+			this.routeTable = routeTable;
+			this.interestVersion = interestVersion;
+			this.sinkStateVersion = sinkStateVersion;
+			this.worldTime = worldTime;
+		}
+	}
+
+	public static final class Entry {
+
+		private final Stamp stamp;
+		public final ExitRoute route;
+		public final SinkReply reply;
+
+		private Entry(Stamp stamp, ExitRoute route, SinkReply reply) {
+			this.stamp = stamp;
+			this.route = route;
+			this.reply = reply;
+		}
+	}
+}
@@ -10,20 +10,33 @@ package logisticspipes.logistics;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.ObjIntConsumer;
 
 import logisticspipes.logisticspipes.IRoutedItem;
 import logisticspipes.routing.ExitRoute;
 import logisticspipes.routing.IRouter;
 import logisticspipes.utils.item.ItemIdentifier;
+import logisticspipes.utils.item.ItemIdentifierIntMap;
 
 public interface ILogisticsManager {
 
 	IRoutedItem assignDestinationFor(IRoutedItem item, int sourceRouterint, boolean excludeSource);
 
-	LinkedList<ItemIdentifier> getCraftableItems(List<ExitRoute> list);
+	LinkedList<ItemIdentifier> getCraftableItems(IRouter requester);
 
 	Map<ItemIdentifier, Integer> getAvailableItems(List<ExitRoute> list);
 
+	/**
+	 * Like {@link #getAvailableItems(List)}, without boxing the counts.
+	 */
+	ItemIdentifierIntMap getAvailableItemCounts(List<ExitRoute> list);
+
+	/**
+	 * Hands the available items to the consumer without collecting them into a map first. The amounts of one item are
+	 * handed over once per provider, so the consumer has to sum them up.
+	 */
+	void forEachAvailableItem(List<ExitRoute> list, ObjIntConsumer<ItemIdentifier> consumer);
+
 	String getBetterRouterName(IRouter r);
 
 	int getAmountFor(ItemIdentifier item, List<ExitRoute> validDestinations);
@@ -11,10 +11,10 @@ import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.function.ObjIntConsumer;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
 
@@ -22,7 +22,6 @@ import net.minecraft.item.ItemStack;
 
 import logisticspipes.interfaces.routing.ICraftItems;
 import logisticspipes.interfaces.routing.IFilter;
-import logisticspipes.interfaces.routing.IProvideItems;
 import logisticspipes.items.LogisticsFluidContainer;
 import logisticspipes.logisticspipes.IRoutedItem;
 import logisticspipes.logisticspipes.IRoutedItem.TransportMode;
@@ -34,6 +33,7 @@ import logisticspipes.pipes.PipeItemsRequestLogistics;
 import logisticspipes.pipes.PipeLogisticsChassis;
 import logisticspipes.pipes.basic.CoreRoutedPipe;
 import logisticspipes.proxy.SimpleServiceLocator;
+import logisticspipes.routing.CraftingIndex;
 import logisticspipes.routing.ExitRoute;
 import logisticspipes.routing.IRouter;
 import logisticspipes.routing.PipeRoutingConnectionType;
@@ -41,72 +41,50 @@ import logisticspipes.routing.ServerRouter;
 import logisticspipes.utils.FluidSinkReply;
 import logisticspipes.utils.SinkReply;
 import logisticspipes.utils.item.ItemIdentifier;
+import logisticspipes.utils.item.ItemIdentifierIntMap;
 import logisticspipes.utils.item.ItemIdentifierStack;
 import logisticspipes.utils.tuples.Pair;
-import logisticspipes.utils.tuples.Triplet;
 
 public class LogisticsManager implements ILogisticsManager {
 
-	private Triplet<Integer, SinkReply, List<IFilter>> getBestReply(@Nonnull ItemStack stack, ItemIdentifier item, @Nonnull IRouter sourceRouter, @Nonnull List<ExitRoute> validDestinations, boolean excludeSource, List<Integer> jamList, Triplet<Integer, SinkReply, List<IFilter>> result, boolean allowDefault) {
-		if (result == null) {
-			result = new Triplet<>(null, null, null);
-		}
-
-		outer:
+	private Pair<ExitRoute, SinkReply> getBestReply(@Nonnull ItemStack stack, ItemIdentifier item, @Nonnull IRouter sourceRouter, @Nonnull List<ExitRoute> validDestinations, boolean excludeSource, List<Integer> jamList, boolean allowDefault) {
+		final List<ExitRoute> candidates = new ArrayList<>(validDestinations.size());
 		for (ExitRoute candidateRouter : validDestinations) {
-			if (excludeSource) {
-				if (candidateRouter.destination.getId().equals(sourceRouter.getId())) {
-					continue;
-				}
-			}
-			if (jamList.contains(candidateRouter.destination.getSimpleID())) {
-				continue;
-			}
-
-			if (!candidateRouter.containsFlag(PipeRoutingConnectionType.canRouteTo)) {
-				continue;
-			}
-
-			for (IFilter filter : candidateRouter.filters) {
-				if (filter.blockRouting() || (filter.isBlocked() == filter.isFilteredItem(item))) {
-					continue outer;
-				}
+			if (LogisticsManager.canRouteTo(candidateRouter, item, sourceRouter, excludeSource, jamList)) {
+				candidates.add(candidateRouter);
 			}
+		}
 
-			SinkReply reply = LogisticsManager.canSink(stack, candidateRouter.destination, sourceRouter, excludeSource, item, result.getValue2(), false, allowDefault);
+		final Pair<ExitRoute, SinkReply> result = PrioritizedSinkSearch.findBestSink(candidates, (candidate, bestPriority, bestCustomPriority) ->
+				LogisticsManager.askSink(stack, candidate.destination, sourceRouter, excludeSource, item, bestPriority, bestCustomPriority, false, allowDefault, true));
+		if (result != null) {
+			CoreRoutedPipe pipe = result.getValue1().destination.getPipe();
+			pipe.useEnergy(result.getValue2().energyUse);
+			pipe.spawnParticle(Particles.BlueParticle, 10);
+		}
+		return result;
+	}
 
-			if (reply == null) {
-				continue;
-			}
-			if (result.getValue1() == null) {
-				result.setValue1(candidateRouter.destination.getSimpleID());
-				result.setValue2(reply);
-				List<IFilter> list = new LinkedList<>();
-				result.setValue3(list);
-				continue;
+	private static boolean canRouteTo(ExitRoute candidateRouter, ItemIdentifier item, @Nonnull IRouter sourceRouter, boolean excludeSource, List<Integer> jamList) {
+		if (excludeSource) {
+			if (candidateRouter.destination.getId().equals(sourceRouter.getId())) {
+				return false;
 			}
+		}
+		if (jamList.contains(candidateRouter.destination.getSimpleID())) {
+			return false;
+		}
 
-			if (reply.fixedPriority.ordinal() > result.getValue2().fixedPriority.ordinal()) {
-				result.setValue1(candidateRouter.destination.getSimpleID());
-				result.setValue2(reply);
-				List<IFilter> list = new LinkedList<>();
-				result.setValue3(list);
-				continue;
-			}
+		if (!candidateRouter.containsFlag(PipeRoutingConnectionType.canRouteTo)) {
+			return false;
+		}
 
-			if (reply.fixedPriority == result.getValue2().fixedPriority && reply.customPriority > result.getValue2().customPriority) {
-				result.setValue1(candidateRouter.destination.getSimpleID());
-				result.setValue2(reply);
-				List<IFilter> list = new LinkedList<>();
-				result.setValue3(list);
+		for (IFilter filter : candidateRouter.filters) {
+			if (filter.blockRouting() || (filter.isBlocked() == filter.isFilteredItem(item))) {
+				return false;
 			}
 		}
-		if (result.getValue1() != null) {
-			CoreRoutedPipe pipe = SimpleServiceLocator.routerManager.getServerRouter(result.getValue1()).getPipe();
-			pipe.useEnergy(result.getValue2().energyUse);
-			pipe.spawnParticle(Particles.BlueParticle, 10);
-		}
-		return result;
+		return true;
 	}
 
 	public static SinkReply canSink(@Nonnull ItemStack stack, @Nonnull IRouter destination, IRouter sourceRouter, boolean excludeSource, ItemIdentifier item, SinkReply result, boolean activeRequest, boolean allowDefault) {
@@ -116,6 +94,19 @@ public class LogisticsManager implements ILogisticsManager {
 	public static SinkReply canSink(@Nonnull ItemStack stack, @Nonnull IRouter destination, IRouter sourceRouter, boolean excludeSource, ItemIdentifier item, SinkReply result, boolean activeRequest, boolean allowDefault, boolean forcePassive) {
 
 		SinkReply reply;
+		if (result == null) {
+			reply = askSink(stack, destination, sourceRouter, excludeSource, item, -1, 0, activeRequest, allowDefault, forcePassive);
+		} else {
+			reply = askSink(stack, destination, sourceRouter, excludeSource, item, result.fixedPriority.ordinal(), result.customPriority, activeRequest, allowDefault, forcePassive);
+		}
+		if (result != null && result.maxNumberOfItems < 0) {
+			return null;
+		}
+		return reply;
+	}
+
+	private static SinkReply askSink(@Nonnull ItemStack stack, @Nonnull IRouter destination, IRouter sourceRouter, boolean excludeSource, ItemIdentifier item, int bestPriority, int bestCustomPriority, boolean activeRequest, boolean allowDefault,
+			boolean forcePassive) {
 		LogisticsModule module = destination.getLogisticsModule();
 		CoreRoutedPipe crp = destination.getPipe();
 		if (module == null) {
@@ -132,15 +123,7 @@ public class LogisticsManager implements ILogisticsManager {
 				return null;
 			}
 		}
-		if (result == null) {
-			reply = module.sinksItem(stack, item, -1, 0, allowDefault, true, forcePassive);
-		} else {
-			reply = module.sinksItem(stack, item, result.fixedPriority.ordinal(), result.customPriority, allowDefault, true, forcePassive);
-		}
-		if (result != null && result.maxNumberOfItems < 0) {
-			return null;
-		}
-		return reply;
+		return module.sinksItem(stack, item, bestPriority, bestCustomPriority, allowDefault, true, forcePassive);
 	}
 
 	/**
@@ -176,6 +159,42 @@ public class LogisticsManager implements ILogisticsManager {
 		if (itemIdStack == null) {
 			return item;
 		}
+		final ItemStack stack = itemIdStack.makeNormalStack();
+		if (stack.getItem() instanceof LogisticsFluidContainer) {
+			Pair<Integer, FluidSinkReply> bestReply = SimpleServiceLocator.logisticsFluidManager.getBestReply(SimpleServiceLocator.logisticsFluidManager.getFluidFromContainer(itemIdStack), sourceRouter, item.getJamList());
+			if (bestReply != null) {
+				item.setDestination(bestReply.getValue1());
+			}
+			return item;
+		}
+
+		// identical items from the same source usually end up at the same destination, try that one first
+		DestinationCache cache = null;
+		DestinationCache.Stamp stamp = null;
+		final CoreRoutedPipe sourcePipe = sourceRouter.getPipe();
+		if (sourceRouter instanceof ServerRouter && sourcePipe != null && item.getJamList().isEmpty()) {
+			final ServerRouter serverRouter = (ServerRouter) sourceRouter;
+			final Object routeTable = serverRouter.getRouteTable();
+			final long worldTime = sourcePipe.getWorld().getTotalWorldTime();
+			cache = serverRouter.getDestinationCache();
+			final DestinationCache.Entry cached = cache.get(itemIdStack.getItem(), true, excludeSource, routeTable, worldTime);
+			if (cached != null) {
+				SinkReply reply = null;
+				if (LogisticsManager.canRouteTo(cached.route, itemIdStack.getItem(), sourceRouter, excludeSource, item.getJamList())) {
+					reply = LogisticsManager.canSink(stack, cached.route.destination, sourceRouter, excludeSource, itemIdStack.getItem(), null, false, true);
+				}
+				if (DestinationCache.isSameDecision(cached.reply, reply)) {
+					CoreRoutedPipe pipe = cached.route.destination.getPipe();
+					pipe.useEnergy(reply.energyUse);
+					pipe.spawnParticle(Particles.BlueParticle, 10);
+					LogisticsManager.setDestination(item, cached.route.destination.getSimpleID(), reply);
+					return item;
+				}
+				cache.invalidate(itemIdStack.getItem(), true, excludeSource, cached);
+			}
+			stamp = DestinationCache.stamp(routeTable, worldTime);
+		}
+
 		BitSet routersIndex = ServerRouter.getRoutersInterestedIn(itemIdStack.getItem());
 		List<ExitRoute> validDestinations = new ArrayList<>(); // get the routing table
 		for (int i = routersIndex.nextSetBit(0); i >= 0; i = routersIndex.nextSetBit(i + 1)) {
@@ -188,31 +207,30 @@ public class LogisticsManager implements ILogisticsManager {
 			}
 		}
 		Collections.sort(validDestinations);
-		final ItemStack stack = itemIdStack.makeNormalStack();
-		if (stack.getItem() instanceof LogisticsFluidContainer) {
-			Pair<Integer, FluidSinkReply> bestReply = SimpleServiceLocator.logisticsFluidManager.getBestReply(SimpleServiceLocator.logisticsFluidManager.getFluidFromContainer(itemIdStack), sourceRouter, item.getJamList());
-			if (bestReply != null) {
-				item.setDestination(bestReply.getValue1());
-			}
-		} else {
-			Triplet<Integer, SinkReply, List<IFilter>> bestReply = getBestReply(stack, itemIdStack.getItem(), sourceRouter, validDestinations, excludeSource, item.getJamList(), null, true);
-			if (bestReply.getValue1() != null && bestReply.getValue1() != 0) {
-				item.setDestination(bestReply.getValue1());
-				if (bestReply.getValue2().isPassive) {
-					if (bestReply.getValue2().isDefault) {
-						item.setTransportMode(TransportMode.Default);
-					} else {
-						item.setTransportMode(TransportMode.Passive);
-					}
-				} else {
-					item.setTransportMode(TransportMode.Active);
-				}
-				item.setAdditionalTargetInformation(bestReply.getValue2().addInfo);
+		Pair<ExitRoute, SinkReply> bestReply = getBestReply(stack, itemIdStack.getItem(), sourceRouter, validDestinations, excludeSource, item.getJamList(), true);
+		if (bestReply != null && bestReply.getValue1().destination.getSimpleID() != 0) {
+			LogisticsManager.setDestination(item, bestReply.getValue1().destination.getSimpleID(), bestReply.getValue2());
+			if (cache != null) {
+				cache.put(stamp, itemIdStack.getItem(), true, excludeSource, bestReply.getValue1(), bestReply.getValue2());
 			}
 		}
 		return item;
 	}
 
+	private static void setDestination(IRoutedItem item, int destination, SinkReply reply) {
+		item.setDestination(destination);
+		if (reply.isPassive) {
+			if (reply.isDefault) {
+				item.setTransportMode(TransportMode.Default);
+			} else {
+				item.setTransportMode(TransportMode.Passive);
+			}
+		} else {
+			item.setTransportMode(TransportMode.Active);
+		}
+		item.setAdditionalTargetInformation(reply.addInfo);
+	}
+
 	/**
 	 * If there is a better router name available, it will return it. Else, it
 	 * will return the UUID as a string.
@@ -259,127 +277,77 @@ public class LogisticsManager implements ILogisticsManager {
 	 */
 	@Override
 	public HashMap<ItemIdentifier, Integer> getAvailableItems(List<ExitRoute> validDestinations) {
-		//TODO: Replace this entire function wiht a fetch from the pre-built arrays (path incoming later)
-		List<Map<ItemIdentifier, Integer>> items = new ArrayList<>(ServerRouter.getBiggestSimpleID());
-		for (int i = 0; i < ServerRouter.getBiggestSimpleID(); i++) {
-			items.add(new HashMap<>());
-		}
-		BitSet used = new BitSet(ServerRouter.getBiggestSimpleID());
-		outer:
-		for (ExitRoute r : validDestinations) {
-			if (r == null) {
-				continue;
-			}
-			if (!r.containsFlag(PipeRoutingConnectionType.canRequestFrom)) {
-				continue;
-			}
-			if (!(r.destination.getPipe() instanceof IProvideItems)) {
-				continue;
-			}
-			for (IFilter filter : r.filters) {
-				if (filter.blockProvider()) {
-					continue outer;
-				}
-			}
-			IProvideItems provider = (IProvideItems) r.destination.getPipe();
-			provider.getAllItems(items.get(r.destination.getSimpleID()), r.filters);
-			used.set(r.destination.getSimpleID(), true);
-		}
-		//TODO: Fix this doubly nested list
-		HashMap<ItemIdentifier, Integer> allAvailableItems = new HashMap<>();
-		for (Map<ItemIdentifier, Integer> allItems : items) {
-			for (Entry<ItemIdentifier, Integer> item : allItems.entrySet()) {
-				allAvailableItems.merge(item.getKey(), item.getValue(), Integer::sum);
-			}
-		}
+		return getAvailableItemCounts(validDestinations).toMap();
+	}
+
+	@Override
+	public ItemIdentifierIntMap getAvailableItemCounts(List<ExitRoute> validDestinations) {
+		ItemIdentifierIntMap allAvailableItems = new ItemIdentifierIntMap();
+		AvailableItemsCollector.forEachAvailableItem(validDestinations, allAvailableItems::addTo);
 		return allAvailableItems;
 	}
 
+	@Override
+	public void forEachAvailableItem(List<ExitRoute> validDestinations, ObjIntConsumer<ItemIdentifier> consumer) {
+		AvailableItemsCollector.forEachAvailableItem(validDestinations, consumer);
+	}
+
 	/**
-	 * @param validDestinations
-	 *            a List of ExitRoute of valid destinations.
-	 * @return LinkedList with ItemIdentifier
+	 * Only looks at the crafters in the {@link CraftingIndex}, the route table of the requester decides which of them
+	 * can be requested from.
+	 *
+	 * @param requester
+	 *            the router requesting the items.
+	 * @return LinkedList with ItemIdentifier, ordered by the distance of their crafters
 	 */
 	@Override
-	public LinkedList<ItemIdentifier> getCraftableItems(List<ExitRoute> validDestinations) {
-		LinkedList<ItemIdentifier> craftableItems = new LinkedList<>();
-		BitSet used = new BitSet(ServerRouter.getBiggestSimpleID());
-		outer:
-		for (ExitRoute r : validDestinations) {
-			if (r == null) {
-				continue;
-			}
-			if (!r.containsFlag(PipeRoutingConnectionType.canRequestFrom)) {
+	public LinkedList<ItemIdentifier> getCraftableItems(IRouter requester) {
+		List<ExitRoute> craftingRoutes = new ArrayList<>();
+		BitSet crafters = CraftingIndex.getCrafters();
+		for (int id = crafters.nextSetBit(0); id >= 0; id = crafters.nextSetBit(id + 1)) {
+			IRouter crafter = SimpleServiceLocator.routerManager.getServerRouter(id);
+			if (crafter == null) {
 				continue;
 			}
-			if (used.get(r.destination.getSimpleID())) {
-				continue;
-			}
-			if (!(r.destination.getPipe() instanceof ICraftItems)) {
-				continue;
-			}
-			for (IFilter filter : r.filters) {
-				if (filter.blockCrafting()) {
-					continue outer;
+			outer:
+			for (ExitRoute r : requester.getDistanceTo(crafter)) {
+				if (!r.containsFlag(PipeRoutingConnectionType.canRequestFrom) || !(r.destination.getPipe() instanceof ICraftItems)) {
+					continue;
+				}
+				for (IFilter filter : r.filters) {
+					if (filter.blockCrafting()) {
+						continue outer;
+					}
 				}
+				craftingRoutes.add(r);
+				break;
 			}
-			ICraftItems crafter = (ICraftItems) r.destination.getPipe();
-			List<ItemIdentifierStack> craftedItems = crafter.getCraftedItems();
-			if (craftedItems != null) {
-				outer2:
-				for (ItemIdentifierStack craftedItem : craftedItems) {
-					if (craftedItem != null && !craftableItems.contains(craftedItem.getItem())) {
-						for (IFilter filter : r.filters) {
-							if (filter.isBlocked() == filter.isFilteredItem(craftedItem.getItem())) {
-								continue outer2;
-							}
-						}
-						craftableItems.add(craftedItem.getItem());
+		}
+		Collections.sort(craftingRoutes);
+
+		LinkedHashSet<ItemIdentifier> craftableItems = new LinkedHashSet<>();
+		for (ExitRoute r : craftingRoutes) {
+			outer:
+			for (ItemIdentifier craftedItem : CraftingIndex.getCraftedItems(r.destination.getSimpleID())) {
+				for (IFilter filter : r.filters) {
+					if (filter.isBlocked() == filter.isFilteredItem(craftedItem)) {
+						continue outer;
 					}
 				}
+				craftableItems.add(craftedItem);
 			}
-			used.set(r.destination.getSimpleID(), true);
 		}
-		return craftableItems;
+		return new LinkedList<>(craftableItems);
 	}
 
 	@Override
 	public int getAmountFor(ItemIdentifier itemType, List<ExitRoute> validDestinations) {
-		// TODO: Replace this entire function wiht a fetch from the pre-built arrays (path incoming later)
-		List<Map<ItemIdentifier, Integer>> items = new ArrayList<>(ServerRouter.getBiggestSimpleID());
-		for (int i = 0; i < ServerRouter.getBiggestSimpleID(); i++) {
-			items.add(new HashMap<>());
-		}
-		BitSet used = new BitSet(ServerRouter.getBiggestSimpleID());
-		outer:
-		for (ExitRoute r : validDestinations) {
-			if (r == null) {
-				continue;
-			}
-			if (!r.containsFlag(PipeRoutingConnectionType.canRequestFrom)) {
-				continue;
-			}
-			if (!(r.destination.getPipe() instanceof IProvideItems)) {
-				continue;
-			}
-			for (IFilter filter : r.filters) {
-				if (filter.blockProvider()) {
-					continue outer;
-				}
+		final int[] amount = new int[1];
+		AvailableItemsCollector.forEachAvailableItem(validDestinations, (item, count) -> {
+			if (item.equals(itemType)) {
+				amount[0] += count;
 			}
-			IProvideItems provider = (IProvideItems) r.destination.getPipe();
-			provider.getAllItems(items.get(r.destination.getSimpleID()), r.filters);
-			used.set(r.destination.getSimpleID(), true);
-		}
-		// TODO: Fix this doubly nested list
-		int amount = 0;
-		for (Map<ItemIdentifier, Integer> allItems : items) {
-			for (Entry<ItemIdentifier, Integer> item : allItems.entrySet()) {
-				if (item.getKey().equals(itemType)) {
-					amount += item.getValue();
-				}
-			}
-		}
-		return amount;
+		});
+		return amount[0];
 	}
 }
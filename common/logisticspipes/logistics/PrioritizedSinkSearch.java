@@ -0,0 +1,102 @@
+package logisticspipes.logistics;
+
+import java.util.List;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+
+import it.unimi.dsi.fastutil.ints.IntArrays;
+
+import logisticspipes.modules.LogisticsModule;
+import logisticspipes.routing.ExitRoute;
+import logisticspipes.utils.SinkReply;
+import logisticspipes.utils.tuples.Pair;
+
+/**
+ * Finds the sink for an item, which replies with the highest priority, asking the candidates ordered by the highest
+ * priority their module could reply with ({@link LogisticsModule#getMaxSinkReply()}) instead of by distance.
+ * <p>
+ * Once a reply was found, candidates which cannot reply with a higher priority are not asked anymore. The result is the
+ * same as asking all candidates by distance: the reply with the highest priority wins, the closest candidate wins a
+ * tie. Only a reply with a negative maxNumberOfItems, which no module gives, ends the search early in both: asking by
+ * distance kept the first such best reply, this search keeps the first one by priority.
+ */
+public final class PrioritizedSinkSearch {
+
+	private PrioritizedSinkSearch() {}
+
+	public interface ISinkQuery<T> {
+
+		/**
+		 * Asks the candidate for a reply, which is better than the given priorities.
+		 */
+		@Nullable
+		SinkReply sinksItem(T candidate, int bestPriority, int bestCustomPriority);
+	}
+
+	/**
+	 * @param candidates the routable candidates, sorted by distance
+	 * @return the best candidate and its reply or null, if no candidate sinks the item
+	 */
+	@Nullable
+	public static Pair<ExitRoute, SinkReply> findBestSink(List<ExitRoute> candidates, ISinkQuery<ExitRoute> query) {
+		return PrioritizedSinkSearch.findBestSink(candidates, candidate -> {
+			final LogisticsModule module = candidate.destination.getLogisticsModule();
+			return module == null ? null : module.getMaxSinkReply();
+		}, query);
+	}
+
+	/**
+	 * @param bound the highest priority a candidate could reply with or null, if it never sinks anything
+	 */
+	@Nullable
+	static <T> Pair<T, SinkReply> findBestSink(List<T> candidates, Function<T, SinkReply> bound, ISinkQuery<T> query) {
+		final SinkReply[] bounds = new SinkReply[candidates.size()];
+		final int[] order = new int[candidates.size()];
+		int count = 0;
+		for (int i = 0; i < bounds.length; i++) {
+			bounds[i] = bound.apply(candidates.get(i));
+			if (bounds[i] != null) {
+				order[count++] = i;
+			}
+		}
+		// stable, so candidates with the same bound stay sorted by distance
+		IntArrays.mergeSort(order, 0, count, (a, b) -> SinkReply.comparePriority(bounds[b], bounds[a]));
+
+		SinkReply best = null;
+		int bestIndex = -1;
+		for (int n = 0; n < count; n++) {
+			final int i = order[n];
+			if (best != null) {
+				if (best.maxNumberOfItems < 0) {
+					break;
+				}
+				final int boundComparison = SinkReply.comparePriority(bounds[i], best);
+				if (boundComparison < 0 || (boundComparison == 0 && i > bestIndex)) {
+					// neither this one nor any following candidate can win anymore
+					break;
+				}
+			}
+			final SinkReply reply;
+			if (best == null) {
+				reply = query.sinksItem(candidates.get(i), -1, 0);
+			} else if (i < bestIndex) {
+				// a closer candidate also wins with the same priority
+				reply = query.sinksItem(candidates.get(i), best.fixedPriority.ordinal(), best.customPriority - 1);
+			} else {
+				reply = query.sinksItem(candidates.get(i), best.fixedPriority.ordinal(), best.customPriority);
+			}
+			if (reply == null) {
+				continue;
+			}
+			final int comparison = best == null ? 1 : SinkReply.comparePriority(reply, best);
+			if (comparison > 0 || (comparison == 0 && i < bestIndex)) {
+				best = reply;
+				bestIndex = i;
+			}
+		}
+		if (best == null) {
+			return null;
+		}
+		return new Pair<>(candidates.get(bestIndex), best);
+	}
+}
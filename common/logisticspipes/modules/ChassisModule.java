@@ -73,6 +73,21 @@ public class ChassisModule extends LogisticsModule implements Gui {
 		return modules.stream().map(SlottedModule::getModule);
 	}
 
+	@Override
+	public SinkReply getMaxSinkReply() {
+		SinkReply max = null;
+		for (SlottedModule slottedModule : modules) {
+			final LogisticsModule module = slottedModule.getModule();
+			if (module != null) {
+				final SinkReply moduleMax = module.getMaxSinkReply();
+				if (moduleMax != null && (max == null || SinkReply.comparePriority(moduleMax, max) > 0)) {
+					max = moduleMax;
+				}
+			}
+		}
+		return max;
+	}
+
 	@Override
 	public SinkReply sinksItem(@Nonnull ItemStack stack, ItemIdentifier item, int bestPriority, int bestCustomPriority,
 			boolean allowDefault, boolean includeInTransit, boolean forcePassive) {
@@ -22,6 +22,7 @@ import logisticspipes.interfaces.IQueueCCEvent;
 import logisticspipes.interfaces.ISlotUpgradeManager;
 import logisticspipes.interfaces.IWorldProvider;
 import logisticspipes.interfaces.routing.ISaveState;
+import logisticspipes.logistics.DestinationCache;
 import logisticspipes.proxy.MainProxy;
 import logisticspipes.proxy.computers.interfaces.CCCommand;
 import logisticspipes.proxy.computers.interfaces.CCType;
@@ -38,6 +39,12 @@ import network.rs485.logisticspipes.property.UtilKt;
 @CCType(name = "LogisticsModule")
 public abstract class LogisticsModule implements ISaveState, ILPCCTypeHolder, PropertyHolder {
 
+	/**
+	 * Placeholder for {@link #getMaxSinkReply()}, when nothing is known about the replies of a module
+	 */
+	protected static final SinkReply ANY_SINK_PRIORITY = new SinkReply(SinkReply.FixedPriority.values()[SinkReply.FixedPriority.values().length - 1],
+			Integer.MAX_VALUE, true, false, 0, 0, null);
+
 	private final Object[] ccTypeHolder = new Object[1];
 	@Nullable
 	protected IWorldProvider _world;
@@ -60,6 +67,8 @@ public abstract class LogisticsModule implements ISaveState, ILPCCTypeHolder, Pr
 			MainProxy.runOnServer(blockAccess, () -> () ->
 					UtilKt.addObserver(getProperties(), (prop) -> {
 						_service.markTileDirty();
+						_service.interestsChanged();
+						DestinationCache.sinkStateChanged();
 						return Unit.INSTANCE;
 					})
 			);
@@ -138,6 +147,19 @@ public abstract class LogisticsModule implements ISaveState, ILPCCTypeHolder, Pr
 		return null;
 	}
 
+	/**
+	 * An upper bound for the priority of all replies of {@link #sinksItem}, so destination searches can ask the
+	 * modules which might win first and skip the ones which cannot win anymore. Only the fixed and the custom priority
+	 * of the result are used.
+	 *
+	 * @return a reply with at least the priority of every reply of this module, or null if this module never sinks
+	 * items
+	 */
+	@Nullable
+	public SinkReply getMaxSinkReply() {
+		return ANY_SINK_PRIORITY;
+	}
+
 	/**
 	 * A tick for the Module
 	 */
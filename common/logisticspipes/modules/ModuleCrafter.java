@@ -205,6 +205,11 @@ public class ModuleCrafter extends LogisticsModule
 				new ChassiTargetInformation(getPositionInt()));
 	}
 
+	@Override
+	public SinkReply getMaxSinkReply() {
+		return _sinkReply == null ? super.getMaxSinkReply() : _sinkReply;
+	}
+
 	@Override
 	public SinkReply sinksItem(@Nonnull ItemStack stack, ItemIdentifier item, int bestPriority, int bestCustomPriority,
 			boolean allowDefault, boolean includeInTransit, boolean forcePassive) {
@@ -62,6 +62,11 @@ public class ModuleFluidSupplier extends LogisticsModule implements IClientInfor
 				new ChassiTargetInformation(getPositionInt()));
 	}
 
+	@Override
+	public SinkReply getMaxSinkReply() {
+		return _sinkReply == null ? super.getMaxSinkReply() : _sinkReply;
+	}
+
 	@Override
 	public SinkReply sinksItem(@Nonnull ItemStack stack, ItemIdentifier item, int bestPriority, int bestCustomPriority,
 			boolean allowDefault, boolean includeInTransit, boolean forcePassive) {
@@ -141,6 +141,12 @@ public class ModuleItemSink extends LogisticsModule
 				.distinct();
 	}
 
+	@Override
+	public SinkReply getMaxSinkReply() {
+		// the default route reply has a lower priority
+		return _sinkReply == null ? super.getMaxSinkReply() : _sinkReply;
+	}
+
 	@Override
 	public SinkReply sinksItem(@Nonnull ItemStack stack, ItemIdentifier item, int bestPriority, int bestCustomPriority,
 			boolean allowDefault, boolean includeInTransit, boolean forcePassive) {
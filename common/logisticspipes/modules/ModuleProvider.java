@@ -2,6 +2,8 @@ package logisticspipes.modules;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -10,6 +12,7 @@ import java.util.TreeMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.item.ItemStack;
@@ -100,6 +103,9 @@ public class ModuleProvider extends LogisticsModule implements SneakyDirection,
 	private final ArrayList<ItemIdentifierStack> oldList = new ArrayList<>();
 	private final PlayerCollectionList localModeWatchers = new PlayerCollectionList();
 	private final IHUDModuleRenderer HUD = new HUDProviderModule(this);
+	// item counts of inventories with a change token, by token. Only valid for itemCountsMode.
+	private final Map<Long, Map<ItemIdentifier, Integer>> itemCountsByToken = new HashMap<>();
+	private ProviderMode itemCountsMode = null;
 
 	public ModuleProvider() {}
 
@@ -157,6 +163,11 @@ public class ModuleProvider extends LogisticsModule implements SneakyDirection,
 		return getUpgradeManager().getItemExtractionUpgrade() > 0 ? ItemSendMode.Fast : ItemSendMode.Normal;
 	}
 
+	@Override
+	public SinkReply getMaxSinkReply() {
+		return null;
+	}
+
 	@Override
 	public SinkReply sinksItem(@Nonnull ItemStack stack, ItemIdentifier item, int bestPriority, int bestCustomPriority,
 			boolean allowDefault, boolean includeInTransit, boolean forcePassive) {
@@ -225,7 +236,7 @@ public class ModuleProvider extends LogisticsModule implements SneakyDirection,
 		} else if (tree.getRequestType() instanceof DictResource) {
 			possible.addAll(
 					inventoriesWithMode()
-							.map(IInventoryUtil::getItemsAndCount)
+							.map(this::getItemsAndCount)
 							.flatMap(inventory -> inventory.keySet().stream())
 							.filter(item -> tree.getRequestType().matches(item, IResource.MatchSettings.NORMAL))
 							.collect(Collectors.toList())
@@ -267,7 +278,7 @@ public class ModuleProvider extends LogisticsModule implements SneakyDirection,
 		if (service == null) return;
 		items.putAll(
 				inventoriesWithMode()
-						.map(IInventoryUtil::getItemsAndCount)
+						.map(this::getItemsAndCount)
 						.flatMap(inventory -> inventory.entrySet().stream())
 						.filter(item -> {
 							if (items.containsKey(item.getKey()))
@@ -354,7 +365,49 @@ public class ModuleProvider extends LogisticsModule implements SneakyDirection,
 
 	public int getTotalItemCount(final ItemIdentifier item) {
 		if (filterBlocksItem(item)) return 0;
-		return inventoriesWithMode().map(invUtil -> invUtil.itemCount(item)).reduce(Integer::sum).orElse(0);
+		return inventoriesWithMode().map(invUtil -> {
+			final Map<ItemIdentifier, Integer> counts = getCachedItemsAndCount(invUtil);
+			return counts == null ? invUtil.itemCount(item) : counts.getOrDefault(item, 0);
+		}).reduce(Integer::sum).orElse(0);
+	}
+
+	/**
+	 * @return the item counts of the inventory, must not be modified
+	 */
+	@Nonnull
+	private Map<ItemIdentifier, Integer> getItemsAndCount(IInventoryUtil invUtil) {
+		final Map<ItemIdentifier, Integer> counts = getCachedItemsAndCount(invUtil);
+		return counts == null ? invUtil.getItemsAndCount() : counts;
+	}
+
+	/**
+	 * Reuses the item counts of inventories with a change token, as long as the token stays the same. Large inventories,
+	 * like ME networks, are not read again for every request and every update of the display list.
+	 *
+	 * @return the item counts of the inventory or null, if the inventory has no change token
+	 */
+	@Nullable
+	private Map<ItemIdentifier, Integer> getCachedItemsAndCount(IInventoryUtil invUtil) {
+		final long token = invUtil.getChangeToken();
+		if (token == IInventoryUtil.NO_CHANGE_TOKEN) {
+			return null;
+		}
+		synchronized (itemCountsByToken) {
+			if (itemCountsMode != providerMode.getValue()) {
+				itemCountsByToken.clear();
+				itemCountsMode = providerMode.getValue();
+			}
+			Map<ItemIdentifier, Integer> counts = itemCountsByToken.get(token);
+			if (counts == null) {
+				if (itemCountsByToken.size() >= EnumFacing.VALUES.length) {
+					// tokens of inventories, which changed since, are never handed out again
+					itemCountsByToken.clear();
+				}
+				counts = Collections.unmodifiableMap(invUtil.getItemsAndCount());
+				itemCountsByToken.put(token, counts);
+			}
+			return counts;
+		}
 	}
 
 	/*** GUI STUFF ***/
@@ -32,6 +32,11 @@ public class ModuleSatellite extends LogisticsModule {
 		return Collections.emptyList();
 	}
 
+	@Override
+	public SinkReply getMaxSinkReply() {
+		return _sinkReply;
+	}
+
 	@Override
 	public SinkReply sinksItem(@Nonnull ItemStack stack, ItemIdentifier item, int bestPriority, int bestCustomPriority,
 			boolean allowDefault, boolean includeInTransit, boolean forcePassive) {
@@ -34,7 +34,7 @@ public class RequestAmountTaskSubGui extends CoordinatesPacket {
 		}
 
 		Map<ItemIdentifier, Integer> _availableItems = SimpleServiceLocator.logisticsManager.getAvailableItems(pipe.getRouter().getIRoutersByCost());
-		LinkedList<ItemIdentifier> _craftableItems = SimpleServiceLocator.logisticsManager.getCraftableItems(pipe.getRouter().getIRoutersByCost());
+		LinkedList<ItemIdentifier> _craftableItems = SimpleServiceLocator.logisticsManager.getCraftableItems(pipe.getRouter());
 
 		TreeSet<ItemIdentifierStack> _allItems = new TreeSet<>();
 
@@ -79,7 +79,7 @@ public class FindMostLikelyRecipeComponents extends CoordinatesPacket {
 			}
 			if (max < 64) {
 				if (craftable == null) {
-					craftable = SimpleServiceLocator.logisticsManager.getCraftableItems(pipe.getRouter().getIRoutersByCost());
+					craftable = SimpleServiceLocator.logisticsManager.getCraftableItems(pipe.getRouter());
 				}
 				for (ItemIdentifier craft : craftable) {
 					for (int i = 0; i < canidates.order.size(); i++) {
@@ -102,6 +102,12 @@ public class PipeItemsBasicLogistics extends CoreRoutedPipe {
 		return ItemSendMode.Normal;
 	}
 
+	@Override
+	protected boolean canSleep() {
+		// the item sink module does nothing in its tick
+		return true;
+	}
+
 	@Override
 	public void setTile(TileEntity tile) {
 		super.setTile(tile);
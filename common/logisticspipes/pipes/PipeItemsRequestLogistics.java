@@ -130,20 +130,16 @@ public class PipeItemsRequestLogistics extends CoreRoutedPipe implements IReques
 	@CCCommand(description = "Asks for all craftable ItemIdentifier inside the Logistics Network")
 	@CCQueued
 	public List<ItemIdentifier> getCraftableItems() {
-		return SimpleServiceLocator.logisticsManager.getCraftableItems(getRouter().getIRoutersByCost());
+		return SimpleServiceLocator.logisticsManager.getCraftableItems(getRouter());
 	}
 
 	@CCCommand(description = "Asks for the amount of an ItemIdentifier Id inside the Logistics Network")
 	@CCQueued
 	public int getItemAmount(ItemIdentifier item) throws Exception {
-		Map<ItemIdentifier, Integer> items = SimpleServiceLocator.logisticsManager.getAvailableItems(getRouter().getIRoutersByCost());
 		if (item == null) {
 			throw new Exception("Invalid ItemIdentifierID");
 		}
-		if (items.containsKey(item)) {
-			return items.get(item);
-		}
-		return 0;
+		return SimpleServiceLocator.logisticsManager.getAmountFor(item, getRouter().getIRoutersByCost());
 	}
 
 }
@@ -105,6 +105,11 @@ public class PipeItemsSatelliteLogistics extends CoreRoutedPipe implements IRequ
 		return ItemSendMode.Normal;
 	}
 
+	@Override
+	protected boolean canSleep() {
+		return localModeWatchers.isEmpty() && _lostItems.isEmpty();
+	}
+
 	@Override
 	public void startWatching() {
 		MainProxy.sendPacketToServer(PacketHandler.getPacket(HUDStartWatchingPacket.class).setInteger(1).setPosX(getX()).setPosY(getY()).setPosZ(getZ()));
@@ -144,6 +149,7 @@ public class PipeItemsSatelliteLogistics extends CoreRoutedPipe implements IRequ
 	public void playerStartWatching(EntityPlayer player, int mode) {
 		if (mode == 1) {
 			localModeWatchers.add(player);
+			wakeUp();
 			final ModernPacket packet = PacketHandler.getPacket(SyncSatelliteNamePacket.class).setString(satellitePipeName).setPosX(getX()).setPosY(getY()).setPosZ(getZ());
 			MainProxy.sendPacketToPlayer(packet, player);
 			updateInv(true);
@@ -243,6 +249,7 @@ public class PipeItemsSatelliteLogistics extends CoreRoutedPipe implements IRequ
 	@Override
 	public void itemLost(ItemIdentifierStack item, IAdditionalTargetInformation info) {
 		_lostItems.add(item);
+		wakeUp();
 	}
 
 	@Override
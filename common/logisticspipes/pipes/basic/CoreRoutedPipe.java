@@ -15,6 +15,7 @@ import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Queue;
 import java.util.Random;
 import java.util.TreeMap;
@@ -62,6 +63,7 @@ import logisticspipes.interfaces.routing.IRequestItems;
 import logisticspipes.interfaces.routing.IRequireReliableFluidTransport;
 import logisticspipes.interfaces.routing.IRequireReliableTransport;
 import logisticspipes.items.ItemPipeSignCreator;
+import logisticspipes.logistics.DestinationCache;
 import logisticspipes.logisticspipes.IRoutedItem;
 import logisticspipes.logisticspipes.IRoutedItem.TransportMode;
 import logisticspipes.logisticspipes.ITrackStatistics;
@@ -171,6 +173,10 @@ public abstract class CoreRoutedPipe extends CoreUnroutedPipe
 	private final int[] queuedParticles = new int[Particles.values().length];
 	private boolean hasQueuedParticles = false;
 	private boolean isOpaqueClientSide = false;
+	// set while an idle pipe skips its update, see canSleep()
+	private boolean asleep = false;
+	private long asleepSince;
+	private long wakeUpTick;
 
 	/** Caches adjacent state, only on Side.SERVER */
 	@Nonnull
@@ -227,6 +233,14 @@ public abstract class CoreRoutedPipe extends CoreUnroutedPipe
 		if (container != null) container.markDirty();
 	}
 
+	@Override
+	public void interestsChanged() {
+		wakeUp();
+		if (router instanceof ServerRouter) {
+			((ServerRouter) router).scheduleInterestUpdate();
+		}
+	}
+
 	@Nonnull
 	public RouteLayer getRouteLayer() {
 		if (_routeLayer == null) {
@@ -264,6 +278,7 @@ public abstract class CoreRoutedPipe extends CoreUnroutedPipe
 			throw new NullPointerException();
 		}
 		_sendQueue.addLast(new Triplet<>(routedItem, from, ItemSendMode.Normal));
+		wakeUp();
 		sendQueueChanged(false);
 	}
 
@@ -272,6 +287,7 @@ public abstract class CoreRoutedPipe extends CoreUnroutedPipe
 			throw new NullPointerException();
 		}
 		_sendQueue.addLast(new Triplet<>(routedItem, from, mode));
+		wakeUp();
 		sendQueueChanged(false);
 	}
 
@@ -365,6 +381,23 @@ public abstract class CoreRoutedPipe extends CoreUnroutedPipe
 
 	@Override
 	public final void updateEntity() {
+		if (asleep) {
+			final long now = getWorld().getTotalWorldTime();
+			if (now < wakeUpTick && !((ServerRouter) router).hasPendingUpdate()) {
+				return;
+			}
+			asleep = false;
+			final int skipped = (int) (now - asleepSince - 1);
+			throttleTimeLeft = Math.max(1, throttleTimeLeft - skipped);
+			((ServerRouter) router).skippedUpdates(skipped);
+		}
+		updateRoutedPipe();
+		if (Configs.IDLE_PIPE_SLEEP_TICKS > 0 && MainProxy.isServer(getWorld())) {
+			fallAsleepIfIdle();
+		}
+	}
+
+	private void updateRoutedPipe() {
 		debug.tick();
 		spawnParticleTick();
 		if (stillNeedReplace) {
@@ -467,6 +500,45 @@ public abstract class CoreRoutedPipe extends CoreUnroutedPipe
 		getLogisticsModule().tick();
 	}
 
+	/**
+	 * An idle pipe skips its update until {@link #wakeUp()} is called or it has to do something on its own: refresh its
+	 * connections, its interests or its caches. The update of a sleeping pipe is not run at all, so only pipes whose
+	 * update and module tick do nothing while idle may return true.
+	 *
+	 * @return true, if the pipe does nothing in its update right now
+	 */
+	protected boolean canSleep() {
+		return false;
+	}
+
+	/**
+	 * Lets a sleeping pipe run its update in the next tick again. Called on events, which might give the pipe something
+	 * to do: items to send or arriving, orders, configuration changes, changed neighbor blocks and changed contents of
+	 * inventories beside the pipe. Contents of inventories above or below the pipe are not reported by Minecraft, those
+	 * changes are only seen when the pipe wakes up on its own.
+	 */
+	public void wakeUp() {
+		wakeUpTick = 0;
+	}
+
+	private void fallAsleepIfIdle() {
+		if (stillNeedReplace || _initialInit || repeatFor > 0 || hasQueuedParticles || !_sendQueue.isEmpty() || !(router instanceof ServerRouter)
+				|| ((ServerRouter) router).hasPendingUpdate() || upgradeManager.hasRFPowerSupplierUpgrade() || upgradeManager.getIC2PowerLevel() > 0
+				|| Arrays.stream(signItem).anyMatch(Objects::nonNull) || !canSleep()) {
+			return;
+		}
+		final long now = getWorld().getTotalWorldTime();
+		// the next full refresh and cache trigger, see updateRoutedPipe()
+		long wakeUp = now + 1 + Math.floorMod(_delayOffset - now - 1, Configs.LOGISTICS_DETECTION_FREQUENCY);
+		wakeUp = Math.min(wakeUp, now + 1 + Math.floorMod(-(now + 1 + _delayOffset), 200));
+		wakeUp = Math.min(wakeUp, now + Configs.IDLE_PIPE_SLEEP_TICKS);
+		if (wakeUp > now + 1) {
+			asleep = true;
+			asleepSince = now;
+			wakeUpTick = wakeUp;
+		}
+	}
+
 	protected void onAllowedRemoval() {}
 
 	// From BaseRoutingLogic
@@ -679,6 +751,7 @@ public abstract class CoreRoutedPipe extends CoreUnroutedPipe
 		}
 		queuedParticles[particle.ordinal()] += amount;
 		hasQueuedParticles = true;
+		wakeUp();
 	}
 
 	private void spawnParticleTick() {
@@ -846,6 +919,10 @@ public abstract class CoreRoutedPipe extends CoreUnroutedPipe
 	}
 
 	public void setEnabled(boolean enabled) {
+		if (this.enabled != enabled) {
+			DestinationCache.sinkStateChanged();
+			wakeUp();
+		}
 		this.enabled = enabled;
 	}
 
@@ -1267,6 +1344,7 @@ public abstract class CoreRoutedPipe extends CoreUnroutedPipe
 
 	public void notifyOfItemArival(ItemRoutingInformation information) {
 		_inTransitToMe.remove(information);
+		wakeUp();
 		if (this instanceof IRequireReliableTransport) {
 			((IRequireReliableTransport) this).itemArrived(information.getItem(), information.targetInfo);
 		}
@@ -1474,6 +1552,13 @@ public abstract class CoreRoutedPipe extends CoreUnroutedPipe
 		return itemToSend;
 	}
 
+	/**
+	 * @return true, if items are waiting to be sent or orders are open, so the route table of this pipe is needed soon
+	 */
+	public boolean hasPendingRoutingWork() {
+		return !_sendQueue.isEmpty() || (_orderItemManager != null && _orderItemManager.size() > 0);
+	}
+
 	@Override
 	public LogisticsItemOrderManager getItemOrderManager() {
 		_orderItemManager = _orderItemManager != null ? _orderItemManager : new LogisticsItemOrderManager(this);
@@ -1671,6 +1756,7 @@ public abstract class CoreRoutedPipe extends CoreUnroutedPipe
 
 	protected void triggerConnectionCheck() {
 		recheckConnections = true;
+		wakeUp();
 	}
 
 	@Override
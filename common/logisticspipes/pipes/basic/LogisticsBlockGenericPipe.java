@@ -727,6 +727,20 @@ public class LogisticsBlockGenericPipe extends LPMicroblockBlock {
 
 		if (LogisticsBlockGenericPipe.isValid(pipe)) {
 			pipe.container.scheduleNeighborChange();
+			if (pipe instanceof CoreRoutedPipe) {
+				((CoreRoutedPipe) pipe).wakeUp();
+			}
+		}
+	}
+
+	@Override
+	public void onNeighborChange(IBlockAccess world, BlockPos pos, BlockPos neighbor) {
+		super.onNeighborChange(world, pos, neighbor);
+
+		// called when the content of an inventory beside the pipe changed, not for inventories above or below it
+		CoreUnroutedPipe pipe = LogisticsBlockGenericPipe.getPipe(world, pos);
+		if (pipe instanceof CoreRoutedPipe) {
+			((CoreRoutedPipe) pipe).wakeUp();
 		}
 	}
 
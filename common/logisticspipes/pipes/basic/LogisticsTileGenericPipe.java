@@ -177,6 +177,9 @@ public class LogisticsTileGenericPipe extends LPDuctHolderTileEntity
 		super.onChunkUnload();
 		if (pipe != null) {
 			pipe.onChunkUnload();
+			if (pipe.transport != null) {
+				pipe.transport.onChunkUnload();
+			}
 		}
 		SimpleServiceLocator.openComputersProxy.handleChunkUnload(this);
 		tdPart.onChunkUnload();
@@ -18,6 +18,7 @@ import logisticspipes.interfaces.IPipeUpgradeManager;
 import logisticspipes.interfaces.ISlotUpgradeManager;
 import logisticspipes.items.ItemUpgrade;
 import logisticspipes.items.LogisticsItemCard;
+import logisticspipes.logistics.DestinationCache;
 import logisticspipes.pipes.basic.CoreRoutedPipe;
 import logisticspipes.pipes.upgrades.power.BCPowerSupplierUpgrade;
 import logisticspipes.pipes.upgrades.power.IC2PowerSupplierUpgrade;
@@ -132,6 +133,9 @@ public class UpgradeManager implements ISimpleInventoryEventHandler, ISlotUpgrad
 				needUpdate |= removeUpgrade(i, upgrades);
 			}
 		}
+		// upgrades can change which items the pipe sinks or crafts
+		DestinationCache.sinkStateChanged();
+		pipe.interestsChanged();
 		//update sneaky direction, speed upgrade count and disconnection
 		sneakyOrientation = null;
 		speedUpgradeCount = 0;
@@ -32,6 +32,15 @@ public class SpecialPipeConnection {
 		return new ArrayList<>();
 	}
 
+	public boolean isType(IPipeInformationProvider startPipe) {
+		for (ISpecialPipedConnection connectionHandler : handler) {
+			if (connectionHandler.isType(startPipe)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	@Data
 	@AllArgsConstructor
 	public static class ConnectionInformation {
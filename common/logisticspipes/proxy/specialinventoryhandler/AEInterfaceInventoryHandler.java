@@ -1,5 +1,6 @@
 package logisticspipes.proxy.specialinventoryhandler;
 
+import java.lang.ref.WeakReference;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -21,12 +22,17 @@ import net.minecraftforge.common.capabilities.Capability;
 import net.minecraftforge.common.capabilities.CapabilityInject;
 import net.minecraftforge.common.capabilities.ICapabilitySerializable;
 
+import com.google.common.collect.MapMaker;
+
 import appeng.api.AEApi;
 import appeng.api.config.Actionable;
 import appeng.api.networking.IGridHost;
 import appeng.api.networking.IGridNode;
 import appeng.api.networking.security.IActionHost;
 import appeng.api.networking.security.IActionSource;
+import appeng.api.storage.IBaseMonitor;
+import appeng.api.storage.IMEMonitor;
+import appeng.api.storage.IMEMonitorHandlerReceiver;
 import appeng.api.storage.IStorageMonitorable;
 import appeng.api.storage.IStorageMonitorableAccessor;
 import appeng.api.storage.channels.IItemStorageChannel;
@@ -39,6 +45,9 @@ import network.rs485.logisticspipes.inventory.ProviderMode;
 
 public class AEInterfaceInventoryHandler extends SpecialInventoryHandler implements SpecialInventoryHandler.Factory {
 
+	// one listener per ME monitor, which hands out the change tokens of the monitor
+	private static final Map<IMEMonitor<IAEItemStack>, LPMonitorChangeListener> changeListeners = new MapMaker().weakKeys().makeMap();
+
 	public boolean init = false;
 	private final LPActionSource source;
 	private IStorageMonitorableAccessor acc;
@@ -114,6 +123,34 @@ public class AEInterfaceInventoryHandler extends SpecialInventoryHandler impleme
 		return result;
 	}
 
+	@Override
+	public long getChangeToken() {
+		IItemStorageChannel channel = AEApi.instance().storage().getStorageChannel(IItemStorageChannel.class);
+		IStorageMonitorable tmp = acc.getInventory(source);
+		if (tmp == null || tmp.getInventory(channel) == null) {
+			return NO_CHANGE_TOKEN;
+		}
+		return AEInterfaceInventoryHandler.changeListeners.computeIfAbsent(tmp.getInventory(channel), LPMonitorChangeListener::new).getToken();
+	}
+
+	@Override
+	public int itemCount(@Nonnull ItemIdentifier itemIdent) {
+		IItemStorageChannel channel = AEApi.instance().storage().getStorageChannel(IItemStorageChannel.class);
+		IStorageMonitorable tmp = acc.getInventory(source);
+		if (tmp == null || tmp.getInventory(channel) == null || tmp.getInventory(channel).getStorageList() == null) {
+			return 0;
+		}
+		IAEItemStack stack = channel.createStack(itemIdent.makeNormalStack(1));
+		if (stack == null) {
+			return 0;
+		}
+		IAEItemStack found = tmp.getInventory(channel).getStorageList().findPrecise(stack);
+		if (found == null) {
+			return 0;
+		}
+		return (int) (found.getStackSize() - (hideOne ? 1 : 0));
+	}
+
 	@Override
 	@Nonnull
 	public ItemStack getSingleItem(ItemIdentifier item) {
@@ -292,6 +329,39 @@ class LPStorageMonitorableAccessor implements ICapabilitySerializable<NBTBase> {
 	}
 }
 
+/**
+ * Counts the changes of an ME monitor. Every change of the stored items gets a new token.
+ */
+class LPMonitorChangeListener implements IMEMonitorHandlerReceiver<IAEItemStack> {
+
+	private final WeakReference<IMEMonitor<IAEItemStack>> monitor;
+	private volatile long token = SpecialInventoryHandler.nextChangeToken();
+
+	LPMonitorChangeListener(IMEMonitor<IAEItemStack> monitor) {
+		this.monitor = new WeakReference<>(monitor);
+		monitor.addListener(this, null);
+	}
+
+	long getToken() {
+		return token;
+	}
+
+	@Override
+	public boolean isValid(Object verificationToken) {
+		return monitor.get() != null;
+	}
+
+	@Override
+	public void postChange(IBaseMonitor<IAEItemStack> monitor, Iterable<IAEItemStack> change, IActionSource actionSource) {
+		token = SpecialInventoryHandler.nextChangeToken();
+	}
+
+	@Override
+	public void onListUpdate() {
+		token = SpecialInventoryHandler.nextChangeToken();
+	}
+}
+
 class LPActionSource implements IActionSource {
 
 	final IGridHost host;
@@ -1,6 +1,7 @@
 package logisticspipes.proxy.specialinventoryhandler;
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.IntStream;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -16,6 +17,15 @@ import network.rs485.logisticspipes.inventory.ProviderMode;
 
 public abstract class SpecialInventoryHandler implements IInventoryUtil, ITransactor {
 
+	private static final AtomicLong lastChangeToken = new AtomicLong();
+
+	/**
+	 * @return a new change token for {@link IInventoryUtil#getChangeToken()}, which was not handed out before
+	 */
+	public static long nextChangeToken() {
+		return SpecialInventoryHandler.lastChangeToken.incrementAndGet();
+	}
+
 	@Override
 	public int itemCount(@Nonnull ItemIdentifier itemIdent) {
 		final Map<ItemIdentifier, Integer> map = getItemsAndCount();
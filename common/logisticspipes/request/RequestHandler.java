@@ -3,11 +3,8 @@ package logisticspipes.request;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumSet;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
 
@@ -28,11 +25,15 @@ import logisticspipes.proxy.MainProxy;
 import logisticspipes.proxy.SimpleServiceLocator;
 import logisticspipes.request.RequestTree.ActiveRequestType;
 import logisticspipes.request.resources.IResource;
+import logisticspipes.request.resources.ItemResource;
 import logisticspipes.routing.order.LinkedLogisticsOrderList;
 import logisticspipes.utils.FluidIdentifier;
 import logisticspipes.utils.FluidIdentifierStack;
 import logisticspipes.utils.item.ItemIdentifier;
+import logisticspipes.utils.item.ItemIdentifierIntMap;
 import logisticspipes.utils.item.ItemIdentifierStack;
+import logisticspipes.utils.tuples.Pair;
+import network.rs485.logisticspipes.logistics.AsyncRequestSimulation;
 
 public class RequestHandler {
 
@@ -42,12 +43,31 @@ public class RequestHandler {
 		CraftOnly
 	}
 
+	/**
+	 * Plans the request on another thread, against a snapshot of the network taken now, and orders everything at once
+	 * afterwards. If the network changed too much in between, the request is planned again from a new snapshot. Requests
+	 * of a player are refused while another one of them is planned.
+	 */
 	public static void request(final EntityPlayer player, final ItemIdentifierStack stack, final CoreRoutedPipe pipe) {
+		if (AsyncRequestSimulation.isPlanning(player)) {
+			player.sendMessage(new TextComponentTranslation("lp.misc.planning"));
+			return;
+		}
 		if (!pipe.useEnergy(5)) {
 			player.sendMessage(new TextComponentTranslation("lp.misc.noenergy"));
 			return;
 		}
-		RequestTree.request(new ItemIdentifierStack(stack), pipe, new RequestLog() {
+		final ItemIdentifierStack request = new ItemIdentifierStack(stack);
+		AsyncRequestSimulation.plan(player, new ItemResource(request, pipe), snapshot -> RequestTree.plan(request, pipe, snapshot), plan -> {
+			if (pipe.container == null || pipe.container.isInvalid()) {
+				return true;
+			}
+			return plan.commitPlan(RequestHandler.requestLog(player, pipe));
+		});
+	}
+
+	private static RequestLog requestLog(final EntityPlayer player, final CoreRoutedPipe pipe) {
+		return new RequestLog() {
 
 			@Override
 			public void handleMissingItems(List<IResource> resources) {
@@ -66,48 +86,54 @@ public class RequestHandler {
 
 			@Override
 			public void handleSucessfullRequestOfList(List<IResource> resources, LinkedLogisticsOrderList parts) {}
-		}, null);
+		};
 	}
 
+	/**
+	 * Simulates the request on another thread, against a snapshot of the network taken now.
+	 */
 	public static void simulate(final EntityPlayer player, final ItemIdentifierStack stack, CoreRoutedPipe pipe) {
-		final List<IResource> usedList = new ArrayList<>();
-		final List<IResource> missingList = new ArrayList<>();
-		RequestTree.simulate(new ItemIdentifierStack(stack), pipe, new RequestLog() {
-
-			@Override
-			public void handleMissingItems(List<IResource> resources) {
-				missingList.addAll(resources);
-			}
+		final ItemIdentifierStack request = new ItemIdentifierStack(stack);
+		AsyncRequestSimulation.simulate(player, new ItemResource(request, pipe), snapshot -> {
+			final List<IResource> usedList = new ArrayList<>();
+			final List<IResource> missingList = new ArrayList<>();
+			RequestTree.simulate(request, pipe, new RequestLog() {
+
+				@Override
+				public void handleMissingItems(List<IResource> resources) {
+					missingList.addAll(resources);
+				}
 
-			@Override
-			public void handleSucessfullRequestOf(IResource item, LinkedLogisticsOrderList parts) {}
+				@Override
+				public void handleSucessfullRequestOf(IResource item, LinkedLogisticsOrderList parts) {}
 
-			@Override
-			public void handleSucessfullRequestOfList(List<IResource> resources, LinkedLogisticsOrderList parts) {
-				usedList.addAll(resources);
-			}
-		});
-		MainProxy.sendPacketToPlayer(PacketHandler.getPacket(ComponentList.class).setUsed(usedList).setMissing(missingList), player);
+				@Override
+				public void handleSucessfullRequestOfList(List<IResource> resources, LinkedLogisticsOrderList parts) {
+					usedList.addAll(resources);
+				}
+			}, snapshot);
+			return new Pair<>(usedList, missingList);
+		}, result -> MainProxy.sendPacketToPlayer(PacketHandler.getPacket(ComponentList.class).setUsed(result.getValue1()).setMissing(result.getValue2()), player));
 	}
 
 	public static void refresh(EntityPlayer player, CoreRoutedPipe pipe, DisplayOptions option) {
-		Map<ItemIdentifier, Integer> _availableItems;
+		ItemIdentifierIntMap _availableItems;
 		LinkedList<ItemIdentifier> _craftableItems;
 
 		if (option == DisplayOptions.SupplyOnly || option == DisplayOptions.Both) {
-			_availableItems = SimpleServiceLocator.logisticsManager.getAvailableItems(pipe.getRouter().getIRoutersByCost());
+			_availableItems = SimpleServiceLocator.logisticsManager.getAvailableItemCounts(pipe.getRouter().getIRoutersByCost());
 		} else {
-			_availableItems = new HashMap<>();
+			_availableItems = new ItemIdentifierIntMap();
 		}
 		if (option == DisplayOptions.CraftOnly || option == DisplayOptions.Both) {
-			_craftableItems = SimpleServiceLocator.logisticsManager.getCraftableItems(pipe.getRouter().getIRoutersByCost());
+			_craftableItems = SimpleServiceLocator.logisticsManager.getCraftableItems(pipe.getRouter());
 		} else {
 			_craftableItems = new LinkedList<>();
 		}
 		TreeSet<ItemIdentifierStack> _allItems = new TreeSet<>();
 
-		for (Entry<ItemIdentifier, Integer> item : _availableItems.entrySet()) {
-			ItemIdentifierStack newStack = item.getKey().makeStack(item.getValue());
+		for (int i = 0; i < _availableItems.size(); i++) {
+			ItemIdentifierStack newStack = _availableItems.keyAt(i).makeStack(_availableItems.valueAt(i));
 			_allItems.add(newStack);
 		}
 
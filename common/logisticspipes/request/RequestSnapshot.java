@@ -0,0 +1,415 @@
+package logisticspipes.request;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import logisticspipes.interfaces.routing.IAdditionalTargetInformation;
+import logisticspipes.interfaces.routing.ICraft;
+import logisticspipes.interfaces.routing.ICraftItems;
+import logisticspipes.interfaces.routing.IFilter;
+import logisticspipes.interfaces.routing.IProvide;
+import logisticspipes.interfaces.routing.IProvideFluids;
+import logisticspipes.interfaces.routing.IProvideItems;
+import logisticspipes.pipes.basic.CoreRoutedPipe;
+import logisticspipes.proxy.SimpleServiceLocator;
+import logisticspipes.request.resources.DictResource;
+import logisticspipes.request.resources.FluidResource;
+import logisticspipes.request.resources.IResource;
+import logisticspipes.request.resources.ItemResource;
+import logisticspipes.routing.ExitRoute;
+import logisticspipes.routing.FluidLogisticsPromise;
+import logisticspipes.routing.IRouter;
+import logisticspipes.routing.LogisticsExtraPromise;
+import logisticspipes.routing.LogisticsPromise;
+import logisticspipes.routing.PipeRoutingConnectionType;
+import logisticspipes.routing.ServerRouter;
+import logisticspipes.routing.order.IOrderInfoProvider.ResourceType;
+import logisticspipes.routing.order.LogisticsItemOrder;
+import logisticspipes.routing.order.LogisticsItemOrderManager;
+import logisticspipes.utils.FluidIdentifier;
+import logisticspipes.utils.item.ItemIdentifier;
+import logisticspipes.utils.item.ItemIdentifierIntMap;
+import logisticspipes.utils.item.ItemIdentifierStack;
+import logisticspipes.utils.tuples.Pair;
+
+/**
+ * Everything a request asks the pipes for, captured on the server thread: the items and fluids of the providers the
+ * request can ask (without the items already reserved by orders), the extras of running crafts, the templates of the
+ * crafters and the work queued at them. Large networks are captured over several ticks, see {@link Capture}.
+ * <p>
+ * A {@link RequestTree} built with a snapshot only reads the routing tables and the snapshot, so it can be built on
+ * another thread. It may only be fulfilled through {@link RequestTree#commitPlan(RequestLog)}, which checks the
+ * promises again. Pipes which are not captured, because they are not interested in any resource of the request,
+ * provide nothing.
+ */
+public final class RequestSnapshot {
+
+	private final IdentityHashMap<IProvide, Map<ItemIdentifier, Integer>> items = new IdentityHashMap<>();
+	private final IdentityHashMap<IProvide, Map<FluidIdentifier, Integer>> fluids = new IdentityHashMap<>();
+	private final IdentityHashMap<IProvide, Extras> extras = new IdentityHashMap<>();
+	private final IdentityHashMap<ICraft, List<ICraftingTemplate>> templates = new IdentityHashMap<>();
+	private final IdentityHashMap<ICraft, Integer> todo = new IdentityHashMap<>();
+
+	private RequestSnapshot() {}
+
+	/**
+	 * Starts capturing the pipes the request of the resource can ask: all pipes interested in the resource, which its
+	 * requester can request from, and for each crafter of the resource the pipes interested in its components. The
+	 * pipes are captured by {@link Capture#captureSome(long)}, which may be spread over several ticks.
+	 */
+	public static Capture startCapture(IResource resource) {
+		return new Capture(resource);
+	}
+
+	private void capture(CoreRoutedPipe pipe) {
+		if (pipe instanceof IProvideItems) {
+			captureItems((IProvideItems) pipe);
+		}
+		if (pipe instanceof IProvideFluids) {
+			fluids.put((IProvide) pipe, new HashMap<>(((IProvideFluids) pipe).getAvailableFluids()));
+		}
+		if (pipe instanceof ICraftItems) {
+			ICraftItems crafter = (ICraftItems) pipe;
+			List<ICraftingTemplate> pipeTemplates = new ArrayList<>();
+			List<ItemIdentifierStack> craftable = crafter.getCraftedItems();
+			if (craftable != null) {
+				for (ItemIdentifierStack stack : craftable) {
+					ICraftingTemplate template = crafter.addCrafting(new ItemResource(stack, null));
+					if (template != null) {
+						pipeTemplates.add(template);
+						todo.computeIfAbsent(template.getCrafter(), ICraft::getTodo);
+					}
+				}
+			}
+			templates.put(crafter, pipeTemplates);
+
+			LogisticsItemOrderManager manager = pipe.getItemOrderManager();
+			if (manager.hasExtras()) {
+				extras.put(crafter, new Extras(manager, RequestSnapshot.extrasOf(manager)));
+			}
+		}
+	}
+
+	private static ItemIdentifierIntMap extrasOf(LogisticsItemOrderManager manager) {
+		ItemIdentifierIntMap amounts = new ItemIdentifierIntMap();
+		for (LogisticsItemOrder order : manager) {
+			if (order.getType() == ResourceType.EXTRA) {
+				amounts.addTo(order.getResource().getItem(), order.getResource().stack.getStackSize());
+			}
+		}
+		return amounts;
+	}
+
+	/**
+	 * Captures all items of the provider, the filters of the routes to it are applied when they are requested.
+	 */
+	void captureItems(IProvideItems provider) {
+		Map<ItemIdentifier, Integer> available = new HashMap<>();
+		provider.getAllItems(available, Collections.emptyList());
+		if (!available.isEmpty()) {
+			items.put(provider, available);
+		}
+	}
+
+	/**
+	 * Adds the promises the provider would make for the node, answered from the snapshot.
+	 */
+	void canProvide(IProvide provider, RequestTreeNode tree, RequestTree root, List<IFilter> filters) {
+		IResource type = tree.getRequestType();
+		if (type instanceof ItemResource || type instanceof DictResource) {
+			Map<ItemIdentifier, Integer> available = items.get(provider);
+			if (available != null) {
+				if (type instanceof ItemResource) {
+					ItemIdentifier item = ((ItemResource) type).getItem();
+					if (!RequestSnapshot.isFiltered(item, filters)) {
+						provideItem((IProvideItems) provider, item, available.getOrDefault(item, 0), tree, root);
+					}
+				} else {
+					for (Map.Entry<ItemIdentifier, Integer> entry : available.entrySet()) {
+						if (type.matches(entry.getKey(), IResource.MatchSettings.NORMAL) && !RequestSnapshot.isFiltered(entry.getKey(), filters)) {
+							provideItem((IProvideItems) provider, entry.getKey(), entry.getValue(), tree, root);
+						}
+					}
+				}
+			}
+			Extras crafterExtras = extras.get(provider);
+			if (crafterExtras != null) {
+				provideExtras((ICraftItems) provider, crafterExtras, tree, root, filters);
+			}
+		} else if (type instanceof FluidResource) {
+			Map<FluidIdentifier, Integer> available = fluids.get(provider);
+			if (available != null && !tree.isDone()) {
+				FluidIdentifier fluid = ((FluidResource) type).getFluid();
+				FluidLogisticsPromise promise = new FluidLogisticsPromise();
+				promise.liquid = fluid;
+				promise.amount = Math.min(tree.getMissingAmount(), available.getOrDefault(fluid, 0) - root.getAllPromissesFor(provider, fluid.getItemIdentifier()));
+				promise.sender = (IProvideFluids) provider;
+				promise.type = ResourceType.PROVIDER;
+				if (promise.amount > 0) {
+					tree.addPromise(promise);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return true, if one of the filters on the route to the provider blocks providing the item
+	 */
+	private static boolean isFiltered(ItemIdentifier item, List<IFilter> filters) {
+		for (IFilter filter : filters) {
+			if (filter.isBlocked() == filter.isFilteredItem(item.getUndamaged()) || filter.blockProvider()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void provideItem(IProvideItems provider, ItemIdentifier item, int available, RequestTreeNode tree, RequestTree root) {
+		int amount = Math.min(available - root.getAllPromissesFor(provider, item), tree.getMissingAmount());
+		if (amount > 0) {
+			tree.addPromise(new LogisticsPromise(item, amount, provider, ResourceType.PROVIDER));
+		}
+	}
+
+	private static void provideExtras(ICraftItems crafter, Extras crafterExtras, RequestTreeNode tree, RequestTree root, List<IFilter> filters) {
+		if (tree.hasBeenQueried(crafterExtras.manager)) {
+			return;
+		}
+		IResource type = tree.getRequestType();
+		for (IFilter filter : filters) {
+			if (filter.isBlocked() == filter.isFilteredItem(type) || filter.blockProvider()) {
+				return;
+			}
+		}
+		for (int i = 0; i < crafterExtras.amounts.size(); i++) {
+			ItemIdentifier item = crafterExtras.amounts.keyAt(i);
+			if (!type.matches(item, IResource.MatchSettings.NORMAL)) {
+				continue;
+			}
+			int remaining = crafterExtras.amounts.valueAt(i) - root.getAllPromissesFor(crafter, item);
+			if (remaining > 0 && !tree.isDone()) {
+				tree.addPromise(new LogisticsExtraPromise(item, Math.min(remaining, tree.getMissingAmount()), crafter, true));
+			}
+		}
+		tree.setQueried(crafterExtras.manager);
+	}
+
+	/**
+	 * Checks the promises of a planned request against the current state of the pipes they were made from: the pipes
+	 * still exist, providers still have the promised items and fluids, crafters still have the promised extras and
+	 * can still craft the promised items. Must be called on the server thread.
+	 *
+	 * @return false, if any of the promises cannot be kept anymore
+	 */
+	boolean isStillValid(List<IPromise> promises) {
+		IdentityHashMap<IProvide, ItemIdentifierIntMap> promisedItems = new IdentityHashMap<>();
+		IdentityHashMap<IProvide, ItemIdentifierIntMap> promisedExtras = new IdentityHashMap<>();
+		IdentityHashMap<IProvide, Map<FluidIdentifier, Integer>> promisedFluids = new IdentityHashMap<>();
+		for (IPromise promise : promises) {
+			IProvide provider = promise.getProvider();
+			if (RequestSnapshot.isGone(provider)) {
+				return false;
+			}
+			if (promise instanceof IExtraPromise) {
+				if (((IExtraPromise) promise).isProvided()) {
+					promisedExtras.computeIfAbsent(provider, unused -> new ItemIdentifierIntMap()).addTo(promise.getItemType(), promise.getAmount());
+				}
+			} else if (promise.getType() == ResourceType.CRAFTING) {
+				if (!RequestSnapshot.canStillCraft(provider, promise.getItemType())) {
+					return false;
+				}
+			} else if (promise instanceof FluidLogisticsPromise) {
+				promisedFluids.computeIfAbsent(provider, unused -> new HashMap<>()).merge(((FluidLogisticsPromise) promise).liquid, promise.getAmount(), Integer::sum);
+			} else {
+				promisedItems.computeIfAbsent(provider, unused -> new ItemIdentifierIntMap()).addTo(promise.getItemType(), promise.getAmount());
+			}
+		}
+		for (Map.Entry<IProvide, ItemIdentifierIntMap> entry : promisedItems.entrySet()) {
+			Map<ItemIdentifier, Integer> available = new HashMap<>();
+			((IProvideItems) entry.getKey()).getAllItems(available, Collections.emptyList());
+			if (!RequestSnapshot.covers(available::get, entry.getValue())) {
+				return false;
+			}
+		}
+		for (Map.Entry<IProvide, ItemIdentifierIntMap> entry : promisedExtras.entrySet()) {
+			ItemIdentifierIntMap available = RequestSnapshot.extrasOf(((CoreRoutedPipe) entry.getKey()).getItemOrderManager());
+			if (!RequestSnapshot.covers(available::get, entry.getValue())) {
+				return false;
+			}
+		}
+		for (Map.Entry<IProvide, Map<FluidIdentifier, Integer>> entry : promisedFluids.entrySet()) {
+			Map<FluidIdentifier, Integer> available = ((IProvideFluids) entry.getKey()).getAvailableFluids();
+			for (Map.Entry<FluidIdentifier, Integer> fluid : entry.getValue().entrySet()) {
+				if (available.getOrDefault(fluid.getKey(), 0) < fluid.getValue()) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static boolean isGone(IProvide provider) {
+		if (provider instanceof CoreRoutedPipe) {
+			CoreRoutedPipe pipe = (CoreRoutedPipe) provider;
+			return pipe.container == null || pipe.container.isInvalid();
+		}
+		return false;
+	}
+
+	private static boolean canStillCraft(IProvide provider, ItemIdentifier item) {
+		if (!(provider instanceof ICraftItems)) {
+			return true; // nothing to check again
+		}
+		List<ItemIdentifierStack> craftable = ((ICraftItems) provider).getCraftedItems();
+		return craftable != null && craftable.stream().anyMatch(stack -> stack.getItem().equals(item));
+	}
+
+	/**
+	 * @param available the available amount of an item or null
+	 */
+	private static boolean covers(Function<ItemIdentifier, Integer> available, ItemIdentifierIntMap promised) {
+		for (int i = 0; i < promised.size(); i++) {
+			Integer amount = available.apply(promised.keyAt(i));
+			if ((amount == null ? 0 : amount) < promised.valueAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the captured template of the crafter for the resource, or null
+	 */
+	ICraftingTemplate addCrafting(ICraft crafter, IResource type) {
+		List<ICraftingTemplate> crafterTemplates = templates.get(crafter);
+		if (crafterTemplates == null) {
+			return null;
+		}
+		for (ICraftingTemplate template : crafterTemplates) {
+			if (template.canCraft(type)) {
+				return template;
+			}
+		}
+		return null;
+	}
+
+	int getTodo(ICraft crafter) {
+		return todo.getOrDefault(crafter, 0);
+	}
+
+	/**
+	 * A capture in progress. Routes are read when a resource is looked at, pipes are only captured if they are still
+	 * valid then. Must only be used on the server thread.
+	 */
+	public static final class Capture {
+
+		private final RequestSnapshot snapshot = new RequestSnapshot();
+		private final Set<CoreRoutedPipe> captured = Collections.newSetFromMap(new IdentityHashMap<>());
+		/**
+		 * The requesters of each resource type, which were already looked at
+		 */
+		private final Map<Object, BitSet> requested = new HashMap<>();
+		private final ArrayDeque<IResource> resources = new ArrayDeque<>();
+		private final ArrayDeque<Pair<CoreRoutedPipe, IResource>> pipes = new ArrayDeque<>();
+
+		private Capture(IResource resource) {
+			addResource(resource);
+		}
+
+		/**
+		 * Captures pipes until all are captured or the deadline passed. At least one pipe is captured per call.
+		 *
+		 * @param deadline in {@link System#nanoTime()}
+		 * @return true, if the snapshot is complete
+		 */
+		public boolean captureSome(long deadline) {
+			do {
+				if (!pipes.isEmpty()) {
+					Pair<CoreRoutedPipe, IResource> next = pipes.poll();
+					CoreRoutedPipe pipe = next.getValue1();
+					if (pipe.container == null || pipe.container.isInvalid()) {
+						continue;
+					}
+					if (captured.add(pipe)) {
+						snapshot.capture(pipe);
+					}
+					if (pipe instanceof ICraft) {
+						ICraftingTemplate template = snapshot.addCrafting((ICraft) pipe, next.getValue2());
+						if (template != null) {
+							for (Pair<IResource, IAdditionalTargetInformation> component : template.getComponents(1)) {
+								addResource(component.getValue1());
+							}
+						}
+					}
+				} else if (!resources.isEmpty()) {
+					findPipes(resources.poll());
+				} else {
+					return true;
+				}
+			} while (System.nanoTime() < deadline);
+			return pipes.isEmpty() && resources.isEmpty();
+		}
+
+		private void addResource(IResource resource) {
+			Object type = RequestTree.getResourceType(resource);
+			if (type == null) {
+				return;
+			}
+			BitSet requesters = requested.computeIfAbsent(type, unused -> new BitSet());
+			int requester = resource.getRouter().getSimpleID();
+			if (!requesters.get(requester)) {
+				requesters.set(requester);
+				resources.add(resource);
+			}
+		}
+
+		/**
+		 * Queues the pipes the request tree would ask for the resource: the routers interested in it, which the
+		 * requester of the resource can request from.
+		 */
+		private void findPipes(IResource resource) {
+			IRouter requester = resource.getRouter();
+			BitSet interested = ServerRouter.getRoutersInterestedIn(resource);
+			for (int i = interested.nextSetBit(0); i >= 0; i = interested.nextSetBit(i + 1)) {
+				IRouter router = SimpleServiceLocator.routerManager.getServerRouter(i);
+				if (router == null || router.isCacheInvalid()) {
+					continue;
+				}
+				List<ExitRoute> routes = requester.getDistanceTo(router);
+				if (routes == null || routes.stream().noneMatch(route -> route.containsFlag(PipeRoutingConnectionType.canRequestFrom))) {
+					continue;
+				}
+				CoreRoutedPipe pipe = router.getPipe();
+				if (pipe != null) {
+					pipes.add(new Pair<>(pipe, resource));
+				}
+			}
+		}
+
+		/**
+		 * @return the snapshot, only complete after {@link #captureSome(long)} returned true
+		 */
+		public RequestSnapshot getSnapshot() {
+			return snapshot;
+		}
+	}
+
+	private static final class Extras {
+
+		private final LogisticsItemOrderManager manager;
+		private final ItemIdentifierIntMap amounts;
+
+		private Extras(LogisticsItemOrderManager manager, ItemIdentifierIntMap amounts) {
+			this.manager = manager;
+			this.amounts = amounts;
+		}
+	}
+}
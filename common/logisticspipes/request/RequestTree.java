@@ -1,30 +1,35 @@
 package logisticspipes.request;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 import net.minecraft.init.Blocks;
 import net.minecraft.item.Item;
 
 import logisticspipes.interfaces.routing.IAdditionalTargetInformation;
+import logisticspipes.interfaces.routing.IFilter;
 import logisticspipes.interfaces.routing.IProvide;
 import logisticspipes.interfaces.routing.IRequestFluid;
 import logisticspipes.interfaces.routing.IRequestItems;
 import logisticspipes.pipes.basic.CoreRoutedPipe;
+import logisticspipes.request.resources.DictResource;
 import logisticspipes.request.resources.FluidResource;
 import logisticspipes.request.resources.IResource;
 import logisticspipes.request.resources.ItemResource;
 import logisticspipes.routing.ExitRoute;
 import logisticspipes.routing.order.LinkedLogisticsOrderList;
-import logisticspipes.utils.FinalPair;
 import logisticspipes.utils.FluidIdentifier;
 import logisticspipes.utils.IHavePriority;
 import logisticspipes.utils.item.ItemIdentifier;
+import logisticspipes.utils.item.ItemIdentifierIntMap;
 import logisticspipes.utils.item.ItemIdentifierStack;
+import logisticspipes.utils.tuples.Pair;
 
 public class RequestTree extends RequestTreeNode {
 
@@ -38,26 +43,73 @@ public class RequestTree extends RequestTreeNode {
 	}
 
 	public static final EnumSet<ActiveRequestType> defaultRequestFlags = EnumSet.of(ActiveRequestType.Provide, ActiveRequestType.Craft);
-	private HashMap<FinalPair<IProvide, ItemIdentifier>, Integer> _promisetotals;
+	private HashMap<IProvide, ItemIdentifierIntMap> _promisetotals;
+	// set by the constructor of RequestTreeNode, must not have an initializer
+	RequestSnapshot snapshot;
+	/*
+	 * Providers and crafters found for a resource and requesting router, including the filters on the way. The
+	 * network does not change while the tree is built, so every node asking for the same resource gets the same result.
+	 * Created lazily, the root already asks for providers in the constructor of RequestTreeNode.
+	 */
+	private HashMap<DiscoveryKey, List<Pair<IProvide, List<IFilter>>>> _providers;
+	private HashMap<DiscoveryKey, List<Pair<ICraftingTemplate, List<IFilter>>>> _crafters;
 
 	public RequestTree(IResource requestType, RequestTree parent, EnumSet<ActiveRequestType> requestFlags, IAdditionalTargetInformation info) {
 		super(requestType, parent, requestFlags, info);
 	}
 
-	private int getExistingPromisesFor(FinalPair<IProvide, ItemIdentifier> key) {
+	private RequestTree(IResource requestType, EnumSet<ActiveRequestType> requestFlags, RequestSnapshot snapshot) {
+		super(requestType, null, requestFlags, null, snapshot);
+	}
+
+	public int getAllPromissesFor(IProvide provider, ItemIdentifier item) {
 		if (_promisetotals == null) {
-			_promisetotals = new HashMap<>();
+			return 0;
 		}
-		Integer n = _promisetotals.get(key);
-		if (n == null) {
+		ItemIdentifierIntMap totals = _promisetotals.get(provider);
+		if (totals == null) {
 			return 0;
 		}
-		return n;
+		return totals.get(item);
 	}
 
-	public int getAllPromissesFor(IProvide provider, ItemIdentifier item) {
-		FinalPair<IProvide, ItemIdentifier> key = new FinalPair<>(provider, item);
-		return getExistingPromisesFor(key);
+	/**
+	 * @return the providers of the resource, only looked up once per request for every resource and router
+	 */
+	List<Pair<IProvide, List<IFilter>>> getProvidersFor(IResource resource, Supplier<List<Pair<IProvide, List<IFilter>>>> discovery) {
+		if (_providers == null) {
+			_providers = new HashMap<>();
+		}
+		return RequestTree.getDiscovered(_providers, resource, discovery);
+	}
+
+	/**
+	 * @return the crafters of the resource, only looked up once per request for every resource and router
+	 */
+	List<Pair<ICraftingTemplate, List<IFilter>>> getCraftersFor(IResource resource, Supplier<List<Pair<ICraftingTemplate, List<IFilter>>>> discovery) {
+		if (_crafters == null) {
+			_crafters = new HashMap<>();
+		}
+		return RequestTree.getDiscovered(_crafters, resource, discovery);
+	}
+
+	private static <T> List<T> getDiscovered(HashMap<DiscoveryKey, List<T>> memo, IResource resource, Supplier<List<T>> discovery) {
+		Object type = RequestTree.getResourceType(resource);
+		if (type == null) {
+			return discovery.get();
+		}
+		return memo.computeIfAbsent(new DiscoveryKey(resource.getRouter().getSimpleID(), type), key -> discovery.get());
+	}
+
+	static Object getResourceType(IResource resource) {
+		if (resource instanceof ItemResource) {
+			return ((ItemResource) resource).getItem();
+		} else if (resource instanceof DictResource) {
+			return ((DictResource) resource).getIdentifier();
+		} else if (resource instanceof FluidResource) {
+			return ((FluidResource) resource).getFluid();
+		}
+		return null;
 	}
 
 	public LinkedList<IExtraPromise> getExtrasFor(IResource item) {
@@ -88,20 +140,44 @@ public class RequestTree extends RequestTreeNode {
 	}
 
 	protected void promiseAdded(IPromise promise) {
-		FinalPair<IProvide, ItemIdentifier> key = new FinalPair<>(promise.getProvider(), promise.getItemType());
 		if (_promisetotals == null) {
 			_promisetotals = new HashMap<>();
 		}
-		_promisetotals.put(key, getExistingPromisesFor(key) + promise.getAmount());
+		_promisetotals.computeIfAbsent(promise.getProvider(), provider -> new ItemIdentifierIntMap()).addTo(promise.getItemType(), promise.getAmount());
 	}
 
 	protected void promiseRemoved(IPromise promise) {
-		FinalPair<IProvide, ItemIdentifier> key = new FinalPair<>(promise.getProvider(), promise.getItemType());
-		int r = getExistingPromisesFor(key) - promise.getAmount();
-		if (r == 0) {
-			_promisetotals.remove(key);
-		} else {
-			_promisetotals.put(key, r);
+		if (_promisetotals == null) {
+			_promisetotals = new HashMap<>();
+		}
+		ItemIdentifierIntMap totals = _promisetotals.computeIfAbsent(promise.getProvider(), provider -> new ItemIdentifierIntMap());
+		if (totals.addTo(promise.getItemType(), -promise.getAmount()) == 0) {
+			totals.remove(promise.getItemType());
+		}
+	}
+
+	static final class DiscoveryKey {
+
+		private final int routerId;
+		private final Object type;
+
+		private DiscoveryKey(int routerId, Object type) {
+			this.routerId = routerId;
+			this.type = type;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * routerId + type.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof DiscoveryKey)) {
+				return false;
+			}
+			DiscoveryKey other = (DiscoveryKey) obj;
+			return routerId == other.routerId && type.getClass() == other.type.getClass() && type.equals(other.type);
 		}
 	}
 
@@ -211,6 +287,55 @@ public class RequestTree extends RequestTreeNode {
 		return RequestTree.request(item, requester, log, true, true, false, true, RequestTree.defaultRequestFlags, null);
 	}
 
+	/**
+	 * Simulates the request against a snapshot instead of the pipes, so it can run on any thread.
+	 */
+	public static int simulate(ItemIdentifierStack item, IRequestItems requester, RequestLog log, RequestSnapshot snapshot) {
+		ItemResource req = new ItemResource(item, requester);
+		RequestTree tree = new RequestTree(req, RequestTree.defaultRequestFlags, snapshot);
+		if (log != null) {
+			if (!tree.isDone()) {
+				tree.recurseFailedRequestTree();
+			}
+			tree.sendUsedMessage(log);
+		}
+		return tree.getPromiseAmount();
+	}
+
+	/**
+	 * Plans the request from a snapshot, so it can run on any thread. Nothing is ordered before the plan is committed
+	 * with {@link #commitPlan(RequestLog)}.
+	 */
+	public static RequestTree plan(ItemIdentifierStack item, IRequestItems requester, RequestSnapshot snapshot) {
+		return new RequestTree(new ItemResource(item, requester), RequestTree.defaultRequestFlags, snapshot);
+	}
+
+	/**
+	 * Orders everything of a planned request at once, if all promises of the plan can still be kept. A plan which cannot
+	 * be fulfilled completely only logs the missing items. Must be called on the server thread.
+	 *
+	 * @return false, if the plan is outdated and the request has to be done again
+	 */
+	public boolean commitPlan(RequestLog log) {
+		if (!isDone()) {
+			if (log != null) {
+				recurseFailedRequestTree();
+				sendMissingMessage(log);
+			}
+			return true;
+		}
+		List<IPromise> planned = new ArrayList<>();
+		collectPromises(planned);
+		if (!snapshot.isStillValid(planned)) {
+			return false;
+		}
+		LinkedLogisticsOrderList list = fullFillAll();
+		if (log != null) {
+			log.handleSucessfullRequestOf(getRequestType().copyForDisplayWith(getRequestType().getRequestedAmount()), list);
+		}
+		return true;
+	}
+
 	public static int requestFluidPartial(FluidIdentifier liquid, int amount, IRequestFluid pipe, RequestLog log) {
 		return RequestTree.requestFluid(liquid, amount, pipe, log, true);
 	}
@@ -27,6 +27,7 @@ import logisticspipes.proxy.SimpleServiceLocator;
 import logisticspipes.request.RequestTree.ActiveRequestType;
 import logisticspipes.request.RequestTree.workWeightedSorter;
 import logisticspipes.request.resources.IResource;
+import logisticspipes.routing.CraftingIndex;
 import logisticspipes.routing.ExitRoute;
 import logisticspipes.routing.IRouter;
 import logisticspipes.routing.PipeRoutingConnectionType;
@@ -54,10 +55,21 @@ public class RequestTreeNode {
 	private int promiseAmount = 0;
 
 	protected RequestTreeNode(IResource requestType, RequestTreeNode parentNode, EnumSet<ActiveRequestType> requestFlags, IAdditionalTargetInformation info) {
-		this(null, requestType, parentNode, requestFlags, info);
+		this(null, requestType, parentNode, requestFlags, info, null);
+	}
+
+	/**
+	 * @param snapshot only used for the root, the tree is built from the snapshot instead of asking the pipes
+	 */
+	protected RequestTreeNode(IResource requestType, RequestTreeNode parentNode, EnumSet<ActiveRequestType> requestFlags, IAdditionalTargetInformation info, RequestSnapshot snapshot) {
+		this(null, requestType, parentNode, requestFlags, info, snapshot);
 	}
 
 	private RequestTreeNode(ICraftingTemplate template, IResource requestType, RequestTreeNode parentNode, EnumSet<ActiveRequestType> requestFlags, IAdditionalTargetInformation info) {
+		this(template, requestType, parentNode, requestFlags, info, null);
+	}
+
+	private RequestTreeNode(ICraftingTemplate template, IResource requestType, RequestTreeNode parentNode, EnumSet<ActiveRequestType> requestFlags, IAdditionalTargetInformation info, RequestSnapshot snapshot) {
 		this.info = info;
 		this.parentNode = parentNode;
 		this.requestType = requestType;
@@ -66,6 +78,7 @@ public class RequestTreeNode {
 			root = parentNode.root;
 		} else {
 			root = (RequestTree) this;
+			root.snapshot = snapshot;
 		}
 		if (template != null) {
 			declareCrafterUsed(template);
@@ -117,14 +130,35 @@ public class RequestTreeNode {
 		return providers;
 	}
 
-	private static List<Pair<ICraftingTemplate, List<IFilter>>> getCrafters(IResource iRequestType, List<ExitRoute> validDestinations) {
+	private static List<Pair<ICraftingTemplate, List<IFilter>>> getCrafters(IResource iRequestType, RequestSnapshot snapshot) {
+
+		// get all the crafters interested in the type, the cached set must not be modified
+		BitSet routersIndex = CraftingIndex.getCrafters();
+		routersIndex.and(ServerRouter.getRoutersInterestedIn(iRequestType));
+		List<ExitRoute> validDestinations = new ArrayList<>(); // get the routing table
+		for (int i = routersIndex.nextSetBit(0); i >= 0; i = routersIndex.nextSetBit(i + 1)) {
+			IRouter r = SimpleServiceLocator.routerManager.getServerRouter(i);
+
+			if (r.isCacheInvalid()) {
+				continue; //Skip Routers without a valid pipe
+			}
+
+			List<ExitRoute> e = iRequestType.getRouter().getDistanceTo(r);
+			if (e != null) {
+				validDestinations.addAll(e);
+			}
+		}
+		workWeightedSorter wSorter = new workWeightedSorter(0); // distance doesn't matter, because ingredients have to be delivered to the crafter, and we can't tell how long that will take.
+		Collections.sort(validDestinations, wSorter);
+
+
 		List<Pair<ICraftingTemplate, List<IFilter>>> crafters = new ArrayList<>(validDestinations.size());
 		outer:
 		for (ExitRoute r : validDestinations) {
 			CoreRoutedPipe pipe = r.destination.getPipe();
 			if (r.containsFlag(PipeRoutingConnectionType.canRequestFrom)) {
 				if (pipe instanceof ICraft) {
-					ICraftingTemplate craftable = ((ICraft) pipe).addCrafting(iRequestType);
+					ICraftingTemplate craftable = snapshot != null ? snapshot.addCrafting((ICraft) pipe, iRequestType) : ((ICraft) pipe).addCrafting(iRequestType);
 					if (craftable != null) {
 						for (IFilter filter : r.filters) {
 							if (filter.isBlocked() == filter.isFilteredItem(craftable.getResultItem()) || filter.blockCrafting()) {
@@ -228,6 +262,11 @@ public class RequestTreeNode {
 		subRequests.forEach(RequestTreeNode::removeSubPromisses);
 	}
 
+	protected void collectPromises(List<IPromise> into) {
+		into.addAll(promises);
+		subRequests.forEach(node -> node.collectPromises(into));
+	}
+
 	protected void checkForExtras(IResource item, HashMap<IProvide, List<IExtraPromise>> extraMap) {
 		for (IExtraPromise extra : extrapromises) {
 			if (item.matches(extra.getItemType(), IResource.MatchSettings.NORMAL)) {
@@ -344,7 +383,9 @@ public class RequestTreeNode {
 		if (thisPipe == null) {
 			return false;
 		}
-		for (Pair<IProvide, List<IFilter>> provider : RequestTreeNode.getProviders(requestType.getRouter(), getRequestType())) {
+		List<Pair<IProvide, List<IFilter>>> providers = root.getProvidersFor(getRequestType(),
+				() -> RequestTreeNode.getProviders(requestType.getRouter(), getRequestType()));
+		for (Pair<IProvide, List<IFilter>> provider : providers) {
 			if (isDone()) {
 				break;
 			}
@@ -352,7 +393,11 @@ public class RequestTreeNode {
 				continue;
 			}
 			if (!thisPipe.isOnSameContainer(provider.getValue1().getRouter().getPipe())) {
-				provider.getValue1().canProvide(this, root, provider.getValue2());
+				if (root.snapshot != null) {
+					root.snapshot.canProvide(provider.getValue1(), this, root, provider.getValue2());
+				} else {
+					provider.getValue1().canProvide(this, root, provider.getValue2());
+				}
 			}
 		}
 		return isDone();
@@ -392,25 +437,8 @@ public class RequestTreeNode {
 
 	private boolean checkCrafting() {
 
-		// get all the routers
-		BitSet routersIndex = ServerRouter.getRoutersInterestedIn(getRequestType());
-		List<ExitRoute> validSources = new ArrayList<>(); // get the routing table
-		for (int i = routersIndex.nextSetBit(0); i >= 0; i = routersIndex.nextSetBit(i + 1)) {
-			IRouter r = SimpleServiceLocator.routerManager.getServerRouter(i);
-
-			if (r.isCacheInvalid()) {
-				continue; //Skip Routers without a valid pipe
-			}
-
-			List<ExitRoute> e = getRequestType().getRouter().getDistanceTo(r);
-			if (e != null) {
-				validSources.addAll(e);
-			}
-		}
-		workWeightedSorter wSorter = new workWeightedSorter(0); // distance doesn't matter, because ingredients have to be delivered to the crafter, and we can't tell how long that will take.
-		Collections.sort(validSources, wSorter);
-
-		List<Pair<ICraftingTemplate, List<IFilter>>> allCraftersForItem = RequestTreeNode.getCrafters(getRequestType(), validSources);
+		List<Pair<ICraftingTemplate, List<IFilter>>> allCraftersForItem = root.getCraftersFor(getRequestType(),
+				() -> RequestTreeNode.getCrafters(getRequestType(), root.snapshot));
 
 		// if you have a crafter which can make the top treeNode.getStack().getItem()
 		Iterator<Pair<ICraftingTemplate, List<IFilter>>> iterAllCrafters = allCraftersForItem.iterator();
@@ -639,7 +667,7 @@ public class RequestTreeNode {
 		CraftingSorterNode(Pair<ICraftingTemplate, List<IFilter>> crafter, int maxCount, RequestTree tree, RequestTreeNode treeNode) {
 			this.crafter = crafter;
 			this.treeNode = treeNode;
-			originalToDo = crafter.getValue1().getCrafter().getTodo();
+			originalToDo = tree.snapshot != null ? tree.snapshot.getTodo(crafter.getValue1().getCrafter()) : crafter.getValue1().getCrafter().getTodo();
 			stacksOfWorkRequested = 0;
 			setSize = crafter.getValue1().getResultStackSize();
 			maxWorkSetsAvailable = ((treeNode.getMissingAmount()) + setSize - 1) / setSize;
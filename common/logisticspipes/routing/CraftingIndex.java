@@ -0,0 +1,91 @@
+package logisticspipes.routing;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import javax.annotation.Nonnull;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+import logisticspipes.interfaces.routing.ICraftItems;
+import logisticspipes.pipes.basic.CoreRoutedPipe;
+import logisticspipes.utils.item.ItemIdentifier;
+import logisticspipes.utils.item.ItemIdentifierStack;
+
+/**
+ * Network wide index of all crafters and the items they craft, so finding crafters does not have to ask every reachable
+ * pipe. Which crafters a router can actually use is decided by its route table, the index does not know about
+ * connections.
+ * <p>
+ * Updated together with the interests of a router, see {@link ServerRouter#updateInterests()}: every
+ * {@link ServerRouter#REFRESH_TIME} ticks and in the next tick after the modules or upgrades of the pipe changed.
+ */
+public final class CraftingIndex {
+
+	// simple ids of all routers, which craft anything
+	private static final BitSet crafters = new BitSet();
+	// simple id -> the distinct items crafted there, never modified once stored
+	private static final Int2ObjectOpenHashMap<List<ItemIdentifier>> craftedByRouter = new Int2ObjectOpenHashMap<>();
+
+	private CraftingIndex() {}
+
+	/**
+	 * Reads the crafted items of the pipe again. Must be called on the server thread.
+	 */
+	static void update(int simpleID, @Nonnull CoreRoutedPipe pipe) {
+		List<ItemIdentifier> crafted = Collections.emptyList();
+		if (pipe instanceof ICraftItems) {
+			final List<ItemIdentifierStack> stacks = ((ICraftItems) pipe).getCraftedItems();
+			if (stacks != null && !stacks.isEmpty()) {
+				final LinkedHashSet<ItemIdentifier> items = new LinkedHashSet<>();
+				for (ItemIdentifierStack stack : stacks) {
+					if (stack != null) {
+						items.add(stack.getItem());
+					}
+				}
+				crafted = Collections.unmodifiableList(new ArrayList<>(items));
+			}
+		}
+		synchronized (CraftingIndex.class) {
+			final List<ItemIdentifier> old = CraftingIndex.craftedByRouter.getOrDefault(simpleID, Collections.emptyList());
+			if (old.equals(crafted)) {
+				return;
+			}
+			if (crafted.isEmpty()) {
+				CraftingIndex.craftedByRouter.remove(simpleID);
+				CraftingIndex.crafters.clear(simpleID);
+			} else {
+				CraftingIndex.craftedByRouter.put(simpleID, crafted);
+				CraftingIndex.crafters.set(simpleID);
+			}
+		}
+	}
+
+	static synchronized void remove(int simpleID) {
+		CraftingIndex.craftedByRouter.remove(simpleID);
+		CraftingIndex.crafters.clear(simpleID);
+	}
+
+	static synchronized void clear() {
+		CraftingIndex.crafters.clear();
+		CraftingIndex.craftedByRouter.clear();
+	}
+
+	/**
+	 * @return a copy of the simple ids of all routers, which craft anything
+	 */
+	@Nonnull
+	public static synchronized BitSet getCrafters() {
+		return (BitSet) CraftingIndex.crafters.clone();
+	}
+
+	/**
+	 * @return the distinct items crafted by the router, in the order of {@link ICraftItems#getCraftedItems()}
+	 */
+	@Nonnull
+	public static synchronized List<ItemIdentifier> getCraftedItems(int simpleID) {
+		return CraftingIndex.craftedByRouter.getOrDefault(simpleID, Collections.emptyList());
+	}
+}
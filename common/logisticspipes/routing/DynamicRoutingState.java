@@ -0,0 +1,234 @@
+package logisticspipes.routing;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.minecraft.util.EnumFacing;
+
+import lombok.Getter;
+
+import logisticspipes.api.ILogisticsPowerProvider;
+import logisticspipes.interfaces.ISubSystemPowerProvider;
+import logisticspipes.interfaces.routing.IFilter;
+import logisticspipes.utils.tuples.Pair;
+
+/**
+ * The shortest path tree a {@link ServerRouter} route table was built from, together with the route table itself.
+ * <p>
+ * For every router reached by the Dijkstra the first accepted route (distance, full connection flags, block distance,
+ * first exit and predecessor) and the closed connection flags are remembered. This allows deciding which changes from
+ * the {@link LSAChangeJournal} cannot affect the route table and adding routes to new leaf routers without running the
+ * whole Dijkstra again. Once published a state is never modified, repairs work on a {@link #copy(long, int)}.
+ */
+class DynamicRoutingState {
+
+	private static final byte REACHED = 1;
+	/**
+	 * Router was accepted with filters on its route, with more than one set of flags or without a known exit
+	 */
+	private static final byte COMPLEX = 2;
+
+	@Getter
+	private final long sequence;
+	@Getter
+	private final Map<ServerRouter, ExitRoute> adjacentRouter;
+	@Getter
+	private PackedRouteTable routeTable;
+	@Getter
+	private List<Pair<ILogisticsPowerProvider, List<IFilter>>> powerTable;
+	@Getter
+	private List<Pair<ISubSystemPowerProvider, List<IFilter>>> subSystemPowerTable;
+
+	private boolean incomplete = false;
+	private byte[] state;
+	private byte[] pathFlags;
+	private byte[] closedFlags;
+	private byte[] exit;
+	private int[] parent;
+	private int[] blockDistance;
+	private double[] distance;
+	private double[] closeDistance;
+
+	DynamicRoutingState(long sequence, Map<ServerRouter, ExitRoute> adjacentRouter, int size) {
+		this.sequence = sequence;
+		this.adjacentRouter = adjacentRouter;
+		state = new byte[size];
+		pathFlags = new byte[size];
+		closedFlags = new byte[size];
+		exit = new byte[size];
+		parent = new int[size];
+		blockDistance = new int[size];
+		distance = new double[size];
+		closeDistance = new double[size];
+	}
+
+	private DynamicRoutingState(long sequence, DynamicRoutingState other, int size) {
+		this.sequence = sequence;
+		adjacentRouter = other.adjacentRouter;
+		routeTable = other.routeTable;
+		powerTable = other.powerTable;
+		subSystemPowerTable = other.subSystemPowerTable;
+		state = Arrays.copyOf(other.state, size);
+		pathFlags = Arrays.copyOf(other.pathFlags, size);
+		closedFlags = Arrays.copyOf(other.closedFlags, size);
+		exit = Arrays.copyOf(other.exit, size);
+		parent = Arrays.copyOf(other.parent, size);
+		blockDistance = Arrays.copyOf(other.blockDistance, size);
+		distance = Arrays.copyOf(other.distance, size);
+		closeDistance = Arrays.copyOf(other.closeDistance, size);
+	}
+
+	private DynamicRoutingState(long sequence, DynamicRoutingState other) {
+		this.sequence = sequence;
+		adjacentRouter = other.adjacentRouter;
+		routeTable = other.routeTable;
+		powerTable = other.powerTable;
+		subSystemPowerTable = other.subSystemPowerTable;
+		state = other.state;
+		pathFlags = other.pathFlags;
+		closedFlags = other.closedFlags;
+		exit = other.exit;
+		parent = other.parent;
+		blockDistance = other.blockDistance;
+		distance = other.distance;
+		closeDistance = other.closeDistance;
+	}
+
+	static byte mask(Set<PipeRoutingConnectionType> flags) {
+		byte result = 0;
+		for (PipeRoutingConnectionType type : flags) {
+			result |= 1 << type.ordinal();
+		}
+		return result;
+	}
+
+	static EnumSet<PipeRoutingConnectionType> flags(byte mask) {
+		EnumSet<PipeRoutingConnectionType> result = EnumSet.noneOf(PipeRoutingConnectionType.class);
+		for (PipeRoutingConnectionType type : PipeRoutingConnectionType.values) {
+			if ((mask & (1 << type.ordinal())) != 0) {
+				result.add(type);
+			}
+		}
+		return result;
+	}
+
+	static boolean hasFlag(byte mask, PipeRoutingConnectionType type) {
+		return (mask & (1 << type.ordinal())) != 0;
+	}
+
+	/**
+	 * Same distance an {@link ExitRoute} with the given flags would have for the given metric.
+	 */
+	static double distanceFor(byte flags, double metric) {
+		return hasFlag(flags, PipeRoutingConnectionType.canRouteTo) ? metric : Integer.MAX_VALUE;
+	}
+
+	/**
+	 * @return a state with the same shortest path tree, which is valid up to the given journal sequence
+	 */
+	DynamicRoutingState withSequence(long newSequence) {
+		return new DynamicRoutingState(newSequence, this);
+	}
+
+	/**
+	 * @return a modifiable copy of this state, which is valid up to the given journal sequence
+	 */
+	DynamicRoutingState copy(long newSequence, int size) {
+		return new DynamicRoutingState(newSequence, this, Math.max(size, state.length));
+	}
+
+	void setTables(PackedRouteTable routeTable, List<Pair<ILogisticsPowerProvider, List<IFilter>>> powerTable, List<Pair<ISubSystemPowerProvider, List<IFilter>>> subSystemPowerTable) {
+		this.routeTable = routeTable;
+		this.powerTable = powerTable;
+		this.subSystemPowerTable = subSystemPowerTable;
+	}
+
+	/**
+	 * A router could not be evaluated (pipe not loaded, unknown id), so nothing can be said about changes.
+	 */
+	void markIncomplete() {
+		incomplete = true;
+	}
+
+	boolean isIncomplete() {
+		return incomplete;
+	}
+
+	/**
+	 * Records an accepted route in the order of the Dijkstra.
+	 *
+	 * @param flags the connection flags of the route, before the already closed flags were removed
+	 * @param exit  the exit of the first hop, null if it is unknown
+	 */
+	void accepted(ExitRoute route, int parentId, byte flags, EnumFacing exit) {
+		int id = route.destination.getSimpleID();
+		if (id >= state.length) {
+			incomplete = true;
+			return;
+		}
+		if ((state[id] & REACHED) != 0) {
+			state[id] |= COMPLEX;
+			return;
+		}
+		state[id] = REACHED;
+		if (!route.filters.isEmpty() || exit == null) {
+			state[id] |= COMPLEX;
+		}
+		pathFlags[id] = flags;
+		this.exit[id] = exit == null ? -1 : (byte) exit.ordinal();
+		parent[id] = parentId;
+		blockDistance[id] = route.blockDistance;
+		distance[id] = route.distanceToDestination;
+	}
+
+	void closed(int id, Set<PipeRoutingConnectionType> flags, double distance) {
+		if (id >= state.length) {
+			incomplete = true;
+			return;
+		}
+		closedFlags[id] = mask(flags);
+		closeDistance[id] = distance;
+	}
+
+	boolean isReached(int id) {
+		return id < state.length && (state[id] & REACHED) != 0;
+	}
+
+	boolean isComplex(int id) {
+		return id < state.length && (state[id] & COMPLEX) != 0;
+	}
+
+	/**
+	 * @return true, if a route to the router 'to' might lead over the edge from the router 'from'
+	 */
+	boolean usesEdge(int from, int to) {
+		return isReached(to) && (isComplex(to) || parent[to] == from);
+	}
+
+	/**
+	 * @return true, if a route with the given flags and distance would be dropped by the Dijkstra, because the
+	 * destination was closed for all those flags at a lower or equal distance
+	 */
+	boolean cannotImprove(int id, byte flags, double candidateDistance) {
+		return isReached(id) && (closedFlags[id] & flags) == flags && closeDistance[id] <= candidateDistance;
+	}
+
+	byte getPathFlags(int id) {
+		return pathFlags[id];
+	}
+
+	EnumFacing getExit(int id) {
+		return EnumFacing.VALUES[exit[id]];
+	}
+
+	int getBlockDistance(int id) {
+		return blockDistance[id];
+	}
+
+	double getDistance(int id) {
+		return distance[id];
+	}
+}
@@ -0,0 +1,94 @@
+package logisticspipes.routing;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.minecraft.item.Item;
+
+import logisticspipes.request.resources.DictResource;
+import logisticspipes.utils.item.DictIdentifier;
+import logisticspipes.utils.item.DictItemIdentifier;
+import logisticspipes.utils.item.ItemIdentifier;
+
+/**
+ * Inverted index over the items with specific interests, so a {@link DictResource} only has to check the items it can
+ * actually match instead of all of them.
+ * <p>
+ * A fuzzy match either shares an ore dictionary name (or category, if enabled) with the requested item, or it is of the
+ * same {@link Item}, whatever the damage and NBT flags say. So every interest item is indexed by its item and by the
+ * names and categories of its ore dictionary entries.
+ */
+final class InterestIndex {
+
+	private final Map<Item, Set<ItemIdentifier>> byItem = new ConcurrentHashMap<>();
+	private final Map<String, Set<ItemIdentifier>> byOreName = new ConcurrentHashMap<>();
+	private final Map<String, Set<ItemIdentifier>> byOreCategory = new ConcurrentHashMap<>();
+
+	void add(ItemIdentifier itemid) {
+		InterestIndex.put(byItem, itemid.item, itemid);
+		final DictItemIdentifier dict = itemid.getDictIdentifiers();
+		if (dict != null) {
+			for (DictIdentifier part : dict.getParts()) {
+				InterestIndex.put(byOreName, part.getName(), itemid);
+				InterestIndex.put(byOreCategory, part.getCategory(), itemid);
+			}
+		}
+	}
+
+	void remove(ItemIdentifier itemid) {
+		InterestIndex.drop(byItem, itemid.item, itemid);
+		final DictItemIdentifier dict = itemid.getDictIdentifiers();
+		if (dict != null) {
+			for (DictIdentifier part : dict.getParts()) {
+				InterestIndex.drop(byOreName, part.getName(), itemid);
+				InterestIndex.drop(byOreCategory, part.getCategory(), itemid);
+			}
+		}
+	}
+
+	void clear() {
+		byItem.clear();
+		byOreName.clear();
+		byOreCategory.clear();
+	}
+
+	/**
+	 * @return all interest items, which might match the given resource. The caller still has to check them with
+	 * {@link DictResource#matches(ItemIdentifier, logisticspipes.request.resources.IResource.MatchSettings)}.
+	 */
+	Set<ItemIdentifier> getCandidates(DictResource dict) {
+		final ItemIdentifier item = dict.getItem();
+		final Set<ItemIdentifier> sameItem = byItem.getOrDefault(item.item, Collections.emptySet());
+		final DictItemIdentifier dictIdent = item.getDictIdentifiers();
+		if (dictIdent == null || !(dict.useOreDict() || dict.useOreCategory())) {
+			return sameItem;
+		}
+		final Set<ItemIdentifier> candidates = new HashSet<>(sameItem);
+		for (DictIdentifier part : dictIdent.getParts()) {
+			candidates.addAll(byOreName.getOrDefault(part.getName(), Collections.emptySet()));
+			if (dict.useOreCategory()) {
+				candidates.addAll(byOreCategory.getOrDefault(part.getCategory(), Collections.emptySet()));
+			}
+		}
+		return candidates;
+	}
+
+	private static <K> void put(Map<K, Set<ItemIdentifier>> map, K key, ItemIdentifier itemid) {
+		// compute keeps adding and dropping the last entry of a key atomic
+		map.compute(key, (unused, set) -> {
+			final Set<ItemIdentifier> result = set == null ? ConcurrentHashMap.newKeySet() : set;
+			result.add(itemid);
+			return result;
+		});
+	}
+
+	private static <K> void drop(Map<K, Set<ItemIdentifier>> map, K key, ItemIdentifier itemid) {
+		map.computeIfPresent(key, (unused, set) -> {
+			set.remove(itemid);
+			return set.isEmpty() ? null : set;
+		});
+	}
+}
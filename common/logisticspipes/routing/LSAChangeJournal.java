@@ -0,0 +1,77 @@
+package logisticspipes.routing;
+
+/**
+ * Bounded ring of link state changes, written whenever a router publishes a new LSA.
+ * <p>
+ * Each entry describes one directed edge or one router whose state changed. Routers keeping a
+ * {@link DynamicRoutingState} replay the entries written since their last route table calculation to decide whether
+ * their table is still valid, can be repaired or has to be rebuilt.
+ * <p>
+ * Entries are only written while holding the write lock of the shared LSA database of the {@link ServerRouter}, which
+ * afterwards publishes a {@link LSADatabaseSnapshot} containing them. Readers do not lock, they only read entries below
+ * the journal sequence of their snapshot and check {@link #isAvailableSince(long)} again after reading, because old
+ * entries may be overwritten concurrently.
+ */
+class LSAChangeJournal {
+
+	/**
+	 * A new edge appeared, or an existing edge got cheaper or gained connection flags
+	 */
+	static final byte EDGE_IMPROVED = 0;
+	/**
+	 * An edge was removed, or got more expensive or lost connection flags
+	 */
+	static final byte EDGE_WORSENED = 1;
+	/**
+	 * The router itself changed: power providers were modified or the router was destroyed
+	 */
+	static final byte ROUTER_CHANGED = 2;
+
+	private final byte[] kinds;
+	private final int[] from;
+	private final int[] to;
+	private volatile long sequence = 0;
+
+	LSAChangeJournal(int capacity) {
+		kinds = new byte[capacity];
+		from = new int[capacity];
+		to = new int[capacity];
+	}
+
+	void add(byte kind, int fromId, int toId) {
+		final long next = sequence;
+		int index = (int) (next % kinds.length);
+		kinds[index] = kind;
+		from[index] = fromId;
+		to[index] = toId;
+		sequence = next + 1;
+	}
+
+	/**
+	 * @return the sequence number the next entry will get
+	 */
+	long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * @return true, if all entries starting at the given sequence number are still available
+	 */
+	boolean isAvailableSince(long since) {
+		final long current = sequence;
+		// the slot of the entry being written right now is the one of sequence - capacity, so that entry is gone already
+		return since <= current && current - since < kinds.length;
+	}
+
+	byte getKind(long seq) {
+		return kinds[(int) (seq % kinds.length)];
+	}
+
+	int getFrom(long seq) {
+		return from[(int) (seq % from.length)];
+	}
+
+	int getTo(long seq) {
+		return to[(int) (seq % to.length)];
+	}
+}
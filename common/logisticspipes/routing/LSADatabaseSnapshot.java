@@ -0,0 +1,88 @@
+package logisticspipes.routing;
+
+import java.util.Arrays;
+
+import lombok.Getter;
+
+/**
+ * Immutable, versioned view of the link state database shared by all {@link ServerRouter}s.
+ * <p>
+ * Route calculations read the snapshot that is current when they start and never take a lock. Writers serialize among
+ * themselves, derive a new snapshot with {@link #with(int, ServerRouter.LSA, long)} and publish it. The database is
+ * split into chunks, so a change only copies the chunk of the changed router and the small chunk index instead of the
+ * whole database.
+ */
+final class LSADatabaseSnapshot {
+
+	static final LSADatabaseSnapshot EMPTY = new LSADatabaseSnapshot(0, 0, new ServerRouter.LSA[0][]);
+
+	private static final int CHUNK_SHIFT = 6;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	/**
+	 * Increased by one for every published snapshot
+	 */
+	@Getter
+	private final long version;
+	/**
+	 * All {@link LSAChangeJournal} entries before this sequence number are contained in this snapshot
+	 */
+	@Getter
+	private final long journalSequence;
+	private final ServerRouter.LSA[][] chunks;
+
+	private LSADatabaseSnapshot(long version, long journalSequence, ServerRouter.LSA[][] chunks) {
+		this.version = version;
+		this.journalSequence = journalSequence;
+		this.chunks = chunks;
+	}
+
+	/**
+	 * @return the LSA of the router with the given simple id or null, if there is none
+	 */
+	ServerRouter.LSA get(int id) {
+		if (id < 0) {
+			return null;
+		}
+		final int chunk = id >>> CHUNK_SHIFT;
+		if (chunk >= chunks.length || chunks[chunk] == null) {
+			return null;
+		}
+		return chunks[chunk][id & CHUNK_MASK];
+	}
+
+	/**
+	 * @return an upper bound of the simple ids contained in this snapshot
+	 */
+	int size() {
+		return chunks.length << CHUNK_SHIFT;
+	}
+
+	/**
+	 * @return a new snapshot in which the router with the given simple id has the given LSA
+	 */
+	LSADatabaseSnapshot with(int id, ServerRouter.LSA lsa, long newJournalSequence) {
+		final int chunk = id >>> CHUNK_SHIFT;
+		if (lsa == null && get(id) == null) {
+			return withJournalSequence(newJournalSequence);
+		}
+		final ServerRouter.LSA[][] newChunks = Arrays.copyOf(chunks, Math.max(chunks.length, chunk + 1));
+		final ServerRouter.LSA[] newChunk;
+		if (newChunks[chunk] == null) {
+			newChunk = new ServerRouter.LSA[CHUNK_SIZE];
+		} else {
+			newChunk = newChunks[chunk].clone();
+		}
+		newChunk[id & CHUNK_MASK] = lsa;
+		newChunks[chunk] = newChunk;
+		return new LSADatabaseSnapshot(version + 1, newJournalSequence, newChunks);
+	}
+
+	/**
+	 * @return a new snapshot with the same LSAs, which contains the journal entries up to the given sequence number
+	 */
+	LSADatabaseSnapshot withJournalSequence(long newJournalSequence) {
+		return new LSADatabaseSnapshot(version + 1, newJournalSequence, chunks);
+	}
+}
@@ -0,0 +1,416 @@
+package logisticspipes.routing;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import net.minecraft.util.EnumFacing;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+
+import logisticspipes.interfaces.routing.IFilter;
+import logisticspipes.utils.item.ItemIdentifier;
+
+/**
+ * Route table of a {@link ServerRouter} stored in parallel primitive arrays instead of one {@link ExitRoute} per
+ * route.
+ * <p>
+ * The routes of destination {@code d} are the entries {@code offsets[d]} (inclusive) to {@code offsets[d + 1]}
+ * (exclusive), ordered by distance. Filter lists are interned per table and referenced by index, most routes use the
+ * empty chain 0. The arrays are the only storage kept per route: {@link #getRoute(int, boolean, ItemIdentifier)} and the
+ * {@link List} views hand out a new, short-lived {@link ExitRoute} on every access, which is not retained by the table.
+ * Code walking many routes should prefer the entry accessors, e.g. {@link #hasFlag(int, PipeRoutingConnectionType)}.
+ */
+public class PackedRouteTable extends AbstractList<List<ExitRoute>> {
+
+	@SuppressWarnings("unchecked")
+	private static final List<IFilter>[] NO_FILTER_CHAINS = new List[] { Collections.emptyList() };
+
+	public static final PackedRouteTable EMPTY = new PackedRouteTable(null, new IRouter[0], new int[1], new byte[0], new byte[0], new float[0], new int[0], new int[0],
+			NO_FILTER_CHAINS, new int[0]);
+
+	private static final int CONNECTION_FLAGS = 0x0F;
+	/**
+	 * distanceToDestination of the route was set, even if canRouteTo is no longer part of its flags
+	 */
+	private static final int DISTANCE_SET = 1 << 4;
+	/**
+	 * destinationDistanceToRoot of the route was set, even if canRequestFrom is no longer part of its flags
+	 */
+	private static final int ROOT_DISTANCE_SET = 1 << 5;
+
+	private final IRouter source;
+	private final IRouter[] destinations;
+	private final int[] offsets;
+	private final byte[] exits;
+	private final byte[] flags;
+	private final float[] metrics;
+	private final int[] blockDistances;
+	private final int[] filterChainIndices;
+	private final List<IFilter>[] filterChains;
+	private final int[] costOrder;
+	private final List<ExitRoute> routesByCost = new RoutesByCost();
+
+	private PackedRouteTable(IRouter source, IRouter[] destinations, int[] offsets, byte[] exits, byte[] flags, float[] metrics, int[] blockDistances, int[] filterChainIndices,
+			List<IFilter>[] filterChains, int[] costOrder) {
+		this.source = source;
+		this.destinations = destinations;
+		this.offsets = offsets;
+		this.exits = exits;
+		this.flags = flags;
+		this.metrics = metrics;
+		this.blockDistances = blockDistances;
+		this.filterChainIndices = filterChainIndices;
+		this.filterChains = filterChains;
+		this.costOrder = costOrder;
+	}
+
+	/**
+	 * Packs a route table and the same routes sorted by cost, as created by the Dijkstra of the {@link ServerRouter}.
+	 * Routes in the cost list, which are not part of the route table (no known exit), are dropped.
+	 */
+	public static PackedRouteTable pack(IRouter source, List<List<ExitRoute>> routeTable, List<ExitRoute> routeCosts) {
+		final int size = routeTable.size();
+		final IRouter[] destinations = new IRouter[size];
+		final int[] offsets = new int[size + 1];
+		int entries = 0;
+		for (int i = 0; i < size; i++) {
+			offsets[i] = entries;
+			List<ExitRoute> routes = routeTable.get(i);
+			if (routes != null && !routes.isEmpty()) {
+				destinations[i] = routes.get(0).destination;
+				entries += routes.size();
+			}
+		}
+		offsets[size] = entries;
+
+		final PackedRouteTable table = new PackedRouteTable(source, destinations, offsets, new byte[entries], new byte[entries], new float[entries], new int[entries], new int[entries],
+				NO_FILTER_CHAINS, null);
+		final Reference2IntOpenHashMap<ExitRoute> entryIndices = new Reference2IntOpenHashMap<>(entries);
+		entryIndices.defaultReturnValue(-1);
+		final ArrayList<List<IFilter>> chains = new ArrayList<>(Arrays.asList(NO_FILTER_CHAINS));
+		final Object2IntOpenHashMap<List<IFilter>> chainIndices = new Object2IntOpenHashMap<>();
+		int entry = 0;
+		for (int i = 0; i < size; i++) {
+			List<ExitRoute> routes = routeTable.get(i);
+			if (routes == null) {
+				continue;
+			}
+			for (ExitRoute route : routes) {
+				int chain = 0;
+				if (!route.filters.isEmpty()) {
+					chain = chainIndices.getInt(route.filters);
+					if (chain == 0) {
+						chain = chains.size();
+						chains.add(Collections.unmodifiableList(new ArrayList<>(route.filters)));
+						chainIndices.put(chains.get(chain), chain);
+					}
+				}
+				table.setEntry(entry, route, chain);
+				entryIndices.put(route, entry++);
+			}
+		}
+
+		final IntArrayList costOrder = new IntArrayList(routeCosts.size());
+		for (ExitRoute route : routeCosts) {
+			int index = entryIndices.getInt(route);
+			if (index < 0) {
+				index = table.findEquivalentEntry(route);
+			}
+			if (index >= 0) {
+				costOrder.add(index);
+			}
+		}
+		@SuppressWarnings("unchecked")
+		final List<IFilter>[] filterChains = chains.toArray(new List[0]);
+		return new PackedRouteTable(source, destinations, offsets, table.exits, table.flags, table.metrics, table.blockDistances, table.filterChainIndices, filterChains,
+				costOrder.toIntArray());
+	}
+
+	private static boolean isAllowedBy(List<IFilter> filters, boolean active, ItemIdentifier type) {
+		for (IFilter filter : filters) {
+			if (!active) {
+				if (filter.blockRouting() || filter.isBlocked() == filter.isFilteredItem(type)) {
+					return false;
+				}
+			} else {
+				if ((filter.blockProvider() && filter.blockCrafting()) || filter.isBlocked() == filter.isFilteredItem(type)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private void setEntry(int entry, ExitRoute route, int filterChain) {
+		int entryFlags = DynamicRoutingState.mask(route.connectionDetails);
+		if (route.distanceToDestination != Integer.MAX_VALUE) {
+			entryFlags |= DISTANCE_SET;
+			metrics[entry] = (float) route.distanceToDestination;
+		} else if (route.destinationDistanceToRoot != Integer.MAX_VALUE) {
+			entryFlags |= ROOT_DISTANCE_SET;
+			metrics[entry] = (float) route.destinationDistanceToRoot;
+		}
+		if (route.destinationDistanceToRoot != Integer.MAX_VALUE) {
+			entryFlags |= ROOT_DISTANCE_SET;
+		}
+		flags[entry] = (byte) entryFlags;
+		exits[entry] = route.exitOrientation == null ? -1 : (byte) route.exitOrientation.ordinal();
+		blockDistances[entry] = route.blockDistance;
+		filterChainIndices[entry] = filterChain;
+	}
+
+	private int findEquivalentEntry(ExitRoute route) {
+		final int destination = route.destination.getSimpleID();
+		final byte connectionFlags = DynamicRoutingState.mask(route.connectionDetails);
+		for (int entry = getEntryStart(destination); entry < getEntryEnd(destination); entry++) {
+			if ((flags[entry] & CONNECTION_FLAGS) == connectionFlags && (float) getDistanceToDestination(entry) == (float) route.distanceToDestination) {
+				return entry;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the destination id the entry belongs to
+	 */
+	private int destinationOf(int entry) {
+		int low = 0;
+		int high = destinations.length - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (offsets[mid] <= entry) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	public int getEntryStart(int destination) {
+		if (destination < 0 || destination >= destinations.length) {
+			return 0;
+		}
+		return offsets[destination];
+	}
+
+	public int getEntryEnd(int destination) {
+		if (destination < 0 || destination >= destinations.length) {
+			return 0;
+		}
+		return offsets[destination + 1];
+	}
+
+	public boolean hasFlag(int entry, PipeRoutingConnectionType type) {
+		return (flags[entry] & (1 << type.ordinal())) != 0;
+	}
+
+	public double getDistanceToDestination(int entry) {
+		return (flags[entry] & DISTANCE_SET) != 0 ? metrics[entry] : Integer.MAX_VALUE;
+	}
+
+	public EnumFacing getExitOrientation(int entry) {
+		return exits[entry] < 0 ? null : EnumFacing.VALUES[exits[entry]];
+	}
+
+	public int getBlockDistance(int entry) {
+		return blockDistances[entry];
+	}
+
+	public List<IFilter> getFilters(int entry) {
+		return filterChains[filterChainIndices[entry]];
+	}
+
+	/**
+	 * @return the first route to the destination items can be sent over, or null if there is none
+	 */
+	public ExitRoute getRoute(int destination, boolean active, ItemIdentifier type) {
+		final int entry = findRoute(destination, active, type);
+		if (entry < 0) {
+			return null;
+		}
+		return getExitRoute(entry);
+	}
+
+	/**
+	 * @return a new route object for the entry, changes to it are not written back to the table
+	 */
+	public ExitRoute getExitRoute(int entry) {
+		final int entryFlags = flags[entry];
+		final EnumSet<PipeRoutingConnectionType> connectionDetails = DynamicRoutingState.flags((byte) (entryFlags & CONNECTION_FLAGS));
+		if ((entryFlags & DISTANCE_SET) != 0) {
+			connectionDetails.add(PipeRoutingConnectionType.canRouteTo);
+		}
+		if ((entryFlags & ROOT_DISTANCE_SET) != 0) {
+			connectionDetails.add(PipeRoutingConnectionType.canRequestFrom);
+		}
+		final ExitRoute route = new ExitRoute(source, destinations[destinationOf(entry)], getExitOrientation(entry), null, metrics[entry], connectionDetails, blockDistances[entry]);
+		// distances are set, now reduce the flags to the stored ones
+		if (!hasFlag(entry, PipeRoutingConnectionType.canRouteTo)) {
+			route.connectionDetails.remove(PipeRoutingConnectionType.canRouteTo);
+		}
+		if (!hasFlag(entry, PipeRoutingConnectionType.canRequestFrom)) {
+			route.connectionDetails.remove(PipeRoutingConnectionType.canRequestFrom);
+		}
+		route.filters = getFilters(entry);
+		return route;
+	}
+
+	public boolean hasRoute(int destination, boolean active, ItemIdentifier type) {
+		return findRoute(destination, active, type) >= 0;
+	}
+
+	private int findRoute(int destination, boolean active, ItemIdentifier type) {
+		final int end = getEntryEnd(destination);
+		for (int entry = getEntryStart(destination); entry < end; entry++) {
+			if (hasFlag(entry, PipeRoutingConnectionType.canRouteTo) && PackedRouteTable.isAllowedBy(getFilters(entry), active, type)) {
+				return entry;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return all routes sorted by their cost, like they were found by the Dijkstra
+	 */
+	public List<ExitRoute> getRoutesByCost() {
+		return routesByCost;
+	}
+
+	/**
+	 * Creates a new table with one additional route to a destination, which had no route before.
+	 *
+	 * @param byCost whether the route is also part of the routes sorted by cost
+	 */
+	public PackedRouteTable withAddedRoute(ExitRoute route, boolean byCost) {
+		final int destination = route.destination.getSimpleID();
+		if (getEntryStart(destination) != getEntryEnd(destination)) {
+			throw new IllegalArgumentException("Destination " + destination + " already has routes");
+		}
+		final int size = Math.max(destinations.length, destination + 1);
+		final int entries = flags.length + 1;
+		final int newEntry = destination < destinations.length ? offsets[destination] : flags.length;
+
+		final IRouter[] newDestinations = Arrays.copyOf(destinations, size);
+		newDestinations[destination] = route.destination;
+		final int[] newOffsets = new int[size + 1];
+		for (int i = 0; i <= size; i++) {
+			int offset = i < offsets.length ? offsets[i] : flags.length;
+			newOffsets[i] = i > destination ? offset + 1 : offset;
+		}
+
+		List<IFilter>[] newFilterChains = filterChains;
+		int chain = 0;
+		if (!route.filters.isEmpty()) {
+			chain = Arrays.asList(filterChains).indexOf(route.filters);
+			if (chain < 0) {
+				chain = filterChains.length;
+				newFilterChains = Arrays.copyOf(filterChains, chain + 1);
+				newFilterChains[chain] = Collections.unmodifiableList(new ArrayList<>(route.filters));
+			}
+		}
+		final PackedRouteTable table = new PackedRouteTable(source, newDestinations, newOffsets, insert(exits, newEntry), insert(flags, newEntry), insert(metrics, newEntry),
+				insert(blockDistances, newEntry), insert(filterChainIndices, newEntry), newFilterChains, null);
+		table.setEntry(newEntry, route, chain);
+
+		final int[] newCostOrder = new int[byCost ? costOrder.length + 1 : costOrder.length];
+		int target = 0;
+		boolean inserted = !byCost;
+		for (int entry : costOrder) {
+			final int shifted = entry >= newEntry ? entry + 1 : entry;
+			if (!inserted && table.compareEntries(newEntry, shifted) < 0) {
+				newCostOrder[target++] = newEntry;
+				inserted = true;
+			}
+			newCostOrder[target++] = shifted;
+		}
+		if (!inserted) {
+			newCostOrder[target] = newEntry;
+		}
+		return new PackedRouteTable(source, newDestinations, newOffsets, table.exits, table.flags, table.metrics, table.blockDistances, table.filterChainIndices, newFilterChains,
+				newCostOrder);
+	}
+
+	/**
+	 * Same order as {@link ExitRoute#compareTo(ExitRoute)}
+	 */
+	private int compareEntries(int entry, int other) {
+		final int c = Double.compare(getDistanceToDestination(entry), getDistanceToDestination(other));
+		if (c == 0) {
+			return Integer.compare(destinationOf(entry), destinationOf(other));
+		}
+		return c;
+	}
+
+	private static byte[] insert(byte[] array, int index) {
+		final byte[] result = new byte[array.length + 1];
+		System.arraycopy(array, 0, result, 0, index);
+		System.arraycopy(array, index, result, index + 1, array.length - index);
+		return result;
+	}
+
+	private static int[] insert(int[] array, int index) {
+		final int[] result = new int[array.length + 1];
+		System.arraycopy(array, 0, result, 0, index);
+		System.arraycopy(array, index, result, index + 1, array.length - index);
+		return result;
+	}
+
+	private static float[] insert(float[] array, int index) {
+		final float[] result = new float[array.length + 1];
+		System.arraycopy(array, 0, result, 0, index);
+		System.arraycopy(array, index, result, index + 1, array.length - index);
+		return result;
+	}
+
+	/**
+	 * @return the routes to the destination or null, if there is none
+	 */
+	@Override
+	public List<ExitRoute> get(int destination) {
+		final int start = getEntryStart(destination);
+		final int end = getEntryEnd(destination);
+		if (start == end) {
+			return null;
+		}
+		return new AbstractList<ExitRoute>() {
+
+			@Override
+			public ExitRoute get(int index) {
+				if (index < 0 || start + index >= end) {
+					throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+				}
+				return getExitRoute(start + index);
+			}
+
+			@Override
+			public int size() {
+				return end - start;
+			}
+		};
+	}
+
+	@Override
+	public int size() {
+		return destinations.length;
+	}
+
+	private class RoutesByCost extends AbstractList<ExitRoute> {
+
+		@Override
+		public ExitRoute get(int index) {
+			return getExitRoute(costOrder[index]);
+		}
+
+		@Override
+		public int size() {
+			return costOrder.length;
+		}
+	}
+}
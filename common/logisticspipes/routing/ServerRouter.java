@@ -20,17 +20,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableSet;
+import java.util.Objects;
 import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import javax.annotation.Nonnull;
 
 import net.minecraft.tileentity.TileEntity;
@@ -40,7 +41,12 @@ import net.minecraft.world.World;
 
 import net.minecraftforge.common.DimensionManager;
 
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
 import it.unimi.dsi.fastutil.objects.ObjectSets;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
 import lombok.Getter;
 
 import logisticspipes.LogisticsPipes;
@@ -52,6 +58,7 @@ import logisticspipes.config.Configs;
 import logisticspipes.interfaces.IRoutingDebugAdapter;
 import logisticspipes.interfaces.ISubSystemPowerProvider;
 import logisticspipes.interfaces.routing.IFilter;
+import logisticspipes.logistics.DestinationCache;
 import logisticspipes.modules.LogisticsModule;
 import logisticspipes.pipefxhandlers.Particles;
 import logisticspipes.pipes.PipeItemsFirewall;
@@ -79,21 +86,30 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 
 	public static final int REFRESH_TIME = 20;
 
-	protected static final ReentrantReadWriteLock SharedLSADatabaseLock = new ReentrantReadWriteLock();
-	protected static final Lock SharedLSADatabasereadLock = ServerRouter.SharedLSADatabaseLock.readLock();
-	protected static final Lock SharedLSADatabasewriteLock = ServerRouter.SharedLSADatabaseLock.writeLock();
-	protected static int[] _lastLSAVersion = new int[0];
-	protected static LSA[] SharedLSADatabase = new LSA[0];
+	// only serializes the writers, route calculations read the current snapshot without locking
+	protected static final Lock SharedLSADatabasewriteLock = new ReentrantLock();
+	protected static volatile LSADatabaseSnapshot SharedLSADatabase = LSADatabaseSnapshot.EMPTY;
+	protected static final LSAChangeJournal LSAJournal = new LSAChangeJournal(1 << 16);
 
 	// things with specific interests -- providers (including crafters)
 	@Nonnull
 	private static final ConcurrentHashMap<ItemIdentifier, TreeSet<ServerRouter>> globalSpecificInterests = new ConcurrentHashMap<>();
+	// keys of globalSpecificInterests by item and ore dictionary entries, updated together with the map
+	private static final InterestIndex globalSpecificInterestIndex = new InterestIndex();
 
 	// things potentially interested in every item (chassi with generic sinks)
 	@Nonnull
 	private static TreeSet<ServerRouter> genericInterests = new TreeSet<>();
 	private static final Lock genericInterestsWLock = new ReentrantLock();
 
+	// results of getRoutersInterestedIn(ItemIdentifier), never modified once cached
+	private static final ConcurrentHashMap<ItemIdentifier, BitSet> interestedRoutersCache = new ConcurrentHashMap<>();
+	// interest item -> cached items, whose result contains the routers interested in it
+	private static final ConcurrentHashMap<ItemIdentifier, Set<ItemIdentifier>> interestedRoutersCacheDependents = new ConcurrentHashMap<>();
+	private static final int INTERESTED_ROUTERS_CACHE_SIZE = 8192;
+	// increased on every change of the specific or generic interests
+	private static final AtomicLong interestVersion = new AtomicLong();
+
 	// things this pipe is interested in (either providing or sinking)
 	@Nonnull
 	private TreeSet<ItemIdentifier> interests = new TreeSet<>();
@@ -101,11 +117,11 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 
 	static int iterated = 0;// used pseudp-random to spread items over the tick range
 	private static int maxLSAUpdateIndex = 0;
+	private static final AtomicLong routerRunnableIndex = new AtomicLong();
 	private static int firstFreeId = 1;
 	private static final BitSet simpleIdUsedSet = new BitSet();
 
 	public final UUID id;
-	protected final LSA _myLsa;
 	protected final ReentrantReadWriteLock routingTableUpdateLock = new ReentrantReadWriteLock();
 	protected final Lock routingTableUpdateWriteLock = routingTableUpdateLock.writeLock();
 	protected final int simpleID;
@@ -125,11 +141,14 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 	/**
 	 * Map of router -> orientation for all known destinations
 	 **/
-	public List<List<ExitRoute>> _routeTable = Collections.unmodifiableList(new ArrayList<>());
-	public List<ExitRoute> _routeCosts = Collections.unmodifiableList(new ArrayList<>());
+	public PackedRouteTable _routeTable = PackedRouteTable.EMPTY;
+	public List<ExitRoute> _routeCosts = PackedRouteTable.EMPTY.getRoutesByCost();
 	public List<Pair<ILogisticsPowerProvider, List<IFilter>>> _LPPowerTable = Collections.unmodifiableList(new ArrayList<>());
 	public List<Pair<ISubSystemPowerProvider, List<IFilter>>> _SubSystemPowerTable = Collections.unmodifiableList(new ArrayList<>());
 	protected int _LSAVersion = 0;
+	protected volatile int _lastLSAVersion = 0;
+	private volatile DynamicRoutingState _dynamicRoutingState = null;
+	private final DestinationCache destinationCache = new DestinationCache();
 	int ticksUntillNextInventoryCheck = 0;
 	private EnumSet<EnumFacing> _routedExits = EnumSet.noneOf(EnumFacing.class);
 	private EnumMap<EnumFacing, Integer> _subPowerExits = new EnumMap<>(EnumFacing.class);
@@ -185,32 +204,27 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 		_yCoord = yCoord;
 		_zCoord = zCoord;
 		clearPipeCache();
-		_myLsa = new LSA();
-		_myLsa.neighboursWithMetric = new HashMap<>();
-		_myLsa.power = new ArrayList<>();
 		ServerRouter.SharedLSADatabasewriteLock.lock(); // any time after we claim the SimpleID, the database could be accessed at that index
-		simpleID = ServerRouter.claimSimpleID();
-		if (ServerRouter.SharedLSADatabase.length <= simpleID) {
-			int newlength = ((int) (simpleID * 1.5)) + 1;
-			LSA[] new_SharedLSADatabase = new LSA[newlength];
-			System.arraycopy(ServerRouter.SharedLSADatabase, 0, new_SharedLSADatabase, 0, ServerRouter.SharedLSADatabase.length);
-			ServerRouter.SharedLSADatabase = new_SharedLSADatabase;
-			int[] new_lastLSAVersion = new int[newlength];
-			System.arraycopy(ServerRouter._lastLSAVersion, 0, new_lastLSAVersion, 0, ServerRouter._lastLSAVersion.length);
-			ServerRouter._lastLSAVersion = new_lastLSAVersion;
-		}
-		ServerRouter._lastLSAVersion[simpleID] = 0;
-		ServerRouter.SharedLSADatabase[simpleID] = _myLsa; // make non-structural change (threadsafe)
-		ServerRouter.SharedLSADatabasewriteLock.unlock();
+		try {
+			simpleID = ServerRouter.claimSimpleID();
+			ServerRouter.SharedLSADatabase = ServerRouter.SharedLSADatabase
+					.with(simpleID, new LSA(new HashMap<>(), new ArrayList<>(), null), ServerRouter.LSAJournal.getSequence());
+		} finally {
+			ServerRouter.SharedLSADatabasewriteLock.unlock();
+		}
 	}
 
 	// called on server shutdown only
 	public static void cleanup() {
 		ServerRouter.globalSpecificInterests.clear();
+		ServerRouter.globalSpecificInterestIndex.clear();
 		ServerRouter.genericInterests.clear();
+		ServerRouter.interestedRoutersCache.clear();
+		ServerRouter.interestedRoutersCacheDependents.clear();
+		ServerRouter.interestVersion.incrementAndGet();
+		CraftingIndex.clear();
 		ServerRouter.SharedLSADatabasewriteLock.lock();
-		ServerRouter.SharedLSADatabase = new LSA[0];
-		ServerRouter._lastLSAVersion = new int[0];
+		ServerRouter.SharedLSADatabase = LSADatabaseSnapshot.EMPTY.withJournalSequence(ServerRouter.LSAJournal.getSequence());
 		ServerRouter.SharedLSADatabasewriteLock.unlock();
 		ServerRouter.simpleIdUsedSet.clear();
 		ServerRouter.firstFreeId = 1;
@@ -243,18 +257,70 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 		}
 	}
 
+	/**
+	 * @return the simple ids of all routers interested in the given item. The result is cached and shared between
+	 * callers, it must not be modified.
+	 */
 	public static BitSet getRoutersInterestedIn(ItemIdentifier item) {
+		if (item == null) {
+			final BitSet s = new BitSet(ServerRouter.getBiggestSimpleID() + 1);
+			for (IRouter r : ServerRouter.genericInterests) {
+				s.set(r.getSimpleID());
+			}
+			return s;
+		}
+		final BitSet cached = ServerRouter.interestedRoutersCache.get(item);
+		if (cached != null) {
+			return cached;
+		}
+
+		final long version = ServerRouter.interestVersion.get();
+		final ItemIdentifier[] interestItems = { item, item.getUndamaged(), item.getIgnoringNBT(), item.getUndamaged().getIgnoringNBT(), item.getIgnoringData(),
+				item.getIgnoringData().getIgnoringNBT() };
 		final BitSet s = new BitSet(ServerRouter.getBiggestSimpleID() + 1);
 		for (IRouter r : ServerRouter.genericInterests) {
 			s.set(r.getSimpleID());
 		}
-		if (item != null) {
-			Stream.of(item, item.getUndamaged(), item.getIgnoringNBT(), item.getUndamaged().getIgnoringNBT(), item.getIgnoringData(), item.getIgnoringData().getIgnoringNBT())
-					.forEach(itemid -> setBitsForItemInterests(s, itemid));
+		for (ItemIdentifier itemid : interestItems) {
+			ServerRouter.setBitsForItemInterests(s, itemid);
+		}
+
+		if (ServerRouter.interestedRoutersCache.size() >= ServerRouter.INTERESTED_ROUTERS_CACHE_SIZE) {
+			ServerRouter.interestedRoutersCache.clear();
+			ServerRouter.interestedRoutersCacheDependents.clear();
+		}
+		for (ItemIdentifier itemid : interestItems) {
+			ServerRouter.interestedRoutersCacheDependents.computeIfAbsent(itemid, unused -> ConcurrentHashMap.newKeySet()).add(item);
+		}
+		ServerRouter.interestedRoutersCache.put(item, s);
+		if (ServerRouter.interestVersion.get() != version) {
+			// interests changed while calculating, the invalidation might have missed this entry
+			ServerRouter.interestedRoutersCache.remove(item, s);
 		}
 		return s;
 	}
 
+	/**
+	 * @return a number, which changes whenever the interests of any router change
+	 */
+	public static long getInterestVersion() {
+		return ServerRouter.interestVersion.get();
+	}
+
+	private static void invalidateInterestedRouters(ItemIdentifier itemid) {
+		ServerRouter.interestVersion.incrementAndGet();
+		final Set<ItemIdentifier> dependents = ServerRouter.interestedRoutersCacheDependents.remove(itemid);
+		if (dependents != null) {
+			dependents.forEach(ServerRouter.interestedRoutersCache::remove);
+		}
+	}
+
+	private static void invalidateAllInterestedRouters() {
+		ServerRouter.interestVersion.incrementAndGet();
+		ServerRouter.interestedRoutersCache.clear();
+		ServerRouter.interestedRoutersCacheDependents.clear();
+	}
+
 	public static BitSet getRoutersInterestedIn(IResource item) {
 		if (item instanceof ItemResource) {
 			return ServerRouter.getRoutersInterestedIn(((ItemResource) item).getItem());
@@ -266,10 +332,17 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 			for (IRouter r : ServerRouter.genericInterests) {
 				s.set(r.getSimpleID());
 			}
-			ServerRouter.globalSpecificInterests.entrySet().stream()
-					.filter(entry -> dict.matches(entry.getKey(), IResource.MatchSettings.NORMAL))
-					.flatMap(entry -> entry.getValue().stream())
-					.forEach(router -> s.set(router.simpleID));
+			for (ItemIdentifier candidate : ServerRouter.globalSpecificInterestIndex.getCandidates(dict)) {
+				if (!dict.matches(candidate, IResource.MatchSettings.NORMAL)) {
+					continue;
+				}
+				final TreeSet<ServerRouter> specifics = ServerRouter.globalSpecificInterests.get(candidate);
+				if (specifics != null) {
+					for (ServerRouter router : specifics) {
+						s.set(router.simpleID);
+					}
+				}
+			}
 			return s;
 		}
 		return new BitSet(ServerRouter.getBiggestSimpleID() + 1);
@@ -351,9 +424,10 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 	}
 
 	private void lazyUpdateRoutingTable() {
-		if (_LSAVersion > ServerRouter._lastLSAVersion[simpleID]) {
+		if (_LSAVersion > _lastLSAVersion) {
 			if (Configs.MULTI_THREAD_NUMBER > 0) {
-				RoutingTableUpdateThread.add(new UpdateRouterRunnable(this));
+				final CoreRoutedPipe pipe = getCachedPipe();
+				RoutingTableUpdateThread.add(new UpdateRouterRunnable(this, pipe != null && pipe.hasPendingRoutingWork()));
 			} else {
 				CreateRouteTable(_LSAVersion);
 			}
@@ -367,11 +441,18 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 				updateLsa();
 			}
 		}
-		if (_LSAVersion > ServerRouter._lastLSAVersion[simpleID]) {
+		if (_LSAVersion > _lastLSAVersion) {
 			CreateRouteTable(_LSAVersion);
 		}
 	}
 
+	/**
+	 * @return the destinations last chosen for items sent from this router
+	 */
+	public DestinationCache getDestinationCache() {
+		return destinationCache;
+	}
+
 	@Override
 	public List<List<ExitRoute>> getRouteTable() {
 		ensureLatestRoutingTable();
@@ -633,10 +714,59 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 
 	private void lockAndUpdateLSA(HashMap<IRouter, Quartet<Double, EnumSet<PipeRoutingConnectionType>, List<IFilter>, Integer>> neighboursWithMetric, ArrayList<Pair<ILogisticsPowerProvider, List<IFilter>>> power, ArrayList<Pair<ISubSystemPowerProvider, List<IFilter>>> subSystemPower) {
 		ServerRouter.SharedLSADatabasewriteLock.lock();
-		_myLsa.neighboursWithMetric = neighboursWithMetric;
-		_myLsa.power = power;
-		_myLsa.subSystemPower = subSystemPower;
-		ServerRouter.SharedLSADatabasewriteLock.unlock();
+		try {
+			if (isDestroyed) {
+				return; // the LSA was already withdrawn, the simple id might belong to a new router by now
+			}
+			final LSA newLsa = new LSA(neighboursWithMetric, power, subSystemPower);
+			final LSA oldLsa = ServerRouter.SharedLSADatabase.get(simpleID);
+			if (oldLsa != null) {
+				journalLSAChanges(oldLsa, newLsa);
+			}
+			ServerRouter.SharedLSADatabase = ServerRouter.SharedLSADatabase.with(simpleID, newLsa, ServerRouter.LSAJournal.getSequence());
+		} finally {
+			ServerRouter.SharedLSADatabasewriteLock.unlock();
+		}
+	}
+
+	/**
+	 * Writes the difference between the old and the new LSA to the journal. Has to be called while holding the write
+	 * lock of the shared LSA database.
+	 */
+	private void journalLSAChanges(LSA oldLsa, LSA newLsa) {
+		final HashMap<IRouter, Quartet<Double, EnumSet<PipeRoutingConnectionType>, List<IFilter>, Integer>> oldNeighbours = oldLsa.neighboursWithMetric;
+		final HashMap<IRouter, Quartet<Double, EnumSet<PipeRoutingConnectionType>, List<IFilter>, Integer>> neighboursWithMetric = newLsa.neighboursWithMetric;
+		for (IRouter oldNeighbour : oldNeighbours.keySet()) {
+			if (!neighboursWithMetric.containsKey(oldNeighbour)) {
+				ServerRouter.LSAJournal.add(LSAChangeJournal.EDGE_WORSENED, simpleID, oldNeighbour.getSimpleID());
+			}
+		}
+		for (Entry<IRouter, Quartet<Double, EnumSet<PipeRoutingConnectionType>, List<IFilter>, Integer>> newEdge : neighboursWithMetric.entrySet()) {
+			final Quartet<Double, EnumSet<PipeRoutingConnectionType>, List<IFilter>, Integer> oldEdge = oldNeighbours.get(newEdge.getKey());
+			final Quartet<Double, EnumSet<PipeRoutingConnectionType>, List<IFilter>, Integer> edge = newEdge.getValue();
+			boolean improved = false;
+			boolean worsened = false;
+			if (oldEdge == null) {
+				improved = true;
+			} else {
+				final int costCompare = Double.compare(edge.getValue1(), oldEdge.getValue1());
+				improved = costCompare < 0 || !oldEdge.getValue2().containsAll(edge.getValue2());
+				worsened = costCompare > 0 || !edge.getValue2().containsAll(oldEdge.getValue2());
+				if (!edge.getValue3().equals(oldEdge.getValue3()) || !edge.getValue4().equals(oldEdge.getValue4())) {
+					improved = true;
+					worsened = true;
+				}
+			}
+			if (improved) {
+				ServerRouter.LSAJournal.add(LSAChangeJournal.EDGE_IMPROVED, simpleID, newEdge.getKey().getSimpleID());
+			}
+			if (worsened) {
+				ServerRouter.LSAJournal.add(LSAChangeJournal.EDGE_WORSENED, simpleID, newEdge.getKey().getSimpleID());
+			}
+		}
+		if (!Objects.equals(oldLsa.power, newLsa.power) || !Objects.equals(oldLsa.subSystemPower, newLsa.subSystemPower)) {
+			ServerRouter.LSAJournal.add(LSAChangeJournal.ROUTER_CHANGED, simpleID, simpleID);
+		}
 	}
 
 	public void CreateRouteTable(int version_to_update_to) {
@@ -648,17 +778,31 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 	 */
 	public void CreateRouteTable(int version_to_update_to, IRoutingDebugAdapter debug) {
 
-		if (ServerRouter._lastLSAVersion[simpleID] >= version_to_update_to && !debug.independent()) {
+		if (_lastLSAVersion >= version_to_update_to && !debug.independent()) {
 			return; // this update is already done.
 		}
 
+		if (Configs.DYNAMIC_ROUTING_UPDATES && !debug.independent() && !debug.isDebug()) {
+			final DynamicRoutingState state = _dynamicRoutingState;
+			if (state != null) {
+				final DynamicRoutingState repaired = repairRouteTable(state, ServerRouter.SharedLSADatabase);
+				if (repaired != null) {
+					publishRouteTable(version_to_update_to, repaired.getPowerTable(), repaired.getSubSystemPowerTable(), repaired.getRouteTable(), repaired);
+					return;
+				}
+			}
+		}
+
 		//Dijkstra!
 
 		debug.init();
 
+		// all reads below use this one consistent version of the database
+		final LSADatabaseSnapshot database = ServerRouter.SharedLSADatabase;
+
 		int routingTableSize = ServerRouter.getBiggestSimpleID();
 		if (routingTableSize == 0) {
-			routingTableSize = ServerRouter.SharedLSADatabase.length; // deliberatly ignoring concurrent access, either the old or the version of the size will work, this is just an approximate number.
+			routingTableSize = database.size(); // this is just an approximate number.
 		}
 
 		/**
@@ -712,20 +856,26 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 
 		debug.start(candidatesCost, closedSet, filterList);
 
-		ServerRouter.SharedLSADatabasereadLock.lock(); // readlock, not inside the while - too costly to aquire, then release.
+		final DynamicRoutingState dynamicState;
+		final Reference2IntOpenHashMap<ExitRoute> candidateParents;
+		if (Configs.DYNAMIC_ROUTING_UPDATES && !debug.independent() && !debug.isDebug()) {
+			dynamicState = new DynamicRoutingState(database.getJournalSequence(), _adjacentRouter, routingTableSize);
+			candidateParents = new Reference2IntOpenHashMap<>();
+			candidateParents.defaultReturnValue(simpleID); // the initial candidates are reached from this router
+		} else {
+			dynamicState = null;
+			candidateParents = null;
+		}
 		ExitRoute lowestCostNode;
 		while ((lowestCostNode = candidatesCost.poll()) != null) {
 			if (!lowestCostNode.hasActivePipe()) {
+				if (dynamicState != null) {
+					dynamicState.markIncomplete();
+				}
 				continue;
 			}
 
-			if (debug.isDebug()) {
-				ServerRouter.SharedLSADatabasereadLock.unlock();
-			}
 			debug.nextPipe(lowestCostNode);
-			if (debug.isDebug()) {
-				ServerRouter.SharedLSADatabasereadLock.lock();
-			}
 
 			for (ExitRoute e : candidatesCost) {
 				e.debug.isNewlyAddedCanidate = false;
@@ -780,9 +930,9 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 			}
 
 			//Add new candidates from the newly approved route
-			LSA lsa = null;
-			if (lowestCostNode.destination.getSimpleID() < ServerRouter.SharedLSADatabase.length) {
-				lsa = ServerRouter.SharedLSADatabase[lowestCostNode.destination.getSimpleID()];
+			final LSA lsa = database.get(lowestCostNode.destination.getSimpleID());
+			if (dynamicState != null) {
+				dynamicState.accepted(lowestCostNode, candidateParents.getInt(lowestCostNode), DynamicRoutingState.mask(lowestCostNode.getFlagsNoCopy()), getExitOrientation(lowestCostNode.root));
 			}
 			if (lsa == null) {
 				lowestCostNode.removeFlags(lowestCostClosedFlags);
@@ -791,6 +941,9 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 					routeCosts.add(lowestCostNode);
 				}
 				closedSet.set(lowestCostNode.destination.getSimpleID(), lowestCostClosedFlags);
+				if (dynamicState != null) {
+					dynamicState.closed(lowestCostNode.destination.getSimpleID(), lowestCostClosedFlags, lowestCostNode.distanceToDestination);
+				}
 				continue;
 			}
 			if (lowestCostNode.containsFlag(PipeRoutingConnectionType.canPowerFrom)) {
@@ -829,6 +982,9 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 				if (!newCT.isEmpty()) {
 					ExitRoute next = new ExitRoute(lowestCostNode.root, newCandidate.getKey(), candidateCost, newCT, lowestCostNode.filters, newCandidate.getValue().getValue3(), blockDistance);
 					next.debug.isTraced = lowestCostNode.debug.isTraced;
+					if (candidateParents != null) {
+						candidateParents.put(next, lowestCostNode.destination.getSimpleID());
+					}
 					candidatesCost.add(next);
 					debug.newCanidate(next);
 				}
@@ -854,17 +1010,13 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 			}
 			if (lowestCostNode.filters.isEmpty()) {
 				closedSet.set(lowestCostNode.destination.getSimpleID(), lowestCostClosedFlags);
+				if (dynamicState != null) {
+					dynamicState.closed(lowestCostNode.destination.getSimpleID(), lowestCostClosedFlags, lowestCostNode.distanceToDestination);
+				}
 			}
 
-			if (debug.isDebug()) {
-				ServerRouter.SharedLSADatabasereadLock.unlock();
-			}
 			debug.handledPipe();
-			if (debug.isDebug()) {
-				ServerRouter.SharedLSADatabasereadLock.lock();
-			}
 		}
-		ServerRouter.SharedLSADatabasereadLock.unlock();
 
 		debug.stepOneDone();
 
@@ -900,26 +1052,195 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 		}
 		debug.stepTwoDone();
 		if (!debug.independent()) {
-			routingTableUpdateWriteLock.lock();
-			if (version_to_update_to == _LSAVersion) {
-				ServerRouter.SharedLSADatabasereadLock.lock();
-
-				if (ServerRouter._lastLSAVersion[simpleID] < version_to_update_to) {
-					ServerRouter._lastLSAVersion[simpleID] = version_to_update_to;
-					_LPPowerTable = Collections.unmodifiableList(powerTable);
-					_SubSystemPowerTable = Collections.unmodifiableList(subSystemPower);
-					_routeTable = Collections.unmodifiableList(routeTable);
-					_routeCosts = Collections.unmodifiableList(routeCosts);
-				}
-				ServerRouter.SharedLSADatabasereadLock.unlock();
-			}
-			routingTableUpdateWriteLock.unlock();
+			publishRouteTable(version_to_update_to, Collections.unmodifiableList(powerTable), Collections.unmodifiableList(subSystemPower), PackedRouteTable
+					.pack(this, routeTable, routeCosts), dynamicState == null || dynamicState.isIncomplete() ? null : dynamicState);
+		} else if (getCachedPipe() != null) {
+			getCachedPipe().spawnParticle(Particles.LightGreenParticle, 5);
 		}
+
+		debug.done();
+	}
+
+	private void publishRouteTable(int version_to_update_to, List<Pair<ILogisticsPowerProvider, List<IFilter>>> powerTable, List<Pair<ISubSystemPowerProvider, List<IFilter>>> subSystemPower, PackedRouteTable routeTable,
+			DynamicRoutingState dynamicState) {
+		if (dynamicState != null) {
+			dynamicState.setTables(routeTable, powerTable, subSystemPower);
+		}
+		routingTableUpdateWriteLock.lock();
+		if (version_to_update_to == _LSAVersion && _lastLSAVersion < version_to_update_to) {
+			_LPPowerTable = powerTable;
+			_SubSystemPowerTable = subSystemPower;
+			_routeTable = routeTable;
+			_routeCosts = routeTable.getRoutesByCost();
+			_dynamicRoutingState = dynamicState;
+			_lastLSAVersion = version_to_update_to;
+		}
+		routingTableUpdateWriteLock.unlock();
 		if (getCachedPipe() != null) {
 			getCachedPipe().spawnParticle(Particles.LightGreenParticle, 5);
 		}
+	}
 
-		debug.done();
+	private EnumFacing getExitOrientation(IRouter firstHop) {
+		final ExitRoute hop = _adjacentRouter.get(firstHop);
+		return hop == null ? null : hop.exitOrientation;
+	}
+
+	private static Entry<IRouter, Quartet<Double, EnumSet<PipeRoutingConnectionType>, List<IFilter>, Integer>> getLSAEdge(LSADatabaseSnapshot database, int from, int to) {
+		final LSA lsa = database.get(from);
+		if (lsa == null) {
+			return null;
+		}
+		for (Entry<IRouter, Quartet<Double, EnumSet<PipeRoutingConnectionType>, List<IFilter>, Integer>> edge : lsa.neighboursWithMetric.entrySet()) {
+			if (edge.getKey().getSimpleID() == to) {
+				return edge;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return true, if the edge cannot give a better route than the one the Dijkstra accepted for its destination
+	 */
+	private static boolean edgeCannotImprove(DynamicRoutingState state, byte fromFlags, double fromDistance, int to, Quartet<Double, EnumSet<PipeRoutingConnectionType>, List<IFilter>, Integer> edge) {
+		final byte flags = (byte) (fromFlags & DynamicRoutingState.mask(edge.getValue2()));
+		if (flags == 0) {
+			return true; // no candidate would be created
+		}
+		if (!edge.getValue3().isEmpty()) {
+			return false;
+		}
+		return state.cannotImprove(to, flags, DynamicRoutingState.distanceFor(flags, fromDistance + edge.getValue1()));
+	}
+
+	/**
+	 * Brings the route table up to date by replaying the LSA changes written since the given state was created,
+	 * instead of running the whole Dijkstra again. Changes that cannot affect any route of this router are skipped and
+	 * new routers, which are only reachable as leafs of the shortest path tree, are added directly.
+	 *
+	 * @param database the snapshot to repair against, its journal sequence limits the replayed changes
+	 * @return the repaired state including its route tables or null, if a full rebuild is needed
+	 */
+	private DynamicRoutingState repairRouteTable(DynamicRoutingState state, LSADatabaseSnapshot database) {
+		final long sequence = database.getJournalSequence();
+		if (state.getAdjacentRouter() != _adjacentRouter || state.getSequence() > sequence || !ServerRouter.LSAJournal.isAvailableSince(state.getSequence())) {
+			return null;
+		}
+		final Int2ObjectOpenHashMap<IntList> newDestinations = new Int2ObjectOpenHashMap<>();
+		for (long seq = state.getSequence(); seq < sequence; seq++) {
+			final int from = ServerRouter.LSAJournal.getFrom(seq);
+			final int to = ServerRouter.LSAJournal.getTo(seq);
+			if (from == simpleID) {
+				return null; // initial candidates changed
+			}
+			switch (ServerRouter.LSAJournal.getKind(seq)) {
+				case LSAChangeJournal.ROUTER_CHANGED:
+					if (state.isReached(from)) {
+						return null;
+					}
+					break;
+				case LSAChangeJournal.EDGE_WORSENED:
+					if (state.usesEdge(from, to)) {
+						return null;
+					}
+					break;
+				case LSAChangeJournal.EDGE_IMPROVED:
+					if (!state.isReached(from)) {
+						break; // only relevant once the source router is reachable, which is checked for new destinations
+					}
+					if (state.isComplex(from)) {
+						return null;
+					}
+					final Entry<IRouter, Quartet<Double, EnumSet<PipeRoutingConnectionType>, List<IFilter>, Integer>> edge = ServerRouter.getLSAEdge(database, from, to);
+					if (edge == null) {
+						break; // edge was removed again
+					}
+					if (state.isReached(to)) {
+						if (!ServerRouter.edgeCannotImprove(state, state.getPathFlags(from), state.getDistance(from), to, edge.getValue())) {
+							return null;
+						}
+					} else {
+						IntList sources = newDestinations.get(to);
+						if (sources == null) {
+							sources = new IntArrayList(2);
+							newDestinations.put(to, sources);
+						}
+						sources.add(from);
+					}
+					break;
+				default:
+					return null;
+			}
+		}
+		if (!ServerRouter.LSAJournal.isAvailableSince(state.getSequence())) {
+			return null; // entries were overwritten while reading them
+		}
+		if (newDestinations.isEmpty()) {
+			return state.withSequence(sequence);
+		}
+
+		final DynamicRoutingState repaired = state.copy(sequence, ServerRouter.getBiggestSimpleID());
+		PackedRouteTable routeTable = state.getRouteTable();
+		for (Int2ObjectMap.Entry<IntList> newDestination : newDestinations.int2ObjectEntrySet()) {
+			final int destinationId = newDestination.getIntKey();
+			final LSA destinationLsa = database.get(destinationId);
+			if (destinationLsa == null || (destinationLsa.power != null && !destinationLsa.power.isEmpty()) || (destinationLsa.subSystemPower != null && !destinationLsa.subSystemPower
+					.isEmpty())) {
+				return null;
+			}
+
+			// pick the cheapest new edge into the destination, all others must not add any flags
+			IRouter destination = null;
+			int bestSource = -1;
+			byte bestFlags = 0;
+			double bestMetric = 0;
+			int bestBlockDistance = 0;
+			byte allFlags = 0;
+			for (int from : newDestination.getValue()) {
+				final Entry<IRouter, Quartet<Double, EnumSet<PipeRoutingConnectionType>, List<IFilter>, Integer>> edge = ServerRouter.getLSAEdge(database, from, destinationId);
+				if (edge == null) {
+					continue;
+				}
+				final byte flags = (byte) (state.getPathFlags(from) & DynamicRoutingState.mask(edge.getValue().getValue2()));
+				if (flags == 0) {
+					continue;
+				}
+				if (!edge.getValue().getValue3().isEmpty()) {
+					return null;
+				}
+				final double metric = state.getDistance(from) + edge.getValue().getValue1();
+				allFlags |= flags;
+				if (bestSource == -1 || DynamicRoutingState.distanceFor(flags, metric) < DynamicRoutingState.distanceFor(bestFlags, bestMetric)) {
+					destination = edge.getKey();
+					bestSource = from;
+					bestFlags = flags;
+					bestMetric = metric;
+					bestBlockDistance = state.getBlockDistance(from) + edge.getValue().getValue4();
+				}
+			}
+			if (bestSource == -1) {
+				continue; // not reachable through any of the new edges
+			}
+			if ((allFlags & ~bestFlags) != 0 || destination.getCachedPipe() == null) {
+				return null;
+			}
+			final double bestDistance = DynamicRoutingState.distanceFor(bestFlags, bestMetric);
+
+			// the new router has to be a leaf, none of its edges may give a better route to any other router
+			for (Entry<IRouter, Quartet<Double, EnumSet<PipeRoutingConnectionType>, List<IFilter>, Integer>> edge : destinationLsa.neighboursWithMetric.entrySet()) {
+				if (!ServerRouter.edgeCannotImprove(state, bestFlags, bestDistance, edge.getKey().getSimpleID(), edge.getValue())) {
+					return null;
+				}
+			}
+
+			final ExitRoute route = new ExitRoute(this, destination, state.getExit(bestSource), null, bestMetric, DynamicRoutingState.flags(bestFlags), bestBlockDistance);
+			repaired.accepted(route, bestSource, bestFlags, route.exitOrientation);
+			repaired.closed(destinationId, route.connectionDetails, route.distanceToDestination);
+			routeTable = routeTable.withAddedRoute(route, route.containsFlag(PipeRoutingConnectionType.canRouteTo) || route.containsFlag(PipeRoutingConnectionType.canRequestFrom) || route
+					.containsFlag(PipeRoutingConnectionType.canPowerSubSystemFrom));
+		}
+		repaired.setTables(routeTable, state.getPowerTable(), state.getSubSystemPowerTable());
+		return repaired;
 	}
 
 	/**
@@ -946,15 +1267,17 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 	 */
 	@Override
 	public void destroy() {
-		ServerRouter.SharedLSADatabasewriteLock.lock(); // take a write lock so that we don't overlap with any ongoing route updates
-		if (simpleID < ServerRouter.SharedLSADatabase.length) {
-			ServerRouter.SharedLSADatabase[simpleID] = null;
+		ServerRouter.SharedLSADatabasewriteLock.lock();
+		try {
+			isDestroyed = true;
+			ServerRouter.LSAJournal.add(LSAChangeJournal.ROUTER_CHANGED, simpleID, simpleID);
+			ServerRouter.SharedLSADatabase = ServerRouter.SharedLSADatabase.with(simpleID, null, ServerRouter.LSAJournal.getSequence());
+		} finally {
+			ServerRouter.SharedLSADatabasewriteLock.unlock();
 		}
-		ServerRouter.SharedLSADatabasewriteLock.unlock();
 		removeAllInterests();
 
 		clearPipeCache();
-		isDestroyed = true;
 		SimpleServiceLocator.routerManager.removeRouter(simpleID);
 		for (List<ITileEntityChangeListener> list : listenedPipes) {
 			list.remove(localChangeListener);
@@ -965,6 +1288,7 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 
 	private void removeAllInterests() {
 		removeGenericInterest();
+		CraftingIndex.remove(simpleID);
 
 		interestsRWLock.lock();
 		try {
@@ -1092,27 +1416,7 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 	@Override
 	public ExitRoute getExitFor(int id, boolean active, ItemIdentifier type) {
 		ensureLatestRoutingTable();
-		if (getRouteTable().size() <= id || getRouteTable().get(id) == null) {
-			return null;
-		}
-		outer:
-		for (ExitRoute exit : getRouteTable().get(id)) {
-			if (exit.containsFlag(PipeRoutingConnectionType.canRouteTo)) {
-				for (IFilter filter : exit.filters) {
-					if (!active) {
-						if (filter.blockRouting() || filter.isBlocked() == filter.isFilteredItem(type)) {
-							continue outer;
-						}
-					} else {
-						if ((filter.blockProvider() && filter.blockCrafting()) || filter.isBlocked() == filter.isFilteredItem(type)) {
-							continue outer;
-						}
-					}
-				}
-				return exit;
-			}
-		}
-		return null;
+		return _routeTable.getRoute(id, active, type);
 	}
 
 	@Override
@@ -1121,31 +1425,7 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 			return false;
 		}
 		ensureLatestRoutingTable();
-		if (getRouteTable().size() <= id) {
-			return false;
-		}
-		List<ExitRoute> source = getRouteTable().get(id);
-		if (source == null) {
-			return false;
-		}
-		outer:
-		for (ExitRoute exit : source) {
-			if (exit.containsFlag(PipeRoutingConnectionType.canRouteTo)) {
-				for (IFilter filter : exit.filters) {
-					if (!active) {
-						if (filter.blockRouting() || filter.isBlocked() == filter.isFilteredItem(type)) {
-							continue outer;
-						}
-					} else {
-						if ((filter.blockProvider() && filter.blockCrafting()) || filter.isBlocked() == filter.isFilteredItem(type)) {
-							continue outer;
-						}
-					}
-				}
-				return true;
-			}
-		}
-		return false;
+		return _routeTable.hasRoute(id, active, type);
 	}
 
 	@Override
@@ -1172,6 +1452,28 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 		return null != dir && sideDisconnected[dir.ordinal()];
 	}
 
+	/**
+	 * Lets {@link #updateInterests()} collect the interests and crafted items of the pipe again in the next tick instead
+	 * of waiting up to {@link #REFRESH_TIME} ticks.
+	 */
+	public void scheduleInterestUpdate() {
+		ticksUntillNextInventoryCheck = 1;
+	}
+
+	/**
+	 * @return true, if {@link #update(boolean, CoreRoutedPipe)} has to check the connections or run queued tasks
+	 */
+	public boolean hasPendingUpdate() {
+		return connectionNeedsChecking != 0 || !queue.isEmpty();
+	}
+
+	/**
+	 * Counts the ticks the pipe skipped its update for towards the next interest update.
+	 */
+	public void skippedUpdates(int ticks) {
+		ticksUntillNextInventoryCheck = Math.max(1, ticksUntillNextInventoryCheck - ticks);
+	}
+
 	public void updateInterests() {
 		if (--ticksUntillNextInventoryCheck > 0) {
 			return;
@@ -1192,6 +1494,7 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 		} else {
 			removeGenericInterest();
 		}
+		CraftingIndex.update(simpleID, pipe);
 		TreeSet<ItemIdentifier> newInterests = new TreeSet<>();
 		pipe.collectSpecificInterests(newInterests);
 
@@ -1217,6 +1520,7 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 			final TreeSet<ServerRouter> newGenericInterests = (TreeSet<ServerRouter>) ServerRouter.genericInterests.clone();
 			if (newGenericInterests.remove(this)) {
 				ServerRouter.genericInterests = newGenericInterests;
+				ServerRouter.invalidateAllInterestedRouters();
 			}
 		} finally {
 			genericInterestsWLock.unlock();
@@ -1230,6 +1534,7 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 			final TreeSet<ServerRouter> newGenericInterests = (TreeSet<ServerRouter>) ServerRouter.genericInterests.clone();
 			if (newGenericInterests.add(this)) {
 				ServerRouter.genericInterests = newGenericInterests;
+				ServerRouter.invalidateAllInterestedRouters();
 			}
 		} finally {
 			genericInterestsWLock.unlock();
@@ -1239,16 +1544,24 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 	@SuppressWarnings("unchecked")
 	private void addGlobalInterest(ItemIdentifier itemid) {
 		ServerRouter.globalSpecificInterests.compute(itemid, (unused, serverRouters) -> {
-			final TreeSet<ServerRouter> newServerRouters = serverRouters == null ? new TreeSet<>() : (TreeSet<ServerRouter>) serverRouters.clone();
+			final TreeSet<ServerRouter> newServerRouters;
+			if (serverRouters == null) {
+				newServerRouters = new TreeSet<>();
+				ServerRouter.globalSpecificInterestIndex.add(itemid);
+			} else {
+				newServerRouters = (TreeSet<ServerRouter>) serverRouters.clone();
+			}
 			newServerRouters.add(this);
 			return newServerRouters;
 		});
+		ServerRouter.invalidateInterestedRouters(itemid);
 	}
 
 	@SuppressWarnings("unchecked")
 	private void removeGlobalInterest(ItemIdentifier itemid) {
 		ServerRouter.globalSpecificInterests.computeIfPresent(itemid, (unused, serverRouters) -> {
 			if (serverRouters.equals(ObjectSets.singleton(this))) {
+				ServerRouter.globalSpecificInterestIndex.remove(itemid);
 				return null;
 			} else {
 				final TreeSet<ServerRouter> newServerRouters = (TreeSet<ServerRouter>) serverRouters.clone();
@@ -1256,6 +1569,7 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 				return newServerRouters;
 			}
 		});
+		ServerRouter.invalidateInterestedRouters(itemid);
 	}
 
 	@Override
@@ -1286,6 +1600,13 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 
 	@Override
 	public void forceLsaUpdate() {
+		ServerRouter.SharedLSADatabasewriteLock.lock();
+		try {
+			ServerRouter.LSAJournal.add(LSAChangeJournal.ROUTER_CHANGED, simpleID, simpleID); // make every router reaching this one rebuild its table
+			ServerRouter.SharedLSADatabase = ServerRouter.SharedLSADatabase.withJournalSequence(ServerRouter.LSAJournal.getSequence());
+		} finally {
+			ServerRouter.SharedLSADatabasewriteLock.unlock();
+		}
 		BitSet visited = new BitSet(ServerRouter.getBiggestSimpleID());
 		act(visited, new flagForLSAUpdate());
 	}
@@ -1302,15 +1623,29 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 		queue.add(new Pair<>(i + MainProxy.getGlobalTick(), callable));
 	}
 
+	/**
+	 * Link state of one router. Never modified once it is part of a {@link LSADatabaseSnapshot}, changes publish a new
+	 * LSA instead.
+	 */
 	protected static class LSA {
 
-		public HashMap<IRouter, Quartet<Double, EnumSet<PipeRoutingConnectionType>, List<IFilter>, Integer>> neighboursWithMetric;
-		public List<Pair<ILogisticsPowerProvider, List<IFilter>>> power;
-		public ArrayList<Pair<ISubSystemPowerProvider, List<IFilter>>> subSystemPower;
+		public final HashMap<IRouter, Quartet<Double, EnumSet<PipeRoutingConnectionType>, List<IFilter>, Integer>> neighboursWithMetric;
+		public final List<Pair<ILogisticsPowerProvider, List<IFilter>>> power;
+		public final ArrayList<Pair<ISubSystemPowerProvider, List<IFilter>>> subSystemPower;
+
+		LSA(HashMap<IRouter, Quartet<Double, EnumSet<PipeRoutingConnectionType>, List<IFilter>, Integer>> neighboursWithMetric, List<Pair<ILogisticsPowerProvider, List<IFilter>>> power,
+				ArrayList<Pair<ISubSystemPowerProvider, List<IFilter>>> subSystemPower) {
+			this.neighboursWithMetric = neighboursWithMetric;
+			this.power = power;
+			this.subSystemPower = subSystemPower;
+		}
 	}
 
 	private abstract static class RouterRunnable implements Comparable<RouterRunnable>, Runnable {
 
+		// keeps the ordering consistent with equals, the queue of the routing threads is a sorted set
+		private final long queueIndex = ServerRouter.routerRunnableIndex.getAndIncrement();
+
 		public abstract int getPrority();
 
 		public abstract int localCompare(RouterRunnable o);
@@ -1318,7 +1653,11 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 		@Override
 		public int compareTo(RouterRunnable o) {
 			if (o.getPrority() == getPrority()) {
-				return localCompare(o);
+				int c = localCompare(o);
+				if (c != 0) {
+					return c;
+				}
+				return Long.compare(queueIndex, o.queueIndex);
 			}
 			return o.getPrority() - getPrority();
 		}
@@ -1369,27 +1708,36 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 		}
 	}
 
-	private class UpdateRouterRunnable extends RouterRunnable {
+	/**
+	 * Recalculates the route table of a router. At most one is queued per router, it always updates to the newest LSA
+	 * version when it runs.
+	 */
+	private class UpdateRouterRunnable extends RouterRunnable implements RoutingTableUpdateThread.ICoalescingRunnable {
 
-		int newVersion;
+		/**
+		 * The pipe has items waiting to be sent or open orders, so the route table is needed soon
+		 */
+		boolean needed;
 		boolean run;
 		IRouter target;
 
-		UpdateRouterRunnable(IRouter target) {
+		UpdateRouterRunnable(IRouter target, boolean needed) {
 			run = true;
-			newVersion = _LSAVersion;
+			this.needed = needed;
 			this.target = target;
 		}
 
 		@Override
 		public void run() {
 			if (!run) {
+				RoutingTableUpdateThread.taskDropped();
 				return;
 			}
 			try {
 				CoreRoutedPipe p = target.getCachedPipe();
 				if (p == null) {
 					run = false;
+					RoutingTableUpdateThread.taskDropped();
 					return;
 				}
 				//spinlock during the first tick, we can't touch the routing table, untill Update() has been called on every pipe.
@@ -1397,9 +1745,15 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 					Thread.sleep(10);
 				}
 				if (p.stillNeedReplace()) {
+					RoutingTableUpdateThread.taskDropped();
 					return; // drop the pipe update if it still needs replace after 5 ticks.
 				}
-				CreateRouteTable(newVersion);
+				final int newVersion = _LSAVersion;
+				if (_lastLSAVersion >= newVersion) {
+					RoutingTableUpdateThread.taskDropped(); // already updated by a direct request of the route table
+				} else {
+					CreateRouteTable(newVersion);
+				}
 			} catch (Exception e) {
 				e.printStackTrace();
 			}
@@ -1413,19 +1767,21 @@ public class ServerRouter implements IRouter, Comparable<ServerRouter> {
 
 		@Override
 		public int localCompare(RouterRunnable o) {
-			int c = 0;
-			if (((UpdateRouterRunnable) o).newVersion <= 0) {
-				c = newVersion - ((UpdateRouterRunnable) o).newVersion; // negative numbers have priority, more negative first
-			}
-			if (c != 0) {
-				return 0;
-			}
-			c = target.getSimpleID() - ((UpdateRouterRunnable) o).target.getSimpleID(); // do things in order of router id, to minimize router recursion
-			if (c != 0) {
-				return 0;
+			final UpdateRouterRunnable other = (UpdateRouterRunnable) o;
+			if (needed != other.needed) {
+				return needed ? -1 : 1;
 			}
-			c = ((UpdateRouterRunnable) o).newVersion - newVersion; // higher version first
-			return c;
+			return target.getSimpleID() - other.target.getSimpleID(); // do things in order of router id, to minimize router recursion
+		}
+
+		@Override
+		public Object getCoalescingKey() {
+			return target;
+		}
+
+		@Override
+		public void coalesce(RoutingTableUpdateThread.ICoalescingRunnable newer) {
+			needed = ((UpdateRouterRunnable) newer).needed;
 		}
 	}
 
@@ -8,6 +8,15 @@ public class DistanceTracker implements IDistanceTracker {
 	private int initialDistance = 0;
 	private boolean endReached = false;
 	private long delay = 0;
+	private OrderTrace trace = null;
+	private long sentTick;
+	private long bufferedTicks = 0;
+	private long bufferedSince = -1;
+
+	void setTrace(OrderTrace trace, long sentTick) {
+		this.trace = trace;
+		this.sentTick = sentTick;
+	}
 
 	@Override
 	public void setCurrentDistanceToTarget(int value) {
@@ -29,6 +38,10 @@ public class DistanceTracker implements IDistanceTracker {
 
 	@Override
 	public void setDestinationReached() {
+		if (!endReached && trace != null) {
+			setBuffered(false);
+			trace.stackArrived(MainProxy.getGlobalTick() - sentTick, bufferedTicks);
+		}
 		endReached = true;
 	}
 
@@ -42,6 +55,16 @@ public class DistanceTracker implements IDistanceTracker {
 		this.delay = delay;
 	}
 
+	@Override
+	public void setBuffered(boolean buffered) {
+		if (buffered && bufferedSince < 0) {
+			bufferedSince = MainProxy.getGlobalTick();
+		} else if (!buffered && bufferedSince >= 0) {
+			bufferedTicks += MainProxy.getGlobalTick() - bufferedSince;
+			bufferedSince = -1;
+		}
+	}
+
 	@Override
 	public boolean isTimeout() {
 		return delay != 0 && delay <= MainProxy.getGlobalTick();
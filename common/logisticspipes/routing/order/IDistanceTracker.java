@@ -14,5 +14,10 @@ public interface IDistanceTracker {
 
 	void setDelay(long delay);
 
+	/**
+	 * Called when the item is put into or taken out of the buffer of a pipe, because its destination is not reachable
+	 */
+	void setBuffered(boolean buffered);
+
 	boolean isTimeout();
 }
@@ -23,6 +23,8 @@ public class LogisticsItemOrder extends LogisticsOrder {
 	private final DictResource resource;
 	@Getter
 	private final IRequestItems destination;
+	// the amount of this order in the item totals of its LogisticsItemOrderManager
+	int countedAmount = 0;
 
 	@Override
 	public IRouter getRouter() {
@@ -8,9 +8,11 @@ import logisticspipes.interfaces.IChangeListener;
 import logisticspipes.interfaces.ILPPositionProvider;
 import logisticspipes.interfaces.routing.IAdditionalTargetInformation;
 import logisticspipes.interfaces.routing.IRequestItems;
+import logisticspipes.logisticspipes.IRoutedItem;
 import logisticspipes.request.resources.DictResource;
 import logisticspipes.routing.order.IOrderInfoProvider.ResourceType;
 import logisticspipes.utils.item.ItemIdentifier;
+import logisticspipes.utils.item.ItemIdentifierIntMap;
 import logisticspipes.utils.item.ItemIdentifierStack;
 
 public class LogisticsItemOrderManager extends LogisticsOrderManager<LogisticsItemOrder, DictResource.Identifier> {
@@ -38,6 +40,9 @@ public class LogisticsItemOrderManager extends LogisticsOrderManager<LogisticsIt
 		}
 	}
 
+	// the amount of each item in all orders, guarded by itself
+	private final ItemIdentifierIntMap itemsInOrders = new ItemIdentifierIntMap();
+
 	public LogisticsItemOrderManager(ILPPositionProvider pos) {
 		super(new LogisticsOrderLinkedList<LogisticsItemOrder, DictResource.Identifier>(new IC()), pos);
 	}
@@ -46,15 +51,29 @@ public class LogisticsItemOrderManager extends LogisticsOrderManager<LogisticsIt
 		super(listener, pos, new LogisticsOrderLinkedList<LogisticsItemOrder, DictResource.Identifier>(new IC()));
 	}
 
+	@Override
+	public void sendSuccessfull(int number, boolean defersend, IRoutedItem item) {
+		LogisticsItemOrder order = _orders.getFirst();
+		super.sendSuccessfull(number, defersend, item);
+		if (order.isFinished()) {
+			uncount(order);
+		} else {
+			count(order);
+		}
+	}
+
 	@Override
 	public void sendFailed() {
-		_orders.getFirst().sendFailed();
+		LogisticsItemOrder order = _orders.getFirst();
+		order.sendFailed();
 		super.sendFailed();
+		uncount(order);
 	}
 
 	public LogisticsItemOrder addOrder(ItemIdentifierStack stack, IRequestItems requester, ResourceType type, IAdditionalTargetInformation info) {
 		LogisticsItemOrder order = new LogisticsItemOrder(new DictResource(stack, null), requester, type, info);
 		_orders.addLast(order);
+		count(order);
 		listen();
 		return order;
 	}
@@ -62,6 +81,7 @@ public class LogisticsItemOrderManager extends LogisticsOrderManager<LogisticsIt
 	public LogisticsItemOrder addOrder(DictResource stack, IRequestItems requester, ResourceType type, IAdditionalTargetInformation info) {
 		LogisticsItemOrder order = new LogisticsItemOrder(stack, requester, type, info);
 		_orders.addLast(order);
+		count(order);
 		listen();
 		return order;
 	}
@@ -69,6 +89,7 @@ public class LogisticsItemOrderManager extends LogisticsOrderManager<LogisticsIt
 	public LogisticsItemOrderExtra addExtra(DictResource stack) {
 		LogisticsItemOrderExtra order = new LogisticsItemOrderExtra(stack, null, ResourceType.EXTRA, null);
 		_orders.addLast(order);
+		count(order);
 		listen();
 		return order;
 	}
@@ -86,26 +107,50 @@ public class LogisticsItemOrderManager extends LogisticsOrderManager<LogisticsIt
 					itemsToRemove -= order.getAmount();
 					toRemove.add(order);
 					if (itemsToRemove == 0) {
-						_orders.removeAll(toRemove);
-						return;
+						break;
 					}
 				} else {
 					order.getResource().getItemStack().setStackSize(order.getAmount() - itemsToRemove);
+					count(order);
 					break;
 				}
 			}
 		}
 		_orders.removeAll(toRemove);
+		toRemove.forEach(this::uncount);
 	}
 
 	public int totalItemsCountInOrders(ItemIdentifier item) {
-		int itemCount = 0;
-		for (LogisticsItemOrder request : _orders) {
-			if (!request.getResource().getItem().equals(item)) {
-				continue;
+		synchronized (itemsInOrders) {
+			return itemsInOrders.get(item);
+		}
+	}
+
+	/**
+	 * Updates the item totals after the order was added or its amount changed.
+	 */
+	private void count(LogisticsItemOrder order) {
+		final int amount = order.getResource().stack.getStackSize();
+		addToTotal(order.getResource().getItem(), amount - order.countedAmount);
+		order.countedAmount = amount;
+	}
+
+	/**
+	 * Updates the item totals after the order was removed.
+	 */
+	private void uncount(LogisticsItemOrder order) {
+		addToTotal(order.getResource().getItem(), -order.countedAmount);
+		order.countedAmount = 0;
+	}
+
+	private void addToTotal(ItemIdentifier item, int amount) {
+		if (amount == 0) {
+			return;
+		}
+		synchronized (itemsInOrders) {
+			if (itemsInOrders.addTo(item, amount) == 0) {
+				itemsInOrders.remove(item);
 			}
-			itemCount += request.getResource().stack.getStackSize();
 		}
-		return itemCount;
 	}
 }
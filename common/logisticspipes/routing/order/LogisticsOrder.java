@@ -8,6 +8,7 @@ import lombok.Setter;
 import lombok.experimental.Accessors;
 
 import logisticspipes.interfaces.routing.IAdditionalTargetInformation;
+import logisticspipes.proxy.MainProxy;
 import logisticspipes.routing.IRouter;
 import logisticspipes.utils.item.ItemIdentifier;
 import network.rs485.logisticspipes.world.DoubleCoordinates;
@@ -38,6 +39,13 @@ public abstract class LogisticsOrder implements IOrderInfoProvider {
 	private byte machineProgress = 0;
 	private List<IDistanceTracker> trackers = new ArrayList<>();
 
+	/*
+	 * Latency Information
+	 */
+	@Getter
+	private final long queuedTick = MainProxy.getGlobalTick();
+	OrderTrace trace = null;
+
 	public LogisticsOrder(ResourceType type, IAdditionalTargetInformation info) {
 		if (type == null) {
 			throw new NullPointerException();
@@ -3,17 +3,23 @@ package logisticspipes.routing.order;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.annotation.Nonnull;
 
+/**
+ * Queue of orders, which keeps the extras of an identity behind the last order of the same identity. The orders are
+ * kept in a {@link LinkedHashSet}, so any order can be removed or moved to the end in constant time. The extras are
+ * additionally queued per identity, in the same order, so moving them does not need to look at the other orders.
+ */
 public class LogisticsOrderLinkedList<E extends LogisticsOrder, I> implements Iterable<E> {
 
 	private final IIdentityProvider<E, I> identifyer;
-	private Map<I, Integer> extraSize = new HashMap<I, Integer>();
-	private LinkedList<E> list = new LinkedList<E>();
-	private List<E> unmodifiable = Collections.unmodifiableList(list);
+	private final Map<I, LinkedHashSet<E>> extras = new HashMap<>();
+	private final LinkedHashSet<E> list = new LinkedHashSet<>();
+	private final Set<E> unmodifiable = Collections.unmodifiableSet(list);
 	private int globalExtraCount = 0;
 
 	public LogisticsOrderLinkedList(IIdentityProvider<E, I> identifyer) {
@@ -21,49 +27,43 @@ public class LogisticsOrderLinkedList<E extends LogisticsOrder, I> implements It
 	}
 
 	public E getFirst() {
-		return list.getFirst();
+		return list.iterator().next();
 	}
 
 	public void addLast(E order) {
-		list.addLast(order);
+		list.add(order);
 		I ident = identifyer.getIdentity(order);
 		if (identifyer.isExtra(order)) {
-			int prev = 0;
-			if (extraSize.containsKey(ident)) {
-				prev = extraSize.get(ident);
-			}
-			extraSize.put(ident, prev + 1);
+			extras.computeIfAbsent(ident, key -> new LinkedHashSet<>()).add(order);
 			globalExtraCount++;
-		} else if (extraSize.containsKey(ident) && extraSize.get(ident) > 0) {
-			List<E> toMove = new LinkedList<E>();
-			for (E lElem : list) {
-				if (identifyer.isExtra(lElem) && ident.equals(identifyer.getIdentity(lElem))) {
-					toMove.add(lElem);
+		} else {
+			LinkedHashSet<E> toMove = extras.get(ident);
+			if (toMove != null) {
+				for (E move : toMove) {
+					list.remove(move);
+					list.add(move);
 				}
 			}
-			for (E move : toMove) {
-				list.remove(move);
-				list.addLast(move);
-			}
 		}
 	}
 
 	public void removeAll(List<E> orders) {
-		list.removeAll(orders);
 		for (E order : orders) {
-			elemRemove(order);
+			if (list.remove(order)) {
+				elemRemove(order);
+			}
 		}
 	}
 
 	private void elemRemove(E elem) {
 		if (identifyer.isExtra(elem)) {
 			I ident = identifyer.getIdentity(elem);
-			int prev = 0;
-			if (extraSize.containsKey(ident)) {
-				prev = extraSize.get(ident);
-			}
-			if (prev > 0) {
-				extraSize.put(ident, prev - 1);
+			LinkedHashSet<E> identExtras = extras.get(ident);
+			if (identExtras != null) {
+				identExtras.remove(elem);
+				if (identExtras.isEmpty()) {
+					extras.remove(ident);
+				}
 			}
 			globalExtraCount--;
 		}
@@ -84,7 +84,9 @@ public class LogisticsOrderLinkedList<E extends LogisticsOrder, I> implements It
 	}
 
 	public E removeFirst() {
-		E elem = list.removeFirst();
+		Iterator<E> iter = list.iterator();
+		E elem = iter.next();
+		iter.remove();
 		elemRemove(elem);
 		return elem;
 	}
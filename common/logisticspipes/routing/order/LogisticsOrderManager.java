@@ -18,9 +18,11 @@ import net.minecraft.world.World;
 
 import logisticspipes.interfaces.IChangeListener;
 import logisticspipes.interfaces.ILPPositionProvider;
+import logisticspipes.interfaces.IWorldProvider;
 import logisticspipes.logisticspipes.IRoutedItem;
 import logisticspipes.network.PacketHandler;
 import logisticspipes.network.packets.pipe.PipeManagerContentPacket;
+import logisticspipes.pipes.basic.CoreRoutedPipe;
 import logisticspipes.proxy.MainProxy;
 import logisticspipes.routing.order.IOrderInfoProvider.ResourceType;
 import logisticspipes.utils.PlayerCollectionList;
@@ -58,6 +60,10 @@ public abstract class LogisticsOrderManager<T extends LogisticsOrder, I> impleme
 		if (listener != null) {
 			listener.listenedChanged();
 		}
+		if (pos instanceof CoreRoutedPipe) {
+			// orders are handled in the update of the pipe
+			((CoreRoutedPipe) pos).wakeUp();
+		}
 	}
 
 	public void dump(StringBuilder sb) {
@@ -108,17 +114,27 @@ public abstract class LogisticsOrderManager<T extends LogisticsOrder, I> impleme
 
 	@SuppressWarnings("unchecked")
 	public void sendSuccessfull(int number, boolean defersend, IRoutedItem item) {
+		OrderTrace trace = getTrace(_orders.getFirst());
 		_orders.getFirst().reduceAmountBy(number);
-		if (_orders.getFirst().isWatched() && item != null) {
-			IDistanceTracker tracker = new DistanceTracker();
+		if (trace != null) {
+			trace.extracted();
+		}
+		if (item != null && (trace != null || _orders.getFirst().isWatched())) {
+			DistanceTracker tracker = new DistanceTracker();
+			if (trace != null) {
+				trace.stackSent(tracker);
+			}
 			item.setDistanceTracker(tracker);
-			_orders.getFirst().addDistanceTracker(tracker);
+			if (_orders.getFirst().isWatched()) {
+				_orders.getFirst().addDistanceTracker(tracker);
+			}
 		}
 		int destination = _orders.getFirst().getRouterId();
 		if (_orders.getFirst().getAmount() <= 0) {
 			LogisticsOrder order = _orders.removeFirst();
 			order.setFinished(true);
 			order.setInProgress(false);
+			finishTrace(order, false);
 		}
 		if (!_orders.isEmpty()) {
 			LogisticsOrder start = _orders.getFirst();
@@ -141,6 +157,7 @@ public abstract class LogisticsOrderManager<T extends LogisticsOrder, I> impleme
 			LogisticsOrder order = _orders.removeFirst();
 			order.setFinished(true);
 			order.setInProgress(false);
+			finishTrace(order, true);
 		}
 		if (!_orders.isEmpty()) {
 			_orders.getFirst().setInProgress(true);
@@ -148,6 +165,33 @@ public abstract class LogisticsOrderManager<T extends LogisticsOrder, I> impleme
 		listen();
 	}
 
+	/**
+	 * @return the latency trace of the order, null for extras, which are not requested by anyone, and while latencies
+	 * are not collected
+	 */
+	private OrderTrace getTrace(LogisticsOrder order) {
+		if (order.trace == null) {
+			if (order.getType() == ResourceType.EXTRA || !OrderLatencyStatistics.isCollecting()) {
+				return null;
+			}
+			order.trace = new OrderTrace(getTraceName(), order);
+		}
+		return order.trace;
+	}
+
+	private String getTraceName() {
+		final World world = pos instanceof IWorldProvider ? ((IWorldProvider) pos).getWorld() : null;
+		final String dimension = world == null ? "?" : Integer.toString(world.provider.getDimension());
+		return pos.getClass().getSimpleName() + " " + dimension + " " + pos.getLPPosition();
+	}
+
+	private void finishTrace(LogisticsOrder order, boolean failed) {
+		OrderTrace trace = getTrace(order);
+		if (trace != null) {
+			trace.finished(failed);
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	public void deferSend() {
 		_orders.addLast((T) _orders.removeFirst().setInProgress(false));
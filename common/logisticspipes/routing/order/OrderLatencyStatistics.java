@@ -0,0 +1,246 @@
+package logisticspipes.routing.order;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import logisticspipes.LogisticsPipes;
+import logisticspipes.config.Configs;
+
+/**
+ * Latency histograms of the orders of all pipes, in ticks. Every order records how long it waited for its first
+ * extraction, how long it took until all items were extracted, how long each sent stack travelled and waited in
+ * buffers, and how long it took until the last stack arrived. See {@link OrderTrace}.
+ * <p>
+ * Latencies are only collected while enabled in the config or started with the orderlatency command, otherwise orders
+ * and sent stacks get no trace at all. If enabled in the config, every completed order is also appended to a trace file
+ * in the log folder, until writing the file fails once.
+ */
+public final class OrderLatencyStatistics {
+
+	private static final int MAX_PIPES = 1024;
+	/**
+	 * Lines waiting for the trace writer, further lines are dropped while the disk does not keep up
+	 */
+	private static final int MAX_QUEUED_LINES = 8192;
+
+	public enum Stage {
+		WAITING("queued until first extraction"),
+		SENDING("queued until all items were extracted"),
+		TRANSIT("extraction until arrival, per stack"),
+		BUFFERED("waiting in pipe buffers, per stack"),
+		TOTAL("queued until the last stack arrived");
+
+		public final String description;
+
+		Stage(String description) {
+			this.description = description;
+		}
+	}
+
+	private static final EnumMap<Stage, Histogram> allPipes = OrderLatencyStatistics.newHistograms();
+	private static final LinkedHashMap<String, EnumMap<Stage, Histogram>> perPipe = new LinkedHashMap<String, EnumMap<Stage, Histogram>>(16, 0.75f, true) {
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, EnumMap<Stage, Histogram>> eldest) {
+			return size() > OrderLatencyStatistics.MAX_PIPES;
+		}
+	};
+	private static TraceWriter traceWriter = null;
+	private static volatile boolean started = false;
+	private static volatile boolean traceFailed = false;
+	private static boolean traceDropped = false;
+
+	private OrderLatencyStatistics() {}
+
+	private static EnumMap<Stage, Histogram> newHistograms() {
+		EnumMap<Stage, Histogram> histograms = new EnumMap<>(Stage.class);
+		for (Stage stage : Stage.values()) {
+			histograms.put(stage, new Histogram());
+		}
+		return histograms;
+	}
+
+	/**
+	 * @return whether new orders get a trace
+	 */
+	public static boolean isCollecting() {
+		return OrderLatencyStatistics.started || Configs.ORDER_LATENCY_STATISTICS || OrderLatencyStatistics.isTracing();
+	}
+
+	static boolean isTracing() {
+		return Configs.ORDER_TRACE_FILE && !OrderLatencyStatistics.traceFailed;
+	}
+
+	/**
+	 * Starts or stops collecting latencies until the server is restarted. Stopping has no effect, if collecting is
+	 * enabled in the config.
+	 */
+	public static void setStarted(boolean started) {
+		OrderLatencyStatistics.started = started;
+	}
+
+	static synchronized void record(String pipe, Stage stage, long ticks) {
+		OrderLatencyStatistics.allPipes.get(stage).record(ticks);
+		OrderLatencyStatistics.perPipe.computeIfAbsent(pipe, key -> OrderLatencyStatistics.newHistograms()).get(stage).record(ticks);
+	}
+
+	/**
+	 * @return a copy of the histogram of all pipes
+	 */
+	public static synchronized Histogram getHistogram(Stage stage) {
+		return new Histogram(OrderLatencyStatistics.allPipes.get(stage));
+	}
+
+	/**
+	 * @return copies of the histograms of the pipes with the highest mean latency in the given stage
+	 */
+	public static synchronized List<Map.Entry<String, Histogram>> getSlowestPipes(Stage stage, int count) {
+		List<Map.Entry<String, Histogram>> pipes = new ArrayList<>(OrderLatencyStatistics.perPipe.size());
+		for (Map.Entry<String, EnumMap<Stage, Histogram>> entry : OrderLatencyStatistics.perPipe.entrySet()) {
+			Histogram histogram = entry.getValue().get(stage);
+			if (histogram.getCount() > 0) {
+				pipes.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), new Histogram(histogram)));
+			}
+		}
+		pipes.sort(Comparator.comparingDouble((Map.Entry<String, Histogram> entry) -> entry.getValue().getMean()).reversed());
+		return pipes.subList(0, Math.min(count, pipes.size()));
+	}
+
+	public static synchronized void clear() {
+		OrderLatencyStatistics.allPipes.values().forEach(Histogram::clear);
+		OrderLatencyStatistics.perPipe.clear();
+	}
+
+	static void trace(String line) {
+		synchronized (OrderLatencyStatistics.class) {
+			if (OrderLatencyStatistics.traceFailed) {
+				return;
+			}
+			if (OrderLatencyStatistics.traceWriter == null) {
+				OrderLatencyStatistics.traceWriter = new TraceWriter();
+			}
+			if (!OrderLatencyStatistics.traceWriter.lines.offer(line) && !OrderLatencyStatistics.traceDropped) {
+				OrderLatencyStatistics.traceDropped = true;
+				LogisticsPipes.log.warn("The order trace file is written too slowly, lines are dropped");
+			}
+		}
+	}
+
+	private static synchronized void traceFailed() {
+		OrderLatencyStatistics.traceFailed = true;
+		OrderLatencyStatistics.traceWriter.lines.clear();
+	}
+
+	/**
+	 * Histogram with buckets for powers of two: bucket 0 counts 0 ticks, bucket i counts 2^(i-1) to 2^i - 1 ticks.
+	 */
+	public static final class Histogram {
+
+		private static final int BUCKETS = 24;
+
+		private final long[] buckets;
+		private long count;
+		private long sum;
+		private long max;
+
+		private Histogram() {
+			buckets = new long[Histogram.BUCKETS];
+		}
+
+		private Histogram(Histogram other) {
+			buckets = other.buckets.clone();
+			count = other.count;
+			sum = other.sum;
+			max = other.max;
+		}
+
+		private void record(long ticks) {
+			ticks = Math.max(ticks, 0);
+			int bucket = Math.min(64 - Long.numberOfLeadingZeros(ticks), Histogram.BUCKETS - 1);
+			buckets[bucket]++;
+			count++;
+			sum += ticks;
+			max = Math.max(max, ticks);
+		}
+
+		private void clear() {
+			Arrays.fill(buckets, 0);
+			count = 0;
+			sum = 0;
+			max = 0;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public double getMean() {
+			return count == 0 ? 0 : (double) sum / count;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		/**
+		 * @return the upper bound of the bucket containing the given percentile, at most the maximum
+		 */
+		public long getPercentile(double percentile) {
+			long rank = (long) Math.ceil(count * percentile / 100);
+			long seen = 0;
+			for (int i = 0; i < buckets.length; i++) {
+				seen += buckets[i];
+				if (seen >= rank && seen > 0) {
+					return Math.min((1L << i) - 1, max);
+				}
+			}
+			return max;
+		}
+	}
+
+	// appends the lines of completed orders to the trace file, so the server thread does not wait for the disk
+	private static final class TraceWriter extends Thread {
+
+		private final BlockingQueue<String> lines = new LinkedBlockingQueue<>(OrderLatencyStatistics.MAX_QUEUED_LINES);
+
+		private TraceWriter() {
+			setName("LogisticsPipes Order Trace Writer");
+			setDaemon(true);
+			start();
+		}
+
+		@Override
+		public void run() {
+			File file = new File("logs", "logisticspipes-order-trace.csv");
+			boolean header = !file.exists();
+			try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, true))) {
+				if (header) {
+					writer.write(OrderTrace.TRACE_HEADER);
+					writer.newLine();
+				}
+				while (true) {
+					writer.write(lines.take());
+					writer.newLine();
+					if (lines.isEmpty()) {
+						writer.flush();
+					}
+				}
+			} catch (IOException e) {
+				LogisticsPipes.log.error("Could not write the order trace file " + file.getAbsolutePath() + ", order tracing is disabled", e);
+				OrderLatencyStatistics.traceFailed();
+			} catch (InterruptedException ignored) {}
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package logisticspipes.routing.order;
+
+import logisticspipes.proxy.MainProxy;
+import logisticspipes.routing.order.OrderLatencyStatistics.Stage;
+
+/**
+ * Lifecycle of one order in global ticks: queued when the order is created from its promise, extracted when the first
+ * stack is sent, finished when the last stack is sent or the order failed, and arrived when the last sent stack reached
+ * its destination. Each sent stack gets a {@link DistanceTracker}, which reports its transit and buffer times.
+ */
+final class OrderTrace {
+
+	static final String TRACE_HEADER = "tick,pipe,type,item,amount,failed,waiting,sending,total,stacks,maxTransit,buffered";
+
+	private final String pipe;
+	private final String description;
+	private final long queuedTick;
+	private long extractedTick = -1;
+	private long finishedTick = -1;
+	private long lastArrivalTick = -1;
+	private boolean failed = false;
+	private boolean completed = false;
+	private int stacks = 0;
+	private int stacksInTransit = 0;
+	private long maxTransitTicks = 0;
+	private long bufferedTicks = 0;
+
+	OrderTrace(String pipe, LogisticsOrder order) {
+		this.pipe = pipe;
+		// only needed for the trace file
+		description = !OrderLatencyStatistics.isTracing() ? null : order.getType().name() + "," + order.getAsDisplayItem().getItem().getDebugName().replace(',', ';') + "," + order.getAmount();
+		queuedTick = order.getQueuedTick();
+	}
+
+	void extracted() {
+		if (extractedTick < 0) {
+			extractedTick = MainProxy.getGlobalTick();
+			OrderLatencyStatistics.record(pipe, Stage.WAITING, extractedTick - queuedTick);
+		}
+	}
+
+	void stackSent(DistanceTracker tracker) {
+		stacks++;
+		stacksInTransit++;
+		tracker.setTrace(this, MainProxy.getGlobalTick());
+	}
+
+	void stackArrived(long transitTicks, long stackBufferedTicks) {
+		stacksInTransit--;
+		lastArrivalTick = MainProxy.getGlobalTick();
+		maxTransitTicks = Math.max(maxTransitTicks, transitTicks);
+		bufferedTicks += stackBufferedTicks;
+		OrderLatencyStatistics.record(pipe, Stage.TRANSIT, transitTicks);
+		OrderLatencyStatistics.record(pipe, Stage.BUFFERED, stackBufferedTicks);
+		complete();
+	}
+
+	void finished(boolean failed) {
+		if (finishedTick >= 0) {
+			return;
+		}
+		finishedTick = MainProxy.getGlobalTick();
+		this.failed = failed;
+		if (!failed && extractedTick >= 0) {
+			OrderLatencyStatistics.record(pipe, Stage.SENDING, finishedTick - queuedTick);
+		}
+		complete();
+	}
+
+	// stacks which never arrive, because they were dropped or lost their destination, keep the order from completing
+	private void complete() {
+		if (completed || finishedTick < 0 || stacksInTransit > 0) {
+			return;
+		}
+		completed = true;
+		final long endTick = lastArrivalTick >= 0 ? lastArrivalTick : finishedTick;
+		if (!failed && extractedTick >= 0) {
+			OrderLatencyStatistics.record(pipe, Stage.TOTAL, endTick - queuedTick);
+		}
+		if (description == null) {
+			return;
+		}
+		OrderLatencyStatistics.trace(endTick + "," + pipe + "," + description + "," + failed + "," + (extractedTick < 0 ? -1 : extractedTick - queuedTick) + ","
+				+ (finishedTick - queuedTick) + "," + (endTick - queuedTick) + "," + stacks + "," + maxTransitTicks + "," + bufferedTicks);
+	}
+}
@@ -0,0 +1,154 @@
+package logisticspipes.routing.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash table from packed block positions to double values, used as visited set and distance map of
+ * the {@link PathFinder}. Works on primitives only and keeps its capacity when cleared, so a table reused for many
+ * searches does not allocate anymore.
+ */
+final class PackedPositionTable {
+
+	private static final int MIN_CAPACITY = 64;
+
+	private long[] keys = new long[MIN_CAPACITY];
+	private double[] values = new double[MIN_CAPACITY];
+	private boolean[] used = new boolean[MIN_CAPACITY];
+	private int size = 0;
+	private int peakSize = 0;
+
+	/**
+	 * Packs a block position into a long: 26 bits each for x and z and 12 bits for y.
+	 */
+	static long pack(int x, int y, int z) {
+		return (((long) x & 0x3FFFFFFL) << 38) | (((long) y & 0xFFFL) << 26) | ((long) z & 0x3FFFFFFL);
+	}
+
+	static long pack(IPipeInformationProvider pipe) {
+		return PackedPositionTable.pack(pipe.getX(), pipe.getY(), pipe.getZ());
+	}
+
+	private static int mix(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean contains(long key) {
+		return indexOf(key) >= 0;
+	}
+
+	void add(long key) {
+		put(key, 0);
+	}
+
+	void put(long key, double value) {
+		if ((size + 1) * 2 > keys.length) {
+			resize(keys.length * 2);
+		}
+		final int mask = keys.length - 1;
+		int index = PackedPositionTable.mix(key) & mask;
+		while (used[index]) {
+			if (keys[index] == key) {
+				values[index] = value;
+				return;
+			}
+			index = (index + 1) & mask;
+		}
+		used[index] = true;
+		keys[index] = key;
+		values[index] = value;
+		size++;
+		peakSize = Math.max(peakSize, size);
+	}
+
+	void remove(long key) {
+		int index = indexOf(key);
+		if (index < 0) {
+			return;
+		}
+		// backward shift deletion keeps the probe sequences intact without tombstones
+		final int mask = keys.length - 1;
+		int next = (index + 1) & mask;
+		while (used[next]) {
+			final int home = PackedPositionTable.mix(keys[next]) & mask;
+			if (((next - home) & mask) >= ((next - index) & mask)) {
+				keys[index] = keys[next];
+				values[index] = values[next];
+				index = next;
+			}
+			next = (next + 1) & mask;
+		}
+		used[index] = false;
+		size--;
+	}
+
+	/**
+	 * Removes all entries. The capacity is kept, unless the last use needed much less of it, because iterating over the
+	 * values has to look at every slot.
+	 */
+	void clear() {
+		if (keys.length > MIN_CAPACITY && peakSize * 8 < keys.length) {
+			keys = new long[keys.length / 2];
+			values = new double[keys.length];
+			used = new boolean[keys.length];
+		} else if (size > 0) {
+			Arrays.fill(used, false);
+		}
+		size = 0;
+		peakSize = 0;
+	}
+
+	double sum() {
+		double sum = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (used[i]) {
+				sum += values[i];
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * @return the sum of all values, each clamped to the range from 0 to 1
+	 */
+	double clampedSum() {
+		double sum = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (used[i]) {
+				sum += Math.max(Math.min(values[i], 1), 0);
+			}
+		}
+		return sum;
+	}
+
+	private int indexOf(long key) {
+		final int mask = keys.length - 1;
+		int index = PackedPositionTable.mix(key) & mask;
+		while (used[index]) {
+			if (keys[index] == key) {
+				return index;
+			}
+			index = (index + 1) & mask;
+		}
+		return -1;
+	}
+
+	private void resize(int capacity) {
+		final long[] oldKeys = keys;
+		final double[] oldValues = values;
+		final boolean[] oldUsed = used;
+		keys = new long[capacity];
+		values = new double[capacity];
+		used = new boolean[capacity];
+		size = 0;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldUsed[i]) {
+				put(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+}
@@ -33,6 +33,7 @@ import logisticspipes.interfaces.routing.IChannelRoutingConnection;
 import logisticspipes.interfaces.routing.IFilter;
 import logisticspipes.pipes.basic.CoreRoutedPipe;
 import logisticspipes.pipes.basic.LogisticsTileGenericPipe;
+import logisticspipes.proxy.MainProxy;
 import logisticspipes.proxy.SimpleServiceLocator;
 import logisticspipes.proxy.specialconnection.SpecialPipeConnection.ConnectionInformation;
 import logisticspipes.routing.ExitRoute;
@@ -40,6 +41,7 @@ import logisticspipes.routing.IPaintPath;
 import logisticspipes.routing.LaserData;
 import logisticspipes.routing.PipeRoutingConnectionType;
 import logisticspipes.routing.pathfinder.IRouteProvider.RouteInfo;
+import logisticspipes.ticks.LPTickHandler;
 import logisticspipes.utils.OneList;
 import logisticspipes.utils.tuples.Pair;
 import logisticspipes.utils.tuples.Quartet;
@@ -72,14 +74,13 @@ public class PathFinder {
 		}
 		PathFinder newSearch = new PathFinder(maxVisited, maxLength, pathPainter);
 		DoubleCoordinates p = new DoubleCoordinates(startProvider);
-		newSearch.setVisited.add(p);
 		CoordinateUtils.add(p, startOrientation);
 		TileEntity entity = p.getTileEntity(startProvider.getWorld());
 		IPipeInformationProvider provider = SimpleServiceLocator.pipeInformationManager.getInformationProviderFor(entity);
 		if (provider == null) {
 			return new HashMap<>();
 		}
-		return newSearch.getConnectedRoutingPipes(provider, connectionType, startOrientation);
+		return newSearch.search(provider, connectionType, startOrientation, startProvider);
 	}
 
 	public PathFinder(IPipeInformationProvider startPipe, int maxVisited, int maxLength, ITileEntityChangeListener changeListener) {
@@ -89,28 +90,50 @@ public class PathFinder {
 			return;
 		}
 		this.changeListener = changeListener;
-		result = getConnectedRoutingPipes(startPipe, EnumSet.allOf(PipeRoutingConnectionType.class), null);
+		result = search(startPipe, EnumSet.allOf(PipeRoutingConnectionType.class), null, null);
 	}
 
 	public PathFinder(IPipeInformationProvider startPipe, int maxVisited, int maxLength, EnumFacing side) {
 		this(maxVisited, maxLength, null);
-		result = getConnectedRoutingPipes(startPipe, EnumSet.allOf(PipeRoutingConnectionType.class), side);
+		result = search(startPipe, EnumSet.allOf(PipeRoutingConnectionType.class), side, null);
 	}
 
 	private PathFinder(int maxVisited, int maxLength, IPaintPath pathPainter) {
 		this.maxVisited = maxVisited;
 		this.maxLength = maxLength;
-		setVisited = new HashSet<>();
-		distances = new HashMap<>();
 		this.pathPainter = pathPainter;
 	}
 
+	/**
+	 * Visited set and distance map of the searches on one thread. Both only hold packed positions and primitive
+	 * values and keep their capacity, so repeated adjacency checks do not allocate for them.
+	 */
+	private static final class SearchTables {
+
+		private final PackedPositionTable visited = new PackedPositionTable();
+		private final PackedPositionTable distances = new PackedPositionTable();
+		private boolean inUse = false;
+	}
+
+	private static final ThreadLocal<SearchTables> searchTables = ThreadLocal.withInitial(SearchTables::new);
+
 	private final int maxVisited;
 	private final int maxLength;
-	private final HashSet<DoubleCoordinates> setVisited;
-	private final HashMap<DoubleCoordinates, Double> distances;
+	private PackedPositionTable setVisited;
+	private PackedPositionTable distances;
 	private final IPaintPath pathPainter;
 	private double pipesVisited;
+	/**
+	 * Distances on the current path, which have no position of their own in {@link #distances}: the distances of the
+	 * followed special connections and of the inner pipes of followed segments
+	 */
+	private double detachedDistance;
+	private double clampedDetachedDistance;
+	private int detachedDistanceCount;
+	/**
+	 * Pipes on the current path, which are not part of {@link #setVisited}: the inner pipes of followed segments
+	 */
+	private int detachedVisitedCount;
 
 	public List<Pair<ILogisticsPowerProvider, List<IFilter>>> powerNodes;
 	public List<Pair<ISubSystemPowerProvider, List<IFilter>>> subPowerProvider;
@@ -120,10 +143,39 @@ public class PathFinder {
 	public Set<List<ITileEntityChangeListener>> listenedPipes = new HashSet<>();
 	public Set<LPTileEntityObject> touchedPipes = new HashSet<>();
 
+	/**
+	 * @param visitedBefore a pipe to treat as already visited, or null
+	 */
+	private HashMap<CoreRoutedPipe, ExitRoute> search(IPipeInformationProvider startPipe, EnumSet<PipeRoutingConnectionType> connectionFlags, EnumFacing side, IPipeInformationProvider visitedBefore) {
+		SearchTables tables = PathFinder.searchTables.get();
+		if (tables.inUse) {
+			tables = new SearchTables(); // nested search on the same thread
+		}
+		tables.inUse = true;
+		setVisited = tables.visited;
+		distances = tables.distances;
+		try {
+			if (visitedBefore != null) {
+				setVisited.add(PackedPositionTable.pack(visitedBefore));
+			}
+			return getConnectedRoutingPipes(startPipe, connectionFlags, side);
+		} finally {
+			setVisited.clear();
+			distances.clear();
+			detachedDistance = 0;
+			clampedDetachedDistance = 0;
+			detachedDistanceCount = 0;
+			detachedVisitedCount = 0;
+			setVisited = null;
+			distances = null;
+			tables.inUse = false;
+		}
+	}
+
 	private HashMap<CoreRoutedPipe, ExitRoute> getConnectedRoutingPipes(IPipeInformationProvider startPipe, EnumSet<PipeRoutingConnectionType> connectionFlags, EnumFacing side) {
 		HashMap<CoreRoutedPipe, ExitRoute> foundPipes = new HashMap<>();
 
-		final int setVisitedSize = setVisited.size();
+		final int setVisitedSize = setVisited.size() + detachedVisitedCount;
 
 		boolean root = setVisitedSize == 0;
 
@@ -146,7 +198,7 @@ public class PathFinder {
 		//Break recursion after certain length of nodes visited
 		//Maximize to 1 so we don't stop at routes with resistor pipes
 		//Check size of setVisited first to speed up the process, so we don't sum the distances all the time
-		if (setVisitedSize > maxLength && distances.values().stream().mapToDouble(i -> Math.max(Math.min(i, 1), 0)).sum() > maxLength) {
+		if (setVisitedSize > maxLength && clampedPathDistance() > maxLength) {
 			return foundPipes;
 		}
 
@@ -160,34 +212,46 @@ public class PathFinder {
 			if (rp.stillNeedReplace()) {
 				return foundPipes;
 			}
-			double size = 0;
-			for (Double dis : distances.values()) {
-				size += dis;
-			}
+			double size = pathDistance();
 
 			if (!rp.getUpgradeManager().hasPowerPassUpgrade()) {
 				connectionFlags.remove(PipeRoutingConnectionType.canPowerSubSystemFrom);
 			}
 
-			foundPipes.put(rp, new ExitRoute(null, rp.getRouter(), null, side.getOpposite(), Math.max(1, size), connectionFlags, distances.size()));
+			foundPipes.put(rp, new ExitRoute(null, rp.getRouter(), null, side.getOpposite(), Math.max(1, size), connectionFlags, pathBlockDistance()));
 
 			return foundPipes;
 		}
 
+		if (!root && pathPainter == null) {
+			HashMap<CoreRoutedPipe, ExitRoute> segmentResult = followPipeSegment(startPipe, connectionFlags, side);
+			if (segmentResult != null) {
+				return segmentResult;
+			}
+		}
+
 		//Visited is checked after, so we can reach the same target twice to allow to keep the shortest path
-		setVisited.add(new DoubleCoordinates(startPipe));
-		distances.put(new DoubleCoordinates(startPipe), startPipe.getDistance() * startPipe.getDistanceWeight());
+		final long startPosition = PackedPositionTable.pack(startPipe);
+		setVisited.add(startPosition);
+		distances.put(startPosition, startPipe.getDistance() * startPipe.getDistanceWeight());
 
 		// first check specialPipeConnections (tesseracts, teleports, other connectors)
 		List<ConnectionInformation> pipez = SimpleServiceLocator.specialpipeconnection.getConnectedPipes(startPipe, connectionFlags, side);
 		for (ConnectionInformation specialConnection : pipez) {
-			if (setVisited.contains(new DoubleCoordinates(specialConnection.getConnectedPipe()))) {
+			if (setVisited.contains(PackedPositionTable.pack(specialConnection.getConnectedPipe()))) {
 				//Don't go where we have been before
 				continue;
 			}
-			distances.put(new DoubleCoordinates(startPipe).center(), specialConnection.getDistance());
+			// the distance of the special connection adds to the distance of this pipe while following it
+			final double previousDistance = detachedDistance;
+			final double previousClampedDistance = clampedDetachedDistance;
+			detachedDistance += specialConnection.getDistance();
+			clampedDetachedDistance += Math.max(Math.min(specialConnection.getDistance(), 1), 0);
+			detachedDistanceCount++;
 			HashMap<CoreRoutedPipe, ExitRoute> result = getConnectedRoutingPipes(specialConnection.getConnectedPipe(), specialConnection.getConnectionFlags(), specialConnection.getInsertOrientation());
-			distances.remove(new DoubleCoordinates(startPipe).center());
+			detachedDistance = previousDistance;
+			clampedDetachedDistance = previousClampedDistance;
+			detachedDistanceCount--;
 			for (Entry<CoreRoutedPipe, ExitRoute> pipe : result.entrySet()) {
 				pipe.getValue().exitOrientation = specialConnection.getExitOrientation();
 				ExitRoute foundPipe = foundPipes.get(pipe.getKey());
@@ -282,7 +346,7 @@ public class PathFinder {
 					currentPipe.getPartsOfPipe().forEach(this::listTileEntity);
 				}
 
-				if (setVisited.contains(new DoubleCoordinates(currentPipe))) {
+				if (setVisited.contains(PackedPositionTable.pack(currentPipe))) {
 					//Don't go where we have been before
 					continue;
 				}
@@ -324,10 +388,10 @@ public class PathFinder {
 					List<RouteInfo> list = ((IRouteProvider) currentPipe).getConnectedPipes(direction.getOpposite());
 					if (list != null) {
 						result = new HashMap<>();
-						DoubleCoordinates pos = new DoubleCoordinates(currentPipe);
+						final long pos = PackedPositionTable.pack(currentPipe);
 						for (RouteInfo info : list) {
 							if (info.getPipe() == startPipe) continue;
-							if (setVisited.contains(new DoubleCoordinates(info.getPipe()))) {
+							if (setVisited.contains(PackedPositionTable.pack(info.getPipe()))) {
 								//Don't go where we have been before
 								continue;
 							}
@@ -361,8 +425,8 @@ public class PathFinder {
 				}
 			}
 		}
-		setVisited.remove(new DoubleCoordinates(startPipe));
-		distances.remove(new DoubleCoordinates(startPipe));
+		setVisited.remove(startPosition);
+		distances.remove(startPosition);
 		if (startPipe.isRoutingPipe()) { // ie, has the recursion returned to the pipe it started from?
 			for (ExitRoute e : foundPipes.values()) {
 				e.root = (startPipe.getRoutingPipe()).getRouter();
@@ -377,6 +441,147 @@ public class PathFinder {
 		return foundPipes;
 	}
 
+	/**
+	 * Follows a cached segment of plain pipes starting at the given pipe as one weighted edge instead of recursing
+	 * through it, and continues with the usual recursion on the last pipe of the segment. The limit checks the
+	 * recursion would do for each pipe are answered from the prefix sums of the segment.
+	 * <p>
+	 * Only the first and the second to last pipe of the segment are put into the visited set and the distance map, as
+	 * the pipes in between can only be reached over them. The pipes in between are counted in
+	 * {@link #detachedVisitedCount} and the detached distances instead. They are not listened to one by one either, the
+	 * change listener is registered on the segment, which passes on all changes of its pipes. Plain pipes hold no routing
+	 * caches, so they are left out of {@link #touchedPipes}.
+	 *
+	 * @return the found pipes or null, if there is no segment that can be used
+	 */
+	private HashMap<CoreRoutedPipe, ExitRoute> followPipeSegment(IPipeInformationProvider startPipe, EnumSet<PipeRoutingConnectionType> connectionFlags, EnumFacing side) {
+		final World world = startPipe.getWorld();
+		if (side == null || world == null || !MainProxy.isServer(world)) {
+			return null;
+		}
+		final PipeSegmentGraph.Segment segment = LPTickHandler.getWorldInfo(world).getPipeSegmentGraph().getSegment(startPipe, side);
+		if (segment == null) {
+			return null;
+		}
+		final int last = segment.length() - 1;
+		if (segment.getTile(last).isInvalid() || setVisited.contains(segment.positions[last - 1]) || setVisited.contains(segment.positions[last])) {
+			return null;
+		}
+		listSegment(segment);
+
+		// the pipe at which the recursion would stop because no connection flags are left
+		int stop = Integer.MAX_VALUE;
+		if (connectionFlags.isEmpty()) {
+			stop = 1;
+		} else if (connectionFlags.size() == 1 && connectionFlags.contains(PipeRoutingConnectionType.canPowerSubSystemFrom) && segment.firstTurn <= last) {
+			stop = segment.firstTurn;
+		}
+		final int limit = findLimitedPipe(segment, setVisited.size() + detachedVisitedCount);
+		if (limit <= last && limit < stop) {
+			// the limits are checked after counting the pipe as visited
+			pipesVisited += segment.visitPrefix[limit];
+			return new HashMap<>();
+		}
+		if (stop <= last) {
+			pipesVisited += segment.visitPrefix[stop - 1];
+			if (stop == last) {
+				listTileEntity(segment.getTile(last));
+			}
+			return new HashMap<>();
+		}
+		pipesVisited += segment.visitPrefix[last - 1];
+		listTileEntity(segment.getTile(last));
+
+		final EnumSet<PipeRoutingConnectionType> nextConnectionFlags = EnumSet.copyOf(connectionFlags);
+		if (segment.firstTurn <= last) { //Only straight connections for subsystem power
+			nextConnectionFlags.remove(PipeRoutingConnectionType.canPowerSubSystemFrom);
+		}
+		final long first = segment.positions[0];
+		final long beforeLast = segment.positions[last - 1];
+		setVisited.add(first);
+		setVisited.add(beforeLast);
+		distances.put(first, segment.distances[0]);
+		distances.put(beforeLast, segment.distances[last - 1]);
+		final int innerPipes = last - 2;
+		final double previousDistance = detachedDistance;
+		final double previousClampedDistance = clampedDetachedDistance;
+		detachedDistance += segment.distancePrefix[last - 1] - segment.distancePrefix[1];
+		clampedDetachedDistance += segment.clampedPrefix[last - 1] - segment.clampedPrefix[1];
+		detachedDistanceCount += innerPipes;
+		detachedVisitedCount += innerPipes;
+		final HashMap<CoreRoutedPipe, ExitRoute> result;
+		try {
+			result = getConnectedRoutingPipes(segment.pipes[last], nextConnectionFlags, segment.sides[last]);
+		} finally {
+			detachedDistance = previousDistance;
+			clampedDetachedDistance = previousClampedDistance;
+			detachedDistanceCount -= innerPipes;
+			detachedVisitedCount -= innerPipes;
+			setVisited.remove(first);
+			setVisited.remove(beforeLast);
+			distances.remove(first);
+			distances.remove(beforeLast);
+		}
+		for (ExitRoute route : result.values()) {
+			route.exitOrientation = segment.sides[1];
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the first pipe of the segment, which the recursion would not go past because of the visit or length limits.
+	 * All limits only grow along the segment, so the first such pipe is found by a binary search.
+	 *
+	 * @param visitedBefore the number of visited pipes before entering the segment
+	 * @return the index of the pipe or the length of the segment, if the limits are not reached
+	 */
+	private int findLimitedPipe(PipeSegmentGraph.Segment segment, int visitedBefore) {
+		final int last = segment.length() - 1;
+		// only sum up the distances, if the length limit can be reached at all
+		final double clampedBefore = visitedBefore + last - 1 > maxLength ? clampedPathDistance() : 0;
+		if (!isLimitedAt(segment, last - 1, visitedBefore, clampedBefore)) {
+			return segment.length();
+		}
+		int low = 1;
+		int high = last - 1;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (isLimitedAt(segment, mid, visitedBefore, clampedBefore)) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * The checks done when recursing into the pipe at the index, with all pipes before it on the path.
+	 */
+	private boolean isLimitedAt(PipeSegmentGraph.Segment segment, int index, int visitedBefore, double clampedBefore) {
+		return pipesVisited + segment.visitPrefix[index] > maxVisited || visitedBefore + index > maxLength * 10
+				|| (visitedBefore + index > maxLength && clampedBefore + segment.clampedPrefix[index] > maxLength);
+	}
+
+	private void listSegment(PipeSegmentGraph.Segment segment) {
+		if (changeListener != null) {
+			segment.addDependent(changeListener);
+			listenedPipes.add(segment.dependents);
+		}
+	}
+
+	private double pathDistance() {
+		return distances.sum() + detachedDistance;
+	}
+
+	private double clampedPathDistance() {
+		return distances.clampedSum() + clampedDetachedDistance;
+	}
+
+	private int pathBlockDistance() {
+		return distances.size() + detachedDistanceCount;
+	}
+
 	private void listTileEntity(TileEntity tile) {
 		if (changeListener != null && tile instanceof ILPTEInformation && ((ILPTEInformation) tile).getObject() != null) {
 			if (!((ILPTEInformation) tile).getObject().changeListeners.contains(changeListener)) {
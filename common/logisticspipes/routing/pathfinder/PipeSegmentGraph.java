@@ -0,0 +1,330 @@
+package logisticspipes.routing.pathfinder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.world.chunk.Chunk;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import logisticspipes.asm.te.ILPTEInformation;
+import logisticspipes.asm.te.ITileEntityChangeListener;
+import logisticspipes.asm.te.LPTileEntityObject;
+import logisticspipes.proxy.SimpleServiceLocator;
+import network.rs485.logisticspipes.world.DoubleCoordinates;
+
+/**
+ * Per world cache of pipe segments: chains of pipes without a router, fork, special connection or any other property
+ * the {@link PathFinder} would react to. On large networks most of the adjacency check is spent walking such chains
+ * tile by tile, with the segment the path finder only needs to do the bookkeeping for each pipe.
+ * <p>
+ * A segment is identified by its first pipe and the direction this pipe is entered with. It stores the prefix sums of
+ * the distances and visit weights of its pipes, so the path finder can follow it as one weighted edge without looking at
+ * the pipes in between. Every segment registers an {@link ITileEntityChangeListener} on all of its pipes, so any
+ * addition, removal or modification reported by {@link logisticspipes.routing.pathfinder.changedetection.TEControl} on
+ * or next to the segment removes it again and is passed on to the listeners of the path finders which followed it.
+ * Removed tiles and unloaded chunks drop their segments right away, see {@link #tileRemoved(TileEntity)} and
+ * {@link #chunkUnloaded(Chunk)}.
+ */
+public class PipeSegmentGraph {
+
+	/**
+	 * Segments with less pipes are remembered, but not used, to not look them up again
+	 */
+	static final int MIN_SEGMENT_LENGTH = 3;
+	private static final int MAX_SEGMENT_LENGTH = 4096;
+
+	private final List<Long2ObjectOpenHashMap<Segment>> segments = new ArrayList<>(EnumFacing.VALUES.length);
+
+	public PipeSegmentGraph() {
+		for (int i = 0; i < EnumFacing.VALUES.length; i++) {
+			segments.add(new Long2ObjectOpenHashMap<>());
+		}
+	}
+
+	/**
+	 * @param first the first pipe of the segment
+	 * @param side  the direction the first pipe is entered with
+	 * @return the segment starting at the given pipe or null, if there is no usable segment
+	 */
+	synchronized Segment getSegment(IPipeInformationProvider first, EnumFacing side) {
+		final Long2ObjectOpenHashMap<Segment> map = segments.get(side.ordinal());
+		final long key = PackedPositionTable.pack(first);
+		Segment segment = map.get(key);
+		if (segment == null) {
+			segment = build(first, side);
+			if (segment == null) {
+				return null;
+			}
+			segment.register(key);
+			map.put(key, segment);
+		}
+		return segment.isUsable() ? segment : null;
+	}
+
+	/**
+	 * Drops the segments on a tile, which is about to be removed. The change listeners of the tile itself are only told
+	 * about the removal a tick later, until then no path finder may follow a segment over the tile.
+	 */
+	public static void tileRemoved(TileEntity tile) {
+		PipeSegmentGraph.segmentsOn(tile).forEach(segment -> segment.pipeRemoved(new DoubleCoordinates(tile)));
+	}
+
+	/**
+	 * Stops handing out the segments on the tiles of the chunk. Unloaded tiles are not invalidated, without this path
+	 * finders would keep following the segments into the unloaded chunk. The segments stay registered on their pipes
+	 * and still pass on the next change, like the pipes would have done for the path finders listening to them.
+	 */
+	public static void chunkUnloaded(Chunk chunk) {
+		for (TileEntity tile : chunk.getTileEntityMap().values()) {
+			PipeSegmentGraph.segmentsOn(tile).forEach(segment -> segment.getGraph().remove(segment));
+		}
+	}
+
+	private static List<Segment> segmentsOn(TileEntity tile) {
+		if (!(tile instanceof ILPTEInformation) || ((ILPTEInformation) tile).getObject() == null) {
+			return Collections.emptyList();
+		}
+		final List<Segment> result = new ArrayList<>(1);
+		for (ITileEntityChangeListener listener : ((ILPTEInformation) tile).getObject().changeListeners) {
+			if (listener instanceof Segment) {
+				result.add((Segment) listener);
+			}
+		}
+		return result;
+	}
+
+	public synchronized int size() {
+		return segments.stream().mapToInt(Long2ObjectOpenHashMap::size).sum();
+	}
+
+	private synchronized void remove(Segment segment) {
+		final Long2ObjectOpenHashMap<Segment> map = segments.get(segment.sides[0].ordinal());
+		if (map.get(segment.key) == segment) {
+			map.remove(segment.key);
+		}
+	}
+
+	private Segment build(IPipeInformationProvider first, EnumFacing side) {
+		final List<IPipeInformationProvider> pipes = new ArrayList<>();
+		final List<EnumFacing> sides = new ArrayList<>();
+		IPipeInformationProvider current = first;
+		EnumFacing currentSide = side;
+		while (pipes.size() < MAX_SEGMENT_LENGTH) {
+			final IPipeInformationProvider[] next = new IPipeInformationProvider[1];
+			final EnumFacing exit = PipeSegmentGraph.getPlainExit(current, currentSide, next);
+			if (exit == null) {
+				if (next[0] != null) {
+					return null; // a neighbour is not initialized yet, it might become a connection
+				}
+				break;
+			}
+			if (!PipeSegmentGraph.isObserved(current)) {
+				return null; // changes of this pipe could not be noticed
+			}
+			pipes.add(current);
+			sides.add(currentSide);
+			current = next[0];
+			currentSide = exit;
+			if (current.getX() == first.getX() && current.getY() == first.getY() && current.getZ() == first.getZ()) {
+				return null; // closed loop without any fork
+			}
+		}
+		if (pipes.size() >= MAX_SEGMENT_LENGTH) {
+			return null;
+		}
+		if (pipes.isEmpty()) {
+			if (!PipeSegmentGraph.isObserved(first)) {
+				return null;
+			}
+			// the first pipe itself is not plain, remember that until it changes
+			pipes.add(first);
+			sides.add(side);
+			return new Segment(pipes, sides, false);
+		}
+		return new Segment(pipes, sides, true);
+	}
+
+	private static boolean isObserved(IPipeInformationProvider pipe) {
+		return pipe.getTile() instanceof ILPTEInformation && ((ILPTEInformation) pipe.getTile()).getObject() != null;
+	}
+
+	/**
+	 * Checks whether the pipe only leads on to exactly one other pipe, without changing anything on the way.
+	 *
+	 * @param next is set to the next pipe or to a neighbour, which is not initialized yet
+	 * @return the direction of the next pipe, or null if the pipe is not plain
+	 */
+	private static EnumFacing getPlainExit(IPipeInformationProvider pipe, EnumFacing side, IPipeInformationProvider[] next) {
+		if (!pipe.isRouterInitialized() || pipe.isRoutingPipe() || pipe.isFirewallPipe() || pipe.isMultiBlock() || pipe.divideNetwork() || pipe.powerOnly() || pipe.isOnewayPipe()
+				|| pipe instanceof IRouteProvider || SimpleServiceLocator.specialpipeconnection.isType(pipe)) {
+			return null;
+		}
+		EnumFacing exit = null;
+		boolean hasPredecessor = false;
+		for (EnumFacing direction : EnumFacing.VALUES) {
+			final TileEntity tile = pipe.getNextConnectedTile(direction);
+			if (tile == null) {
+				continue;
+			}
+			final IPipeInformationProvider neighbour = SimpleServiceLocator.pipeInformationManager.getInformationProviderFor(tile);
+			if (neighbour == null) {
+				continue; // not a pipe, the path finder ignores it
+			}
+			if (!neighbour.isRouterInitialized()) {
+				next[0] = neighbour;
+				return null;
+			}
+			if (!SimpleServiceLocator.pipeInformationManager.canConnect(pipe, neighbour, direction, true)) {
+				continue;
+			}
+			if (direction == side.getOpposite()) {
+				hasPredecessor = true;
+			} else if (exit == null) {
+				exit = direction;
+				next[0] = neighbour;
+			} else {
+				next[0] = null;
+				return null; // fork
+			}
+		}
+		if (!hasPredecessor) {
+			next[0] = null;
+			return null;
+		}
+		return exit;
+	}
+
+	/**
+	 * A chain of plain pipes. Each pipe connects to its predecessor and to the next pipe only, the last pipe connects
+	 * to the first pipe after the segment, which is not plain.
+	 */
+	final class Segment implements ITileEntityChangeListener {
+
+		final IPipeInformationProvider[] pipes;
+		final long[] positions;
+		/**
+		 * The direction each pipe is entered with
+		 */
+		final EnumFacing[] sides;
+		final double[] distances;
+		/**
+		 * {@code distancePrefix[i]} is the sum of the distances of the pipes before pipe {@code i}
+		 */
+		final double[] distancePrefix;
+		/**
+		 * Same as {@link #distancePrefix}, with each distance clamped to the range from 0 to 1
+		 */
+		final double[] clampedPrefix;
+		/**
+		 * {@code visitPrefix[i]} is the sum of the visit weights of the pipes 1 to {@code i}
+		 */
+		final double[] visitPrefix;
+		/**
+		 * The first pipe, which is entered with another direction than its predecessor, or {@link #length()} if the
+		 * segment is straight
+		 */
+		final int firstTurn;
+		/**
+		 * Listeners of the path finders which followed the segment, they are told about all changes of the segment
+		 */
+		final List<ITileEntityChangeListener> dependents = new ArrayList<>();
+		private final boolean usable;
+		private final List<List<ITileEntityChangeListener>> registeredLists = new ArrayList<>();
+		private long key;
+
+		private Segment(List<IPipeInformationProvider> pipes, List<EnumFacing> sides, boolean plain) {
+			this.pipes = pipes.toArray(new IPipeInformationProvider[0]);
+			this.sides = sides.toArray(new EnumFacing[0]);
+			positions = new long[this.pipes.length];
+			distances = new double[this.pipes.length];
+			distancePrefix = new double[this.pipes.length + 1];
+			clampedPrefix = new double[this.pipes.length + 1];
+			visitPrefix = new double[this.pipes.length];
+			int turn = this.pipes.length;
+			for (int i = 0; i < this.pipes.length; i++) {
+				final IPipeInformationProvider pipe = this.pipes[i];
+				positions[i] = PackedPositionTable.pack(pipe);
+				distances[i] = pipe.getDistance() * pipe.getDistanceWeight();
+				distancePrefix[i + 1] = distancePrefix[i] + distances[i];
+				clampedPrefix[i + 1] = clampedPrefix[i] + Math.max(Math.min(distances[i], 1), 0);
+				if (i > 0) {
+					visitPrefix[i] = visitPrefix[i - 1] + (pipe.getDistanceWeight() > 0 ? pipe.getDistanceWeight() : 1);
+					if (turn == this.pipes.length && this.sides[i - 1] != this.sides[i]) {
+						turn = i;
+					}
+				}
+			}
+			firstTurn = turn;
+			usable = plain && this.pipes.length >= MIN_SEGMENT_LENGTH;
+		}
+
+		int length() {
+			return pipes.length;
+		}
+
+		private PipeSegmentGraph getGraph() {
+			return PipeSegmentGraph.this;
+		}
+
+		boolean isUsable() {
+			return usable;
+		}
+
+		TileEntity getTile(int index) {
+			return pipes[index].getTile();
+		}
+
+		void addDependent(ITileEntityChangeListener listener) {
+			synchronized (dependents) {
+				if (!dependents.contains(listener)) {
+					dependents.add(listener);
+				}
+			}
+		}
+
+		private void register(long key) {
+			this.key = key;
+			for (IPipeInformationProvider pipe : pipes) {
+				final LPTileEntityObject object = ((ILPTEInformation) pipe.getTile()).getObject();
+				object.changeListeners.add(this);
+				registeredLists.add(object.changeListeners);
+			}
+		}
+
+		private void invalidate() {
+			remove(this);
+			for (List<ITileEntityChangeListener> list : registeredLists) {
+				list.remove(this);
+			}
+			registeredLists.clear();
+		}
+
+		private List<ITileEntityChangeListener> invalidateAndGetDependents() {
+			invalidate();
+			synchronized (dependents) {
+				final List<ITileEntityChangeListener> listeners = new ArrayList<>(dependents);
+				dependents.clear();
+				return listeners;
+			}
+		}
+
+		@Override
+		public void pipeRemoved(DoubleCoordinates pos) {
+			invalidateAndGetDependents().forEach(listener -> listener.pipeRemoved(pos));
+		}
+
+		@Override
+		public void pipeAdded(DoubleCoordinates pos, EnumFacing side) {
+			invalidateAndGetDependents().forEach(listener -> listener.pipeAdded(pos, side));
+		}
+
+		@Override
+		public void pipeModified(DoubleCoordinates pos) {
+			invalidateAndGetDependents().forEach(listener -> listener.pipeModified(pos));
+		}
+	}
+}
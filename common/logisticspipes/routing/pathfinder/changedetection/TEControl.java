@@ -13,6 +13,7 @@ import logisticspipes.asm.te.LPTileEntityObject;
 import logisticspipes.pipes.basic.LogisticsTileGenericPipe;
 import logisticspipes.proxy.MainProxy;
 import logisticspipes.proxy.SimpleServiceLocator;
+import logisticspipes.routing.pathfinder.PipeSegmentGraph;
 import logisticspipes.ticks.LPTickHandler;
 import logisticspipes.ticks.LPTickHandler.LPWorldInfo;
 import logisticspipes.ticks.QueuedTasks;
@@ -79,6 +80,7 @@ public class TEControl {
 			return;
 		}
 		if (((ILPTEInformation) tile).getObject() != null) {
+			PipeSegmentGraph.tileRemoved(tile);
 			QueuedTasks.queueTask(() -> {
 				DoubleCoordinates pos = new DoubleCoordinates(tile);
 				for (EnumFacing dir : EnumFacing.VALUES) {
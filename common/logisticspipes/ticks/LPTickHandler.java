@@ -22,7 +22,9 @@ import lombok.Setter;
 import logisticspipes.commands.commands.debug.DebugGuiController;
 import logisticspipes.proxy.MainProxy;
 import logisticspipes.proxy.SimpleServiceLocator;
+import logisticspipes.routing.pathfinder.PipeSegmentGraph;
 import logisticspipes.routing.pathfinder.changedetection.LPWorldAccess;
+import logisticspipes.transport.ItemTransportEngine;
 import logisticspipes.utils.FluidIdentifier;
 import network.rs485.grow.ServerTickDispatcher;
 import network.rs485.logisticspipes.world.DoubleCoordinates;
@@ -65,6 +67,7 @@ public class LPTickHandler {
 		}
 		LPWorldInfo info = LPTickHandler.getWorldInfo(event.world);
 		info.worldTick++;
+		ItemTransportEngine.tick(event.world);
 	}
 
 	public static LPWorldInfo getWorldInfo(World world) {
@@ -89,5 +92,7 @@ public class LPTickHandler {
 		@Getter
 		@Setter
 		private boolean skipBlockUpdateForWorld = false;
+		@Getter
+		private final PipeSegmentGraph pipeSegmentGraph = new PipeSegmentGraph();
 	}
 }
@@ -1,15 +1,41 @@
 package logisticspipes.ticks;
 
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.HashMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import logisticspipes.config.Configs;
 
 public class RoutingTableUpdateThread extends Thread {
 
-	private static PriorityBlockingQueue<Runnable> updateCalls = new PriorityBlockingQueue<>();
+	// ordered by the natural ordering of the queued runnables, which has to be consistent with equals
+	private static final TreeSet<Runnable> updateCalls = new TreeSet<>();
+	private static final HashMap<Object, ICoalescingRunnable> pendingByKey = new HashMap<>();
+	private static final ReentrantLock queueLock = new ReentrantLock();
+	private static final Condition queueNotEmpty = RoutingTableUpdateThread.queueLock.newCondition();
+
+	private static final AtomicLong coalesced = new AtomicLong();
+	private static final AtomicLong dropped = new AtomicLong();
 
 	private static Long average = 0L;
 
+	/**
+	 * A task of which at most one is queued per key. Adding a task while another one with the same key is still queued
+	 * merges the new one into the queued task instead.
+	 */
+	public interface ICoalescingRunnable extends Runnable {
+
+		Object getCoalescingKey();
+
+		/**
+		 * Called with the queue lock held, while this task is taken out of the queue ordering, so it may change the
+		 * fields its ordering depends on.
+		 */
+		void coalesce(ICoalescingRunnable newer);
+	}
+
 	public RoutingTableUpdateThread(int i) {
 		super("LogisticsPipes RoutingTableUpdateThread #" + i);
 		setDaemon(true);
@@ -18,15 +44,70 @@ public class RoutingTableUpdateThread extends Thread {
 	}
 
 	public static void add(Runnable run) {
-		RoutingTableUpdateThread.updateCalls.add(run);
+		RoutingTableUpdateThread.queueLock.lock();
+		try {
+			if (run instanceof ICoalescingRunnable) {
+				final ICoalescingRunnable coalescing = (ICoalescingRunnable) run;
+				final ICoalescingRunnable queued = RoutingTableUpdateThread.pendingByKey.get(coalescing.getCoalescingKey());
+				if (queued != null) {
+					RoutingTableUpdateThread.updateCalls.remove(queued);
+					queued.coalesce(coalescing);
+					RoutingTableUpdateThread.updateCalls.add(queued);
+					RoutingTableUpdateThread.coalesced.incrementAndGet();
+					return;
+				}
+				RoutingTableUpdateThread.pendingByKey.put(coalescing.getCoalescingKey(), coalescing);
+			}
+			RoutingTableUpdateThread.updateCalls.add(run);
+			RoutingTableUpdateThread.queueNotEmpty.signal();
+		} finally {
+			RoutingTableUpdateThread.queueLock.unlock();
+		}
 	}
 
 	public static boolean remove(Runnable run) {
-		return RoutingTableUpdateThread.updateCalls.remove(run);
+		RoutingTableUpdateThread.queueLock.lock();
+		try {
+			if (!RoutingTableUpdateThread.updateCalls.remove(run)) {
+				return false;
+			}
+			if (run instanceof ICoalescingRunnable) {
+				RoutingTableUpdateThread.pendingByKey.remove(((ICoalescingRunnable) run).getCoalescingKey());
+			}
+			return true;
+		} finally {
+			RoutingTableUpdateThread.queueLock.unlock();
+		}
 	}
 
 	public static int size() {
-		return RoutingTableUpdateThread.updateCalls.size();
+		RoutingTableUpdateThread.queueLock.lock();
+		try {
+			return RoutingTableUpdateThread.updateCalls.size();
+		} finally {
+			RoutingTableUpdateThread.queueLock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of tasks, which were merged into an already queued task
+	 */
+	public static long getCoalesced() {
+		return RoutingTableUpdateThread.coalesced.get();
+	}
+
+	/**
+	 * @return the number of tasks, which were taken from the queue but had nothing left to do
+	 */
+	public static long getDropped() {
+		return RoutingTableUpdateThread.dropped.get();
+	}
+
+	/**
+	 * Counts a task, that was dequeued but did not do its work, because it became obsolete while queued.
+	 */
+	public static void taskDropped() {
+		RoutingTableUpdateThread.dropped.incrementAndGet();
 	}
 
 	public static long getAverage() {
@@ -35,12 +116,29 @@ public class RoutingTableUpdateThread extends Thread {
 		}
 	}
 
+	private static Runnable take() throws InterruptedException {
+		RoutingTableUpdateThread.queueLock.lockInterruptibly();
+		try {
+			while (RoutingTableUpdateThread.updateCalls.isEmpty()) {
+				RoutingTableUpdateThread.queueNotEmpty.await();
+			}
+			final Runnable item = RoutingTableUpdateThread.updateCalls.pollFirst();
+			if (item instanceof ICoalescingRunnable) {
+				// a task added from now on has to run again, this one might already miss its changes
+				RoutingTableUpdateThread.pendingByKey.remove(((ICoalescingRunnable) item).getCoalescingKey());
+			}
+			return item;
+		} finally {
+			RoutingTableUpdateThread.queueLock.unlock();
+		}
+	}
+
 	@Override
 	public void run() {
 		Runnable item;
 		// take blocks until things are available, no need to check
 		try {
-			while ((item = RoutingTableUpdateThread.updateCalls.take()) != null) {
+			while ((item = RoutingTableUpdateThread.take()) != null) {
 				long starttime = System.nanoTime();
 				item.run();
 				long took = System.nanoTime() - starttime;
@@ -0,0 +1,67 @@
+package logisticspipes.transport;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+import net.minecraft.world.World;
+
+import com.google.common.collect.MapMaker;
+
+/**
+ * Moves the traveling items of all pipes of one server world in one pass at the end of every world tick, instead of in
+ * the tile entity update of each pipe. Only pipes with items to move, to load or to send from their buffer are in the
+ * engine: a pipe joins when it gets one and is dropped after the pass it has none left in.
+ * <p>
+ * Items handed to the next pipe make that pipe join right away, it is moved later in the same pass. Items only move
+ * once per tick anyway, see {@link LPTravelingItem#lastTicked}. Client pipes still move their items themselves.
+ */
+public final class ItemTransportEngine {
+
+	private static final Map<World, ItemTransportEngine> engines = new MapMaker().weakKeys().makeMap();
+
+	private final ArrayList<PipeTransportLogistics> active = new ArrayList<>();
+
+	private ItemTransportEngine() {}
+
+	static void activate(PipeTransportLogistics transport) {
+		ItemTransportEngine.engines.computeIfAbsent(transport.getWorld(), unused -> new ItemTransportEngine()).active.add(transport);
+		transport.engineActive = true;
+	}
+
+	/**
+	 * Moves the items of the world, called at the end of its tick on the server thread.
+	 */
+	public static void tick(World world) {
+		final ItemTransportEngine engine = ItemTransportEngine.engines.get(world);
+		if (engine != null) {
+			engine.tick();
+		}
+	}
+
+	public static void worldUnloaded(World world) {
+		final ItemTransportEngine engine = ItemTransportEngine.engines.remove(world);
+		if (engine != null) {
+			engine.active.forEach(transport -> transport.engineActive = false);
+		}
+	}
+
+	private void tick() {
+		// pipes joining during the pass are appended and moved in it as well
+		for (int i = 0; i < active.size(); i++) {
+			final PipeTransportLogistics transport = active.get(i);
+			if (transport.canTransport()) {
+				transport.tickTransport();
+			}
+		}
+		int kept = 0;
+		for (int i = 0; i < active.size(); i++) {
+			final PipeTransportLogistics transport = active.get(i);
+			if (transport.canTransport() && transport.hasTransportWork()) {
+				active.set(kept++, transport);
+			} else {
+				transport.engineActive = false;
+			}
+		}
+		active.subList(kept, active.size()).clear();
+	}
+}
@@ -1,26 +1,54 @@
 package logisticspipes.transport;
 
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.Set;
+import java.util.NoSuchElementException;
 import javax.annotation.Nonnull;
 
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
 
+/**
+ * The items traveling through one pipe, stored densely in parallel arrays: the item, the id it was added with, whether
+ * its removal is scheduled and its movement state (position, speed and yaw). Adding, removing and iterating by index
+ * does not allocate once the arrays are big enough, removals are done in one compacting pass keeping the order of the
+ * remaining items.
+ * <p>
+ * While an item is in the list its movement state is only kept here and its accessors read and write the arrays. It is
+ * copied back to the item when the item is removed or added to another list. Input and output stay on the item, they
+ * are only changed when it enters a pipe or is rerouted.
+ * <p>
+ * Items are looked up by identity, like they were in the hash based collections before, and by their id through a
+ * second index, which points to the item added last with that id. While iterating (between
+ * {@link #scheduleAdd()} and {@link #addScheduledItems()}) added items are only appended afterwards, so the indices
+ * stay valid.
+ */
 public class LPItemList implements Iterable<LPTravelingItem> {
 
-	private final BiMap<Integer, LPTravelingItem> items = HashBiMap.create();
-	private final Set<LPTravelingItem> toLoad = new HashSet<>();
-	private final Set<LPTravelingItem> toAdd = new HashSet<>();
-	private final Set<LPTravelingItem> toRemove = new HashSet<>();
+	private static final int MIN_CAPACITY = 8;
+
+	private final Reference2IntOpenHashMap<LPTravelingItem> indices = new Reference2IntOpenHashMap<>();
+	private final Int2IntOpenHashMap idIndices = new Int2IntOpenHashMap();
+	private LPTravelingItem[] items = new LPTravelingItem[LPItemList.MIN_CAPACITY];
+	private int[] ids = new int[LPItemList.MIN_CAPACITY];
+	private boolean[] removalScheduled = new boolean[LPItemList.MIN_CAPACITY];
+	float[] positions = new float[LPItemList.MIN_CAPACITY];
+	float[] speeds = new float[LPItemList.MIN_CAPACITY];
+	float[] yaws = new float[LPItemList.MIN_CAPACITY];
+	private int size = 0;
+	private int scheduledRemovals = 0;
+
+	private final ArrayList<LPTravelingItem> toLoad = new ArrayList<>();
+	private final ArrayList<LPTravelingItem> toAdd = new ArrayList<>();
 	private int delay = 0;
 	private final PipeTransportLogistics pipe;
 	private boolean iterating = false;
 
 	public LPItemList(PipeTransportLogistics pipe) {
 		this.pipe = pipe;
+		indices.defaultReturnValue(-1);
+		idIndices.defaultReturnValue(-1);
 	}
 
 	public void add(LPTravelingItem item) {
@@ -28,19 +56,78 @@ public class LPItemList implements Iterable<LPTravelingItem> {
 			toAdd.add(item);
 			return;
 		}
-		if (items.containsValue(item)) {
+		if (indices.containsKey(item)) {
 			return;
 		}
 		item.setContainer(pipe.container);
-		items.put(item.getId(), item);
+		if (size == items.length) {
+			items = Arrays.copyOf(items, size * 2);
+			ids = Arrays.copyOf(ids, size * 2);
+			removalScheduled = Arrays.copyOf(removalScheduled, size * 2);
+			positions = Arrays.copyOf(positions, size * 2);
+			speeds = Arrays.copyOf(speeds, size * 2);
+			yaws = Arrays.copyOf(yaws, size * 2);
+		}
+		if (item.list != null) {
+			// still in the list of the pipe it came from, until that one is flushed
+			item.list.detach(item);
+		}
+		items[size] = item;
+		ids[size] = item.getId();
+		removalScheduled[size] = false;
+		positions[size] = item.position;
+		speeds[size] = item.speed;
+		yaws[size] = item.yaw;
+		item.list = this;
+		item.index = size;
+		indices.put(item, size);
+		idIndices.put(ids[size], size);
+		size++;
+		pipe.activate();
+	}
+
+	/**
+	 * @return the item, which had the given id when it was added, or null
+	 */
+	public LPTravelingItem get(int id) {
+		final int index = idIndices.get(id);
+		return index < 0 ? null : items[index];
 	}
 
-	private void addAll(Collection<? extends LPTravelingItem> collection) {
-		collection.forEach(this::add);
+	/**
+	 * @return the number of items, including the ones with a scheduled removal
+	 */
+	public int size() {
+		return size;
 	}
 
-	public LPTravelingItem get(int id) {
-		return items.get(id);
+	/**
+	 * @param index from 0 to {@link #size()} - 1, invalidated by removing items
+	 */
+	@Nonnull
+	public LPTravelingItem itemAt(int index) {
+		return items[index];
+	}
+
+	/**
+	 * Moves the item at the given index by its speed.
+	 */
+	void advance(int index) {
+		final LPTravelingItem item = items[index];
+		if (item.list == this) {
+			positions[index] += speeds[index];
+		} else {
+			item.setPosition(item.getPosition() + item.getSpeed());
+		}
+	}
+
+	private void detach(LPTravelingItem item) {
+		final int index = item.index;
+		item.position = positions[index];
+		item.speed = speeds[index];
+		item.yaw = yaws[index];
+		item.list = null;
+		item.index = -1;
 	}
 
 	void scheduleLoad(LPTravelingItem item) {
@@ -48,72 +135,147 @@ public class LPItemList implements Iterable<LPTravelingItem> {
 		toLoad.add(item);
 	}
 
+	boolean hasScheduledLoad() {
+		return !toLoad.isEmpty();
+	}
+
 	private void loadScheduledItems() {
 		if (delay > 0) {
 			delay--;
 			return;
 		}
-		addAll(toLoad);
-		toLoad.clear();
+		if (!toLoad.isEmpty()) {
+			toLoad.forEach(this::add);
+			toLoad.clear();
+		}
 	}
 
 	public void scheduleAdd() {
 		iterating = true;
-
 	}
 
 	public void addScheduledItems() {
 		iterating = false;
-		addAll(toAdd);
-		toAdd.clear();
+		if (!toAdd.isEmpty()) {
+			toAdd.forEach(this::add);
+			toAdd.clear();
+		}
 	}
 
+	/**
+	 * @return false, if the removal of the item was scheduled already
+	 */
 	public boolean scheduleRemoval(LPTravelingItem item) {
-		return toRemove.add(item);
+		final int index = indices.getInt(item);
+		if (index < 0) {
+			return true;
+		}
+		if (removalScheduled[index]) {
+			return false;
+		}
+		removalScheduled[index] = true;
+		scheduledRemovals++;
+		return true;
 	}
 
 	public boolean unscheduleRemoval(LPTravelingItem item) {
-		return toRemove.remove(item);
+		final int index = indices.getInt(item);
+		if (index < 0 || !removalScheduled[index]) {
+			return false;
+		}
+		removalScheduled[index] = false;
+		scheduledRemovals--;
+		return true;
 	}
 
 	void removeScheduledItems() {
-		items.values().removeAll(toRemove);
-		toRemove.clear();
+		if (scheduledRemovals > 0) {
+			compact(false);
+		}
 	}
 
-	void purgeBadItems() {
-		Iterator<LPTravelingItem> it = items.values().iterator();
-		while (it.hasNext()) {
-			LPTravelingItem item = it.next();
-			if (item.isCorrupted()) {
-				it.remove();
-				continue;
-			}
+	public void flush() {
+		loadScheduledItems();
+		// also drops the items with a scheduled removal
+		compact(true);
+	}
 
-			if (item.getContainer() != pipe.container) {
-				it.remove();
+	/**
+	 * Removes the items with a scheduled removal and, if purging, corrupted items and items which moved to another
+	 * container, in one pass.
+	 */
+	private void compact(boolean purge) {
+		int kept = 0;
+		for (int i = 0; i < size; i++) {
+			final LPTravelingItem item = items[i];
+			if (removalScheduled[i] || (purge && (item.isCorrupted() || item.getContainer() != pipe.container))) {
+				indices.removeInt(item);
+				if (idIndices.get(ids[i]) == i) {
+					idIndices.remove(ids[i]);
+				}
+				if (item.list == this) {
+					detach(item);
+				}
 				continue;
 			}
+			if (kept != i) {
+				items[kept] = item;
+				ids[kept] = ids[i];
+				removalScheduled[kept] = false;
+				positions[kept] = positions[i];
+				speeds[kept] = speeds[i];
+				yaws[kept] = yaws[i];
+				if (item.list == this) {
+					item.index = kept;
+				}
+				indices.put(item, kept);
+				if (idIndices.get(ids[i]) == i) {
+					idIndices.put(ids[i], kept);
+				}
+			}
+			kept++;
 		}
-	}
-
-	public void flush() {
-		loadScheduledItems();
-		removeScheduledItems();
-		purgeBadItems();
+		Arrays.fill(items, kept, size, null);
+		size = kept;
+		scheduledRemovals = 0;
 	}
 
 	@Nonnull
 	@Override
 	public Iterator<LPTravelingItem> iterator() {
-		return items.values().iterator();
+		return new Iterator<LPTravelingItem>() {
+
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public LPTravelingItem next() {
+				if (next >= size) {
+					throw new NoSuchElementException();
+				}
+				return items[next++];
+			}
+		};
 	}
 
 	void clear() {
-		items.clear();
+		for (int i = 0; i < size; i++) {
+			if (items[i].list == this) {
+				detach(items[i]);
+			}
+		}
+		indices.clear();
+		idIndices.clear();
+		Arrays.fill(items, 0, size, null);
+		size = 0;
+		scheduledRemovals = 0;
 	}
 
 	public boolean isEmpty() {
-		return items.isEmpty();
+		return size == 0;
 	}
 }
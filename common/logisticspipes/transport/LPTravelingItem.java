@@ -58,6 +58,13 @@ public abstract class LPTravelingItem {
 	public EnumFacing output = null;
 	public final EnumSet<EnumFacing> blacklist = EnumSet.noneOf(EnumFacing.class);
 
+	/**
+	 * The list holding the position, speed and yaw of this item while it is in a pipe, see {@link LPItemList}. The
+	 * fields above are only used while this is null.
+	 */
+	LPItemList list = null;
+	int index = -1;
+
 	public LPTravelingItem() {
 		id = getNextId();
 	}
@@ -79,27 +86,39 @@ public abstract class LPTravelingItem {
 	}
 
 	public void setPosition(float position) {
-		this.position = position;
+		if (list != null) {
+			list.positions[index] = position;
+		} else {
+			this.position = position;
+		}
 	}
 
 	public void setYaw(float yaw) {
-		this.yaw = yaw % 360;
+		if (list != null) {
+			list.yaws[index] = yaw % 360;
+		} else {
+			this.yaw = yaw % 360;
+		}
 	}
 
 	public float getPosition() {
-		return position;
+		return list != null ? list.positions[index] : position;
 	}
 
 	public float getYaw() {
-		return yaw;
+		return list != null ? list.yaws[index] : yaw;
 	}
 
 	public float getSpeed() {
-		return speed;
+		return list != null ? list.speeds[index] : speed;
 	}
 
 	public void setSpeed(float speed) {
-		this.speed = speed;
+		if (list != null) {
+			list.speeds[index] = speed;
+		} else {
+			this.speed = speed;
+		}
 	}
 
 	public void setContainer(TileEntity container) {
@@ -156,9 +175,9 @@ public abstract class LPTravelingItem {
 		public void updateInformation(EnumFacing input, EnumFacing output, float speed, float position, float yaw) {
 			this.input = input;
 			this.output = output;
-			this.speed = speed;
-			this.position = position;
-			this.yaw = yaw;
+			setSpeed(speed);
+			setPosition(position);
+			setYaw(yaw);
 		}
 
 		@Override
@@ -178,8 +197,8 @@ public abstract class LPTravelingItem {
 
 		@Override
 		public LPTravelingItem renderCopy() {
-			LPTravelingItemClient copy = new LPTravelingItemClient(id, position, input, output, yaw);
-			copy.speed = speed;
+			LPTravelingItemClient copy = new LPTravelingItemClient(id, getPosition(), input, output, getYaw());
+			copy.speed = getSpeed();
 			copy.hoverStart = hoverStart;
 			copy.item = new ItemIdentifierStack(item);
 			copy.age = age;
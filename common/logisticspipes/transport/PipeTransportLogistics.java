@@ -87,6 +87,9 @@ public class PipeTransportLogistics {
 	private Chunk chunk;
 	public LPItemList items = new LPItemList(this);
 	public LogisticsTileGenericPipe container;
+	// set while the item transport engine of the world ticks this pipe
+	boolean engineActive = false;
+	private boolean chunkUnloaded = false;
 	public final boolean isRouted;
 	public final int MAX_DESTINATION_UNREACHABLE_BUFFER = 30;
 
@@ -130,39 +133,81 @@ public class PipeTransportLogistics {
 	}
 
 	public void updateEntity() {
+		if (MainProxy.isClient(getWorld())) {
+			moveSolids();
+			return;
+		}
+		// the items are moved by the engine of the world, this only makes sure it knows about them
+		if (!engineActive && hasTransportWork()) {
+			ItemTransportEngine.activate(this);
+		}
+	}
+
+	/**
+	 * Lets the {@link ItemTransportEngine} of the world move the items of this pipe, if it does not already.
+	 */
+	void activate() {
+		if (!engineActive && container != null && container.getWorld() != null && MainProxy.isServer(container.getWorld())) {
+			ItemTransportEngine.activate(this);
+		}
+	}
+
+	/**
+	 * @return true, if there are items to move, to load or to send from the buffer
+	 */
+	boolean hasTransportWork() {
+		return !items.isEmpty() || items.hasScheduledLoad() || !_itemBuffer.isEmpty();
+	}
+
+	/**
+	 * @return false, once the tile entity of the pipe was invalidated, unloaded or got another transport
+	 */
+	boolean canTransport() {
+		return !chunkUnloaded && container != null && !container.isInvalid() && container.pipe != null && container.pipe.transport == this;
+	}
+
+	public void onChunkUnload() {
+		chunkUnloaded = true;
+	}
+
+	/**
+	 * Moves the items and sends buffered items again, called by the {@link ItemTransportEngine} once per tick.
+	 */
+	void tickTransport() {
 		moveSolids();
-		if (MainProxy.isServer(getWorld())) {
-			if (!_itemBuffer.isEmpty()) {
-				List<LPTravelingItem> toAdd = new LinkedList<>();
-				Iterator<Triplet<ItemIdentifierStack, Pair<Integer, Integer>, LPTravelingItemServer>> iterator = _itemBuffer.iterator();
-				while (iterator.hasNext()) {
-					Triplet<ItemIdentifierStack, Pair<Integer, Integer>, LPTravelingItemServer> next = iterator.next();
-					int currentTimeOut = next.getValue2().getValue1();
-					if (currentTimeOut > 0) {
-						next.getValue2().setValue1(currentTimeOut - 1);
-					} else if (next.getValue3() != null) {
-						if (getRoutedPipe().getRouter().hasRoute(next.getValue3().getDestination(), next.getValue3().getTransportMode() == TransportMode.Active, next.getValue3().getItemIdentifierStack().getItem()) || next.getValue2().getValue2() > MAX_DESTINATION_UNREACHABLE_BUFFER) {
-							next.getValue3().setBufferCounter(next.getValue2().getValue2() + 1);
-							toAdd.add(next.getValue3());
-							iterator.remove();
-						} else {
-							next.getValue2().setValue2(next.getValue2().getValue2() + 1);
-							next.getValue2().setValue1(_bufferTimeOut);
+		if (!_itemBuffer.isEmpty()) {
+			List<LPTravelingItem> toAdd = new LinkedList<>();
+			Iterator<Triplet<ItemIdentifierStack, Pair<Integer, Integer>, LPTravelingItemServer>> iterator = _itemBuffer.iterator();
+			while (iterator.hasNext()) {
+				Triplet<ItemIdentifierStack, Pair<Integer, Integer>, LPTravelingItemServer> next = iterator.next();
+				int currentTimeOut = next.getValue2().getValue1();
+				if (currentTimeOut > 0) {
+					next.getValue2().setValue1(currentTimeOut - 1);
+				} else if (next.getValue3() != null) {
+					if (getRoutedPipe().getRouter().hasRoute(next.getValue3().getDestination(), next.getValue3().getTransportMode() == TransportMode.Active, next.getValue3().getItemIdentifierStack().getItem()) || next.getValue2().getValue2() > MAX_DESTINATION_UNREACHABLE_BUFFER) {
+						next.getValue3().setBufferCounter(next.getValue2().getValue2() + 1);
+						if (next.getValue3().getDistanceTracker() != null) {
+							next.getValue3().getDistanceTracker().setBuffered(false);
 						}
-					} else {
-						LPTravelingItemServer item = SimpleServiceLocator.routedItemHelper.createNewTravelItem(next.getValue1());
-						item.setDoNotBuffer(true);
-						item.setBufferCounter(next.getValue2().getValue2() + 1);
-						toAdd.add(item);
+						toAdd.add(next.getValue3());
 						iterator.remove();
+					} else {
+						next.getValue2().setValue2(next.getValue2().getValue2() + 1);
+						next.getValue2().setValue1(_bufferTimeOut);
 					}
+				} else {
+					LPTravelingItemServer item = SimpleServiceLocator.routedItemHelper.createNewTravelItem(next.getValue1());
+					item.setDoNotBuffer(true);
+					item.setBufferCounter(next.getValue2().getValue2() + 1);
+					toAdd.add(item);
+					iterator.remove();
 				}
-				for (LPTravelingItem item : toAdd) {
-					this.injectItem(item, EnumFacing.UP);
-				}
 			}
-			_itemBuffer.sendUpdateToWaters();
+			for (LPTravelingItem item : toAdd) {
+				this.injectItem(item, EnumFacing.UP);
+			}
 		}
+		_itemBuffer.sendUpdateToWaters();
 	}
 
 	public void dropBuffer() {
@@ -329,7 +374,11 @@ public class PipeTransportLogistics {
 		}
 
 		if (data.getDestination() >= 0 && !getRoutedPipe().getRouter().hasRoute(data.getDestination(), data.getTransportMode() == TransportMode.Active, data.getItemIdentifierStack().getItem()) && data.getBufferCounter() < MAX_DESTINATION_UNREACHABLE_BUFFER) {
+			if (data.getDistanceTracker() != null) {
+				data.getDistanceTracker().setBuffered(true);
+			}
 			_itemBuffer.add(new Triplet<>(data.getItemIdentifierStack(), new Pair<>(_bufferTimeOut, data.getBufferCounter()), data));
+			activate();
 			return new RoutingResult(null, false);
 		}
 
@@ -346,6 +395,7 @@ public class PipeTransportLogistics {
 
 		if (value == null && !data.getDoNotBuffer() && data.getBufferCounter() < 5) {
 			_itemBuffer.add(new Triplet<>(data.getItemIdentifierStack(), new Pair<>(_bufferTimeOut, data.getBufferCounter()), null));
+			activate();
 			return new RoutingResult(null, false);
 		}
 
@@ -652,13 +702,15 @@ public class PipeTransportLogistics {
 	private void moveSolids() {
 		items.flush();
 		items.scheduleAdd();
-		for (LPTravelingItem item : items) {
-			if (item.lastTicked >= MainProxy.getGlobalTick()) {
+		final int tick = MainProxy.getGlobalTick();
+		for (int i = 0, size = items.size(); i < size; i++) {
+			final LPTravelingItem item = items.itemAt(i);
+			if (item.lastTicked >= tick) {
 				continue;
 			}
-			item.lastTicked = MainProxy.getGlobalTick();
+			item.lastTicked = tick;
 			item.addAge();
-			item.setPosition(item.getPosition() + item.getSpeed());
+			items.advance(i);
 			if (hasReachedEnd(item)) {
 				if (item.output == null) {
 					if (MainProxy.isServer(container.getWorld())) {
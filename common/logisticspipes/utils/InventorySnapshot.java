@@ -0,0 +1,170 @@
+package logisticspipes.utils;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+
+import net.minecraftforge.items.IItemHandler;
+
+import com.google.common.collect.MapMaker;
+
+import logisticspipes.proxy.MainProxy;
+import logisticspipes.utils.item.ItemIdentifier;
+import network.rs485.logisticspipes.inventory.ProviderMode;
+
+/**
+ * The item identifiers of all slots of an inventory, as seen by {@link InventoryUtil}. Providers, suppliers and
+ * statistics ask the same inventory many times per tick, without the snapshot every query looks up the identifier of
+ * every stack again.
+ * <p>
+ * A snapshot is only reused within the tick it was taken in and only as long as the content hash of the inventory is
+ * unchanged. The hash covers item, count, damage and tag of every slot, so handlers which return copies of their stacks
+ * can be snapshotted as well and changes to the tag of a stack are seen. Changes done through {@link InventoryUtil} drop
+ * the snapshot right away. Inventories, which changed between two queries of the same tick twice in a row, are changed by
+ * something else all the time and are not snapshotted anymore.
+ */
+final class InventorySnapshot {
+
+	private static final Map<IItemHandler, InventorySnapshot> snapshots = new MapMaker().weakKeys().makeMap();
+	private static final Set<IItemHandler> unstable = Collections.newSetFromMap(new MapMaker().weakKeys().makeMap());
+	private static final int MAX_FAILED_VALIDATIONS = 2;
+
+	private final int tick;
+	private final long contentHash;
+	private final int[] slotHashes;
+	private final ItemIdentifier[] identifiers;
+	private final int[] counts;
+	private final EnumMap<ProviderMode, Map<ItemIdentifier, Integer>> itemCounts = new EnumMap<>(ProviderMode.class);
+	/**
+	 * validations of the inventory in a row, which failed in the tick of their snapshot
+	 */
+	private int failedValidations;
+
+	private InventorySnapshot(IItemHandler inventory, int tick, int failedValidations) {
+		this.tick = tick;
+		this.failedValidations = failedValidations;
+		final int slots = inventory.getSlots();
+		slotHashes = new int[slots];
+		identifiers = new ItemIdentifier[slots];
+		counts = new int[slots];
+		long hash = slots;
+		for (int i = 0; i < slots; i++) {
+			final ItemStack stack = inventory.getStackInSlot(i);
+			slotHashes[i] = InventorySnapshot.slotHash(stack);
+			hash = 31 * hash + slotHashes[i];
+			counts[i] = stack.getCount();
+			identifiers[i] = stack.isEmpty() ? null : ItemIdentifier.get(stack);
+		}
+		contentHash = hash;
+	}
+
+	/**
+	 * @return the current snapshot of the inventory or null, if snapshots cannot be used on this thread or for this
+	 * inventory
+	 */
+	@Nullable
+	static InventorySnapshot of(@Nonnull IItemHandler inventory) {
+		if (!MainProxy.isServer() || InventorySnapshot.unstable.contains(inventory)) {
+			return null;
+		}
+		final int tick = MainProxy.getGlobalTick();
+		InventorySnapshot snapshot = InventorySnapshot.snapshots.get(inventory);
+		if (snapshot == null) {
+			snapshot = new InventorySnapshot(inventory, tick, 0);
+		} else if (snapshot.tick != tick) {
+			snapshot = new InventorySnapshot(inventory, tick, snapshot.failedValidations);
+		} else if (snapshot.contentHash != InventorySnapshot.contentHash(inventory)) {
+			if (snapshot.failedValidations + 1 >= InventorySnapshot.MAX_FAILED_VALIDATIONS) {
+				InventorySnapshot.snapshots.remove(inventory);
+				InventorySnapshot.unstable.add(inventory);
+				return null;
+			}
+			snapshot = new InventorySnapshot(inventory, tick, snapshot.failedValidations + 1);
+		} else {
+			snapshot.failedValidations = 0;
+			return snapshot;
+		}
+		InventorySnapshot.snapshots.put(inventory, snapshot);
+		return snapshot;
+	}
+
+	static void invalidate(@Nonnull IItemHandler inventory) {
+		InventorySnapshot.snapshots.remove(inventory);
+	}
+
+	private static int slotHash(@Nonnull ItemStack stack) {
+		if (stack.isEmpty()) {
+			return 0;
+		}
+		int hash = System.identityHashCode(stack.getItem());
+		hash = 31 * hash + stack.getCount();
+		hash = 31 * hash + stack.getItemDamage();
+		final NBTTagCompound tag = stack.getTagCompound();
+		return tag == null ? hash : 31 * hash + tag.hashCode();
+	}
+
+	private static long contentHash(IItemHandler inventory) {
+		final int slots = inventory.getSlots();
+		long hash = slots;
+		for (int i = 0; i < slots; i++) {
+			hash = 31 * hash + InventorySnapshot.slotHash(inventory.getStackInSlot(i));
+		}
+		return hash;
+	}
+
+	int getSlots() {
+		return identifiers.length;
+	}
+
+	/**
+	 * @param current the stack in the slot now
+	 * @return the identifier of the current stack, only looked up again if the slot changed since the snapshot
+	 */
+	@Nonnull
+	ItemIdentifier getIdentifier(int slot, @Nonnull ItemStack current) {
+		if (slot < slotHashes.length && identifiers[slot] != null && identifiers[slot].item == current.getItem()
+				&& InventorySnapshot.slotHash(current) == slotHashes[slot]) {
+			return identifiers[slot];
+		}
+		return ItemIdentifier.get(current);
+	}
+
+	/**
+	 * @return the identifier of the stack in the given slot, null if the slot is empty
+	 */
+	@Nullable
+	ItemIdentifier getIdentifier(int slot) {
+		return identifiers[slot];
+	}
+
+	/**
+	 * @return the item counts visible with the given mode, in slot order. Must not be modified.
+	 */
+	synchronized Map<ItemIdentifier, Integer> getItemsAndCount(ProviderMode mode) {
+		Map<ItemIdentifier, Integer> items = itemCounts.get(mode);
+		if (items == null) {
+			items = new LinkedHashMap<>();
+			for (int i = mode.getCropStart(); i < identifiers.length - mode.getCropEnd(); i++) {
+				if (identifiers[i] == null) {
+					continue;
+				}
+				int stackSize = counts[i] - (mode.getHideOnePerStack() ? 1 : 0);
+				Integer currentSize = items.get(identifiers[i]);
+				if (currentSize == null) {
+					items.put(identifiers[i], stackSize - (mode.getHideOnePerType() ? 1 : 0));
+				} else {
+					items.put(identifiers[i], currentSize + stackSize);
+				}
+			}
+			itemCounts.put(mode, items);
+		}
+		return items;
+	}
+}
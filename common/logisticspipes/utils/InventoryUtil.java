@@ -34,6 +34,10 @@ public class InventoryUtil implements IInventoryUtil, ISpecialInsertion {
 
 	@Override
 	public int itemCount(@Nonnull ItemIdentifier item) {
+		final InventorySnapshot snapshot = InventorySnapshot.of(inventory);
+		if (snapshot != null) {
+			return snapshot.getItemsAndCount(mode).getOrDefault(item, 0);
+		}
 		int count = 0;
 		boolean first = true;
 		for (int i = mode.getCropStart(); i < inventory.getSlots() - mode.getCropEnd(); i++) {
@@ -54,6 +58,10 @@ public class InventoryUtil implements IInventoryUtil, ISpecialInsertion {
 	@Override
 	@Nonnull
 	public Map<ItemIdentifier, Integer> getItemsAndCount() {
+		final InventorySnapshot snapshot = InventorySnapshot.of(inventory);
+		if (snapshot != null) {
+			return new LinkedHashMap<>(snapshot.getItemsAndCount(mode));
+		}
 		Map<ItemIdentifier, Integer> items = new LinkedHashMap<>();
 		for (int i = mode.getCropStart(); i < inventory.getSlots() - mode.getCropEnd(); i++) {
 			ItemStack stack = inventory.getStackInSlot(i);
@@ -75,6 +83,10 @@ public class InventoryUtil implements IInventoryUtil, ISpecialInsertion {
 	@Override
 	@Nonnull
 	public Set<ItemIdentifier> getItems() {
+		final InventorySnapshot snapshot = InventorySnapshot.of(inventory);
+		if (snapshot != null) {
+			return new TreeSet<>(snapshot.getItemsAndCount(mode).keySet());
+		}
 		Set<ItemIdentifier> items = new TreeSet<>();
 		for (int i = mode.getCropStart(); i < inventory.getSlots() - mode.getCropEnd(); i++) {
 			ItemStack stack = inventory.getStackInSlot(i);
@@ -98,12 +110,17 @@ public class InventoryUtil implements IInventoryUtil, ISpecialInsertion {
 		if (itemCount(item) < count) {
 			return ItemStack.EMPTY;
 		}
+		final InventorySnapshot snapshot = InventorySnapshot.of(inventory);
 		ItemStack outputStack = ItemStack.EMPTY;
 		boolean first = true;
 
 		for (int i = mode.getCropStart(); i < inventory.getSlots() - mode.getCropEnd() && count > 0; i++) {
 			ItemStack stack = inventory.getStackInSlot(i);
-			if (stack.isEmpty() || (stack.getCount() == 1 && mode.getHideOnePerStack()) || !ItemIdentifier.get(stack).equals(item)) {
+			if (stack.isEmpty() || (stack.getCount() == 1 && mode.getHideOnePerStack())) {
+				continue;
+			}
+			final ItemIdentifier stackItem = snapshot == null ? ItemIdentifier.get(stack) : snapshot.getIdentifier(i, stack);
+			if (!item.equals(stackItem)) {
 				continue;
 			}
 			int itemsToSplit = Math.min(count, stack.getCount() - (((first && mode.getHideOnePerType()) || mode.getHideOnePerStack()) ? 1 : 0));
@@ -112,6 +129,7 @@ public class InventoryUtil implements IInventoryUtil, ISpecialInsertion {
 				continue;
 			}
 			ItemStack removed = inventory.extractItem(i, itemsToSplit, false);
+			InventorySnapshot.invalidate(inventory);
 			if (outputStack.isEmpty()) {
 				outputStack = removed;
 			} else {
@@ -125,6 +143,16 @@ public class InventoryUtil implements IInventoryUtil, ISpecialInsertion {
 	//Ignores slot/item hiding
 	@Override
 	public boolean containsUndamagedItem(@Nonnull ItemIdentifier item) {
+		final InventorySnapshot snapshot = InventorySnapshot.of(inventory);
+		if (snapshot != null) {
+			for (int i = 0; i < snapshot.getSlots(); i++) {
+				final ItemIdentifier stackItem = snapshot.getIdentifier(i);
+				if (stackItem != null && stackItem.getUndamaged().equals(item)) {
+					return true;
+				}
+			}
+			return false;
+		}
 		for (int i = 0; i < inventory.getSlots(); i++) {
 			ItemStack stack = inventory.getStackInSlot(i);
 			if (stack.isEmpty()) {
@@ -170,12 +198,14 @@ public class InventoryUtil implements IInventoryUtil, ISpecialInsertion {
 	@Override
 	@Nonnull
 	public ItemStack decrStackSize(int i, int j) {
+		InventorySnapshot.invalidate(inventory);
 		return inventory.extractItem(i, j, false);
 	}
 
 	@Override
 	public int addToSlot(@Nonnull ItemStack stack, int slot) {
 		int wanted = stack.getCount();
+		InventorySnapshot.invalidate(inventory);
 		ItemStack rest = inventory.insertItem(slot, stack, false);
 		return wanted - rest.getCount();
 	}
@@ -29,6 +29,20 @@ public final class SinkReply {
 	public final BufferMode bufferMode;
 	public final IAdditionalTargetInformation addInfo;
 
+	/**
+	 * Compares the priorities of two replies like the destination search does: the fixed priority first, then the
+	 * custom priority.
+	 *
+	 * @return a positive number, if the first reply wins against the second one, 0 if they are equal
+	 */
+	public static int comparePriority(SinkReply first, SinkReply second) {
+		final int result = first.fixedPriority.compareTo(second.fixedPriority);
+		if (result != 0) {
+			return result;
+		}
+		return Integer.compare(first.customPriority, second.customPriority);
+	}
+
 	public SinkReply(FixedPriority fixedPriority, int customPriority, boolean isPassive, boolean isDefault, int energyUse, int maxNumberOfItems, IAdditionalTargetInformation addInfo) {
 		this.fixedPriority = fixedPriority;
 		this.customPriority = customPriority;
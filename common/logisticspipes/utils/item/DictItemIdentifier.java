@@ -2,6 +2,7 @@ package logisticspipes.utils.item;
 
 import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Nonnull;
@@ -50,6 +51,10 @@ public class DictItemIdentifier {
 		}
 	}
 
+	public List<DictIdentifier> getParts() {
+		return Collections.unmodifiableList(parts);
+	}
+
 	public boolean canMatch(DictItemIdentifier ident, boolean byName, boolean byCategory) {
 		for (DictIdentifier ident1 : parts) {
 			for (DictIdentifier ident2 : ident.parts) {
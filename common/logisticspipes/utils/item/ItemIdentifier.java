@@ -18,9 +18,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReferenceArray;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -104,11 +101,13 @@ public final class ItemIdentifier implements Comparable<ItemIdentifier>, ILPCCTy
 
 		private final ItemKey key;
 		private final int uniqueID;
+		private final int globalID;
 
-		IDReference(ItemKey k, int u, ItemIdentifier id) {
+		IDReference(ItemKey k, ItemIdentifier id) {
 			super(id, ItemIdentifier.keyRefQueue);
 			key = k;
-			uniqueID = u;
+			uniqueID = id.uniqueID;
+			globalID = id.globalID;
 		}
 	}
 
@@ -145,7 +144,7 @@ public final class ItemIdentifier implements Comparable<ItemIdentifier>, ILPCCTy
 
 	private static class ArrayDamagedItentifierHolder implements IDamagedIdentifierHolder {
 
-		private AtomicReferenceArray<ItemIdentifier> holder;
+		private volatile AtomicReferenceArray<ItemIdentifier> holder;
 
 		public ArrayDamagedItentifierHolder(int damage) {
 			//round to nearest superior power of 2
@@ -155,7 +154,8 @@ public final class ItemIdentifier implements Comparable<ItemIdentifier>, ILPCCTy
 
 		@Override
 		public ItemIdentifier get(int damage) {
-			return holder.get(damage);
+			final AtomicReferenceArray<ItemIdentifier> current = holder;
+			return damage < current.length() ? current.get(damage) : null;
 		}
 
 		@Override
@@ -184,16 +184,14 @@ public final class ItemIdentifier implements Comparable<ItemIdentifier>, ILPCCTy
 	//array of arrays for items with damage>0 and tag==null
 	private final static ConcurrentHashMap<Item, IDamagedIdentifierHolder> damageIdentifiers = new ConcurrentHashMap<>(4096, 0.5f, 1);
 
-	//map for id+damage+tag -> ItemIdentifier lookup
-	private final static HashMap<ItemKey, IDReference> keyRefMap = new HashMap<>(1024, 0.5f);
-	//for tracking the tagUniqueIDs in use for a given Item
-	private final static HashMap<Item, BitSet> tagIDsets = new HashMap<>(1024, 0.5f);
+	//map for id+damage+tag -> ItemIdentifier lookup, lookups of living identifiers do not lock
+	private final static ConcurrentHashMap<ItemKey, IDReference> keyRefMap = new ConcurrentHashMap<>(1024, 0.5f);
+	//for tracking the tagUniqueIDs in use for a given Item, each BitSet is guarded by itself
+	private final static ConcurrentHashMap<Item, BitSet> tagIDsets = new ConcurrentHashMap<>(1024, 0.5f);
 	//a referenceQueue to collect GCed identifier refs
 	private final static ReferenceQueue<ItemIdentifier> keyRefQueue = new ReferenceQueue<>();
-	//and locks to protect these
-	private final static ReadWriteLock keyRefLock = new ReentrantReadWriteLock();
-	private final static Lock keyRefRlock = ItemIdentifier.keyRefLock.readLock();
-	private final static Lock keyRefWlock = ItemIdentifier.keyRefLock.writeLock();
+	//for tracking the globalIDs in use, guarded by itself
+	private final static BitSet globalIDset = new BitSet(4096);
 
 	//helper thread to clean up references to GCed ItemIdentifiers
 	private static final class ItemIdentifierCleanupThread extends Thread {
@@ -213,17 +211,11 @@ public final class ItemIdentifier implements Comparable<ItemIdentifier>, ILPCCTy
 				} catch (InterruptedException e) {
 					continue;
 				}
-				ItemIdentifier.keyRefWlock.lock();
-				do {
-					//value in the map might have been replaced in the meantime
-					IDReference current = ItemIdentifier.keyRefMap.get(r.key);
-					if (r == current) {
-						ItemIdentifier.keyRefMap.remove(r.key);
-						ItemIdentifier.tagIDsets.get(r.key.item).clear(r.uniqueID);
-					}
-					r = (IDReference) (ItemIdentifier.keyRefQueue.poll());
-				} while (r != null);
-				ItemIdentifier.keyRefWlock.unlock();
+				//value in the map might have been replaced in the meantime, keeping the uniqueID
+				if (ItemIdentifier.keyRefMap.remove(r.key, r)) {
+					ItemIdentifier.releaseTagID(r.key.item, r.uniqueID);
+					ItemIdentifier.releaseGlobalID(r.globalID);
+				}
 			}
 		}
 	}
@@ -231,17 +223,23 @@ public final class ItemIdentifier implements Comparable<ItemIdentifier>, ILPCCTy
 	private static final ItemIdentifierCleanupThread cleanupThread = new ItemIdentifierCleanupThread();
 
 	//Hide default constructor
-	private ItemIdentifier(Item item, int itemDamage, FinalNBTTagCompound tag, int uniqueID) {
+	private ItemIdentifier(Item item, int itemDamage, FinalNBTTagCompound tag, int uniqueID, int globalID) {
 		this.item = item;
 		this.itemDamage = itemDamage;
 		this.tag = tag;
 		this.uniqueID = uniqueID;
+		this.globalID = globalID;
 	}
 
 	public final Item item;
 	public final int itemDamage;
 	public final FinalNBTTagCompound tag;
 	public final int uniqueID;
+	/**
+	 * Dense index of this identifier among all identifiers. Unique as long as this identifier is alive, an identifier
+	 * with an NBT tag passes it on to the next identifier after it got GCed. See {@link ItemIdentifierIntMap}.
+	 */
+	public final int globalID;
 
 	private int maxStackSize = 0;
 
@@ -259,14 +257,12 @@ public final class ItemIdentifier implements Comparable<ItemIdentifier>, ILPCCTy
 				return proposal;
 			}
 		}
-		//no locking here. if 2 threads race and create the same ItemIdentifier, they end up .equal() and one of them ends up in the map
 		ItemIdentifier ret = ItemIdentifier.simpleIdentifiers.get(item);
 		if (ret != null) {
 			return ret;
 		}
-		ret = new ItemIdentifier(item, 0, null, 0);
-		ItemIdentifier.simpleIdentifiers.put(item, ret);
-		return ret;
+		//only create one identifier per item, all identifiers of the same item need the same globalID
+		return ItemIdentifier.simpleIdentifiers.computeIfAbsent(item, key -> new ItemIdentifier(item, 0, null, 0, ItemIdentifier.allocateGlobalID()));
 	}
 
 	private static ItemIdentifier getOrCreateDamage(Item item, int damage, ItemIdentifier proposal) {
@@ -275,64 +271,90 @@ public final class ItemIdentifier implements Comparable<ItemIdentifier>, ILPCCTy
 				return proposal;
 			}
 		}
-		//again no locking, we can end up removing or overwriting ItemIdentifiers concurrently added by another thread, but that doesn't affect anything.
 		IDamagedIdentifierHolder damages = ItemIdentifier.damageIdentifiers.get(item);
 		if (damages == null) {
-			if (item.getMaxDamage() < 32767) {
-				damages = new ArrayDamagedItentifierHolder(damage);
-			} else {
-				damages = new MapDamagedItentifierHolder();
-			}
-			ItemIdentifier.damageIdentifiers.put(item, damages);
-		} else {
-			damages.ensureCapacity(damage);
+			damages = ItemIdentifier.damageIdentifiers.computeIfAbsent(item, key -> {
+				if (item.getMaxDamage() < 32767) {
+					return new ArrayDamagedItentifierHolder(damage);
+				} else {
+					return new MapDamagedItentifierHolder();
+				}
+			});
 		}
 		ItemIdentifier ret = damages.get(damage);
 		if (ret != null) {
 			return ret;
 		}
-		ret = new ItemIdentifier(item, damage, null, 0);
-		damages.set(damage, ret);
+		//only create one identifier per damage, all identifiers of the same item need the same globalID
+		synchronized (damages) {
+			damages.ensureCapacity(damage);
+			ret = damages.get(damage);
+			if (ret == null) {
+				ret = new ItemIdentifier(item, damage, null, 0, ItemIdentifier.allocateGlobalID());
+				damages.set(damage, ret);
+			}
+		}
 		return ret;
 	}
 
 	private static ItemIdentifier getOrCreateTag(Item item, int damage, FinalNBTTagCompound tag) {
 		ItemKey k = new ItemKey(item, damage, tag);
-		ItemIdentifier.keyRefRlock.lock();
 		IDReference r = ItemIdentifier.keyRefMap.get(k);
 		if (r != null) {
 			ItemIdentifier ret = r.get();
 			if (ret != null) {
-				ItemIdentifier.keyRefRlock.unlock();
 				return ret;
 			}
 		}
-		ItemIdentifier.keyRefRlock.unlock();
-		ItemIdentifier.keyRefWlock.lock();
-		r = ItemIdentifier.keyRefMap.get(k);
-		if (r != null) {
-			ItemIdentifier ret = r.get();
-			if (ret != null) {
-				ItemIdentifier.keyRefWlock.unlock();
-				return ret;
+		//only threads creating an identifier for the same key wait for each other
+		final ItemIdentifier[] created = new ItemIdentifier[1];
+		ItemIdentifier.keyRefMap.compute(k, (key, current) -> {
+			if (current != null) {
+				ItemIdentifier ret = current.get();
+				if (ret != null) {
+					created[0] = ret;
+					return current;
+				}
 			}
+			//a GCed identifier, which was not cleaned up yet, passes on its uniqueID and globalID
+			int nextUniqueID = current == null ? ItemIdentifier.allocateTagID(item) : current.uniqueID;
+			int nextGlobalID = current == null ? ItemIdentifier.allocateGlobalID() : current.globalID;
+			FinalNBTTagCompound finaltag = new FinalNBTTagCompound(tag);
+			ItemKey realKey = new ItemKey(item, damage, finaltag);
+			created[0] = new ItemIdentifier(item, damage, finaltag, nextUniqueID, nextGlobalID);
+			return new IDReference(realKey, created[0]);
+		});
+		return created[0];
+	}
+
+	private static int allocateTagID(Item item) {
+		final BitSet ids = ItemIdentifier.tagIDsets.computeIfAbsent(item, key -> new BitSet(16));
+		synchronized (ids) {
+			int nextUniqueID = ids.nextClearBit(1);
+			ids.set(nextUniqueID);
+			return nextUniqueID;
 		}
-		if (ItemIdentifier.tagIDsets.get(item) == null) {
-			ItemIdentifier.tagIDsets.put(item, new BitSet(16));
+	}
+
+	private static void releaseTagID(Item item, int uniqueID) {
+		final BitSet ids = ItemIdentifier.tagIDsets.get(item);
+		synchronized (ids) {
+			ids.clear(uniqueID);
 		}
-		int nextUniqueID;
-		if (r == null) {
-			nextUniqueID = ItemIdentifier.tagIDsets.get(item).nextClearBit(1);
-			ItemIdentifier.tagIDsets.get(item).set(nextUniqueID);
-		} else {
-			nextUniqueID = r.uniqueID;
+	}
+
+	private static int allocateGlobalID() {
+		synchronized (ItemIdentifier.globalIDset) {
+			int nextGlobalID = ItemIdentifier.globalIDset.nextClearBit(0);
+			ItemIdentifier.globalIDset.set(nextGlobalID);
+			return nextGlobalID;
+		}
+	}
+
+	private static void releaseGlobalID(int globalID) {
+		synchronized (ItemIdentifier.globalIDset) {
+			ItemIdentifier.globalIDset.clear(globalID);
 		}
-		FinalNBTTagCompound finaltag = new FinalNBTTagCompound(tag);
-		ItemKey realKey = new ItemKey(item, damage, finaltag);
-		ItemIdentifier ret = new ItemIdentifier(item, damage, finaltag, nextUniqueID);
-		ItemIdentifier.keyRefMap.put(realKey, new IDReference(realKey, nextUniqueID, ret));
-		ItemIdentifier.keyRefWlock.unlock();
-		return ret;
 	}
 
 	public static ItemIdentifier get(Item item, int itemUndamagableDamage, NBTTagCompound tag) {
@@ -383,14 +405,12 @@ public final class ItemIdentifier implements Comparable<ItemIdentifier>, ILPCCTy
 	public static List<ItemIdentifier> getMatchingNBTIdentifier(Item item, int itemData) {
 		//inefficient, we'll have to add another map if this becomes a bottleneck
 		ArrayList<ItemIdentifier> resultlist = new ArrayList<>(16);
-		ItemIdentifier.keyRefRlock.lock();
 		for (IDReference r : ItemIdentifier.keyRefMap.values()) {
 			ItemIdentifier t = r.get();
 			if (t != null && t.item == item && t.itemDamage == itemData) {
 				resultlist.add(t);
 			}
 		}
-		ItemIdentifier.keyRefRlock.unlock();
 		return resultlist;
 	}
 
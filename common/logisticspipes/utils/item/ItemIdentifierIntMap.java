@@ -0,0 +1,152 @@
+package logisticspipes.utils.item;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+import javax.annotation.Nonnull;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+
+/**
+ * Map from item identifiers to int values, like item counts, without boxing. Keyed by {@link ItemIdentifier#globalID},
+ * entries are stored densely in insertion order, so iterating does not look at empty slots.
+ * <p>
+ * The map keeps its keys alive, their globalIDs cannot be handed out to another identifier while they are in the map.
+ * Not thread safe.
+ */
+public final class ItemIdentifierIntMap {
+
+	private static final int MIN_CAPACITY = 16;
+
+	// globalID -> index into keys and values
+	private final Int2IntOpenHashMap indices;
+	private ItemIdentifier[] keys;
+	private int[] values;
+	private int size = 0;
+
+	public ItemIdentifierIntMap() {
+		this(ItemIdentifierIntMap.MIN_CAPACITY);
+	}
+
+	public ItemIdentifierIntMap(int expected) {
+		final int capacity = Math.max(expected, ItemIdentifierIntMap.MIN_CAPACITY);
+		indices = new Int2IntOpenHashMap(capacity);
+		indices.defaultReturnValue(-1);
+		keys = new ItemIdentifier[capacity];
+		values = new int[capacity];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean containsKey(@Nonnull ItemIdentifier item) {
+		return indices.get(item.globalID) >= 0;
+	}
+
+	/**
+	 * @return the value of the item or 0, if the item is not in the map
+	 */
+	public int get(@Nonnull ItemIdentifier item) {
+		final int index = indices.get(item.globalID);
+		return index < 0 ? 0 : values[index];
+	}
+
+	public void put(@Nonnull ItemIdentifier item, int value) {
+		final int index = indices.get(item.globalID);
+		if (index < 0) {
+			append(item, value);
+		} else {
+			values[index] = value;
+		}
+	}
+
+	/**
+	 * Adds the amount to the value of the item, items not in the map start at 0.
+	 *
+	 * @return the new value of the item
+	 */
+	public int addTo(@Nonnull ItemIdentifier item, int amount) {
+		final int index = indices.get(item.globalID);
+		if (index < 0) {
+			append(item, amount);
+			return amount;
+		}
+		return values[index] += amount;
+	}
+
+	/**
+	 * @return the value the item had or 0, if the item was not in the map
+	 */
+	public int remove(@Nonnull ItemIdentifier item) {
+		final int index = indices.remove(item.globalID);
+		if (index < 0) {
+			return 0;
+		}
+		final int value = values[index];
+		// move the last entry into the gap to stay dense
+		size--;
+		if (index != size) {
+			keys[index] = keys[size];
+			values[index] = values[size];
+			indices.put(keys[index].globalID, index);
+		}
+		keys[size] = null;
+		return value;
+	}
+
+	public void clear() {
+		indices.clear();
+		Arrays.fill(keys, 0, size, null);
+		size = 0;
+	}
+
+	/**
+	 * @param index from 0 to {@link #size()} - 1, invalidated by {@link #remove(ItemIdentifier)}
+	 */
+	@Nonnull
+	public ItemIdentifier keyAt(int index) {
+		return keys[index];
+	}
+
+	/**
+	 * @param index from 0 to {@link #size()} - 1, invalidated by {@link #remove(ItemIdentifier)}
+	 */
+	public int valueAt(int index) {
+		return values[index];
+	}
+
+	public void forEach(@Nonnull ObjIntConsumer<ItemIdentifier> consumer) {
+		for (int i = 0; i < size; i++) {
+			consumer.accept(keys[i], values[i]);
+		}
+	}
+
+	/**
+	 * @return a new map with all entries, for code which still needs a {@link Map}
+	 */
+	@Nonnull
+	public HashMap<ItemIdentifier, Integer> toMap() {
+		final HashMap<ItemIdentifier, Integer> map = new HashMap<>((int) (size / 0.75f) + 1);
+		for (int i = 0; i < size; i++) {
+			map.put(keys[i], values[i]);
+		}
+		return map;
+	}
+
+	private void append(ItemIdentifier item, int value) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+		}
+		keys[size] = item;
+		values[size] = value;
+		indices.put(item.globalID, size);
+		size++;
+	}
+}
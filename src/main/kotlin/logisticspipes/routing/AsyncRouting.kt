@@ -38,19 +38,19 @@
 package logisticspipes.routing
 
 import kotlinx.coroutines.withContext
+import logisticspipes.utils.item.ItemIdentifier
 import network.rs485.grow.Coroutines
 
 object AsyncRouting {
-    fun getDistance(sourceRouter: ServerRouter, destinationRouter: IRouter): List<ExitRoute>? {
-        return if (sourceRouter._routeTable.size <= destinationRouter.simpleID) {
-            null
-        } else {
-            sourceRouter._routeTable[destinationRouter.simpleID]
-        }
-    }
+    /**
+     * Returns the shortest route items of the given type can take to the destination router, without updating the
+     * routing table and without allocating.
+     */
+    fun getDistance(sourceRouter: ServerRouter, destinationRouter: IRouter, itemid: ItemIdentifier): ExitRoute? =
+        sourceRouter._routeTable.getRoute(destinationRouter.simpleID, false, itemid)
 
     fun routingTableNeedsUpdate(serverRouter: ServerRouter): Boolean {
-        return serverRouter.connectionNeedsChecking != 0 && serverRouter._LSAVersion > ServerRouter._lastLSAVersion[serverRouter.simpleID]
+        return serverRouter.connectionNeedsChecking != 0 && serverRouter._LSAVersion > serverRouter._lastLSAVersion
     }
 
     suspend fun updateRoutingTable(serverRouter: ServerRouter) {
@@ -61,7 +61,7 @@ object AsyncRouting {
                 }
             }
         }
-        if (serverRouter._LSAVersion > ServerRouter._lastLSAVersion[serverRouter.simpleID]) {
+        if (serverRouter._LSAVersion > serverRouter._lastLSAVersion) {
             serverRouter.CreateRouteTable(serverRouter._LSAVersion)
         }
     }
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2020  RS485
+ *
+ * "LogisticsPipes" is distributed under the terms of the Minecraft Mod Public
+ * License 1.0.1, or MMPL. Please check the contents of the license located in
+ * https://github.com/RS485/LogisticsPipes/blob/dev/LICENSE.md
+ *
+ * This file can instead be distributed under the license terms of the
+ * MIT license:
+ *
+ * Copyright (c) 2020  RS485
+ *
+ * This MIT license was reworded to only match this file. If you use the regular
+ * MIT license in your project, replace this copyright notice (this line and any
+ * lines below and NOT the copyright line above) with the lines from the original
+ * MIT license located here: http://opensource.org/licenses/MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this file and associated documentation files (the "Source Code"), to deal in
+ * the Source Code without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Source Code, and to permit persons to whom the Source Code is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Source Code, which also can be
+ * distributed under the MIT.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package network.rs485.logisticspipes.logistics
+
+import kotlinx.coroutines.launch
+import logisticspipes.LogisticsPipes
+import logisticspipes.request.RequestSnapshot
+import logisticspipes.request.resources.IResource
+import net.minecraft.entity.player.EntityPlayer
+import net.minecraft.util.text.TextComponentTranslation
+import network.rs485.grow.Coroutines
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.function.Consumer
+import java.util.function.Function
+import java.util.function.Predicate
+
+object AsyncRequestSimulation {
+    /**
+     * Ticks after which the player is told that the request is still
+     * being planned.
+     */
+    private const val PLANNING_MESSAGE_TICKS = 10
+
+    /**
+     * Time spent capturing the snapshot per tick, the rest of a large
+     * network is captured in the following ticks.
+     */
+    private const val CAPTURE_NANOS_PER_TICK = 2_000_000L
+
+    /**
+     * How often a request is planned again, when the network changed
+     * too much while it was planned.
+     */
+    private const val MAX_REPLANS = 2
+
+    /**
+     * Players with a running simulation. Further simulations of these
+     * players are ignored until it is done.
+     */
+    private val running: MutableSet<UUID> = ConcurrentHashMap.newKeySet()
+
+    /**
+     * Players with a request being planned. Further requests of these
+     * players are refused until it is committed.
+     */
+    private val planning: MutableSet<UUID> = ConcurrentHashMap.newKeySet()
+
+    /**
+     * Captures a [RequestSnapshot] for the requested resource on the
+     * server thread, runs the simulation with it on the
+     * [asynchronous scope][Coroutines.asynchronousScope] and passes
+     * the result to [onResult] on the server thread again.
+     */
+    @JvmStatic
+    fun <T> simulate(player: EntityPlayer, requested: IResource, simulation: Function<RequestSnapshot, T>, onResult: Consumer<T>) {
+        val playerId = player.uniqueID
+        if (!running.add(playerId)) return
+        launch(player, requested, simulation, { result ->
+            try {
+                onResult.accept(result)
+            } finally {
+                running.remove(playerId)
+            }
+        }) { running.remove(playerId) }
+    }
+
+    /**
+     * @return true, if a request of the player is being planned
+     */
+    @JvmStatic
+    fun isPlanning(player: EntityPlayer): Boolean = planning.contains(player.uniqueID)
+
+    /**
+     * Like [simulate], but for requests: [commit] is called with the
+     * plan on the server thread and returns false, if the plan is
+     * outdated. Outdated plans are planned again from a new snapshot,
+     * up to [MAX_REPLANS] times, before the player is told that the
+     * request failed. The player is told about requests, which take
+     * longer than [PLANNING_MESSAGE_TICKS] to plan. Further requests
+     * of the player are ignored until the request is done.
+     */
+    @JvmStatic
+    fun <T> plan(player: EntityPlayer, requested: IResource, work: Function<RequestSnapshot, T>, commit: Predicate<T>) {
+        val playerId = player.uniqueID
+        if (!planning.add(playerId)) return
+        val done = AtomicBoolean(false)
+        val finish: () -> Unit = {
+            done.set(true)
+            planning.remove(playerId)
+        }
+
+        fun attempt(replans: Int) {
+            launch(player, requested, work, { plan ->
+                when {
+                    commit.test(plan) -> finish()
+                    replans > 0 -> attempt(replans - 1)
+                    else -> {
+                        finish()
+                        player.sendMessage(TextComponentTranslation("lp.misc.requestoutdated"))
+                    }
+                }
+            }, finish)
+        }
+
+        attempt(MAX_REPLANS)
+        Coroutines.scheduleServerTask(PLANNING_MESSAGE_TICKS, Runnable {
+            if (!done.get()) player.sendMessage(TextComponentTranslation("lp.misc.planning"))
+        })
+    }
+
+    /**
+     * Calls either [onResult] or, if capturing, the work or [onResult]
+     * failed, [onFailure].
+     */
+    private fun <T> launch(player: EntityPlayer, requested: IResource, work: Function<RequestSnapshot, T>, onResult: (T) -> Unit, onFailure: () -> Unit) {
+        val capture = try {
+            RequestSnapshot.startCapture(requested)
+        } catch (e: Throwable) {
+            failed(player, e, onFailure)
+            return
+        }
+
+        fun captureTick() {
+            val complete = try {
+                capture.captureSome(System.nanoTime() + CAPTURE_NANOS_PER_TICK)
+            } catch (e: Throwable) {
+                failed(player, e, onFailure)
+                return
+            }
+            if (!complete) {
+                Coroutines.server.scheduleNextTick(Runnable { captureTick() })
+                return
+            }
+            Coroutines.asynchronousScope.launch {
+                val result = try {
+                    work.apply(capture.snapshot)
+                } catch (e: Throwable) {
+                    // also errors, like a stack overflow in the recursive request tree
+                    failed(player, e, onFailure)
+                    return@launch
+                }
+                Coroutines.serverScope.launch {
+                    try {
+                        onResult(result)
+                    } catch (e: Throwable) {
+                        failed(player, e, onFailure)
+                    }
+                }
+            }
+        }
+
+        captureTick()
+    }
+
+    private fun failed(player: EntityPlayer, e: Throwable, onFailure: () -> Unit) {
+        LogisticsPipes.log.error("Error in planning a request of ${player.name}", e)
+        onFailure()
+        Coroutines.serverScope.launch {
+            player.sendMessage(TextComponentTranslation("lp.misc.requestfailed"))
+        }
+    }
+}
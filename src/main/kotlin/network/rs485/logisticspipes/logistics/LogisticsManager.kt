@@ -37,7 +37,8 @@
 
 package network.rs485.logisticspipes.logistics
 
-import logisticspipes.modules.LogisticsModule
+import logisticspipes.logistics.DestinationCache
+import logisticspipes.logistics.PrioritizedSinkSearch
 import logisticspipes.pipefxhandlers.Particles
 import logisticspipes.proxy.SimpleServiceLocator
 import logisticspipes.routing.AsyncRouting
@@ -48,6 +49,7 @@ import logisticspipes.utils.SinkReply
 import logisticspipes.utils.item.ItemIdentifier
 import net.minecraft.item.ItemStack
 import java.util.*
+import java.util.stream.Collectors
 import java.util.stream.Stream
 
 object LogisticsManager {
@@ -59,56 +61,69 @@ object LogisticsManager {
     }
 
     fun getDestination(stack: ItemStack, itemid: ItemIdentifier, canBeDefault: Boolean, sourceRouter: ServerRouter, routersToExclude: List<Int>): Pair<Int, SinkReply>? {
-        val destinationStream = ServerRouter.getRoutersInterestedIn(itemid).stream()
-                .mapToObj(SimpleServiceLocator.routerManager::getServerRouter)
-                .flatMap {
-                    it?.let { router ->
-                        AsyncRouting.getDistance(sourceRouter, router)?.let { routes ->
-                            routes.stream().filter { exitRoute -> exitRoute.containsFlag(PipeRoutingConnectionType.canRouteTo) }
-                        }
-                    } ?: Stream.empty()
-                }
-        return getBestReply(stack, itemid, sourceRouter, destinationStream, routersToExclude, canBeDefault)
-    }
-
-    private fun getBestReply(stack: ItemStack, itemid: ItemIdentifier, sourceRouter: ServerRouter, destinationStream: Stream<ExitRoute>, routersToExclude: List<Int>, canBeDefault: Boolean): Pair<Int, SinkReply>? {
-        var resultRouterId: Int? = null
-        var result: SinkReply? = null
-        destinationStream.filter {
-            it.destination.id != sourceRouter.id &&
-                    !routersToExclude.contains(it.destination.simpleID) &&
-                    it.containsFlag(PipeRoutingConnectionType.canRouteTo) &&
-                    it.filters.none { filter -> filter.blockRouting() || filter.isBlocked == filter.isFilteredItem(itemid) } &&
-                    it.destination.logisticsModule != null &&
-                    it.destination.logisticsModule.recievePassive() &&
-                    it.destination.pipe != null &&
-                    it.destination.pipe.isEnabled &&
-                    !it.destination.pipe.isOnSameContainer(sourceRouter.pipe)
-        }.sorted().forEachOrdered {
-            val reply: SinkReply?
-            val module: LogisticsModule = it.destination.logisticsModule
-            reply = when {
-                result == null -> module.sinksItem(stack, itemid, -1, 0, canBeDefault, true, true)
-                result!!.maxNumberOfItems < 0 -> null
-                else -> module.sinksItem(stack, itemid, result!!.fixedPriority.ordinal, result!!.customPriority, canBeDefault, true, true)
-            }
+        val sourcePipe = sourceRouter.cachedPipe
+        if (sourcePipe == null || routersToExclude.isNotEmpty()) {
+            return getBestReply(stack, itemid, sourceRouter, getDestinationStream(itemid, sourceRouter), routersToExclude, canBeDefault)
+                ?.let { (route, reply) -> Pair(route.destination.simpleID, reply) }
+        }
 
-            if (reply != null && (result == null ||
-                            reply.fixedPriority.ordinal > result!!.fixedPriority.ordinal ||
-                            (reply.fixedPriority == result!!.fixedPriority && reply.customPriority > result!!.customPriority))) {
-                resultRouterId = it.destination.simpleID
-                result = reply
+        // identical items from the same source usually end up at the same destination, try that one first
+        val routeTable = sourceRouter._routeTable
+        val worldTime = sourcePipe.world.totalWorldTime
+        val cache = sourceRouter.destinationCache
+        cache.get(itemid, canBeDefault, true, routeTable, worldTime)?.let { cached ->
+            val reply = if (canRouteTo(cached.route, itemid, sourceRouter, routersToExclude)) {
+                cached.route.destination.logisticsModule.sinksItem(stack, itemid, -1, 0, canBeDefault, true, true)
+            } else null
+            if (DestinationCache.isSameDecision(cached.reply, reply)) {
+                return useDestination(cached.route.destination.simpleID, reply!!)
             }
+            cache.invalidate(itemid, canBeDefault, true, cached)
         }
+        val stamp = DestinationCache.stamp(routeTable, worldTime)
+        return getBestReply(stack, itemid, sourceRouter, getDestinationStream(itemid, sourceRouter), routersToExclude, canBeDefault)
+            ?.let { (route, reply) ->
+                cache.put(stamp, itemid, canBeDefault, true, route, reply)
+                Pair(route.destination.simpleID, reply)
+            }
+    }
 
-        return result?.let { sinkReply ->
-            resultRouterId?.let { destinationRouterId ->
-                val pipe = SimpleServiceLocator.routerManager.getServerRouter(destinationRouterId)!!.pipe!!
-                pipe.useEnergy(sinkReply.energyUse)
-                pipe.spawnParticle(Particles.BlueParticle, 10)
-                Pair(destinationRouterId, sinkReply)
+    private fun getDestinationStream(itemid: ItemIdentifier, sourceRouter: ServerRouter): Stream<ExitRoute> =
+        ServerRouter.getRoutersInterestedIn(itemid).stream()
+            .mapToObj(SimpleServiceLocator.routerManager::getServerRouter)
+            .flatMap {
+                it?.let { router ->
+                    AsyncRouting.getDistance(sourceRouter, router, itemid)?.let { exitRoute -> Stream.of(exitRoute) }
+                } ?: Stream.empty()
             }
-        }
+
+    private fun canRouteTo(route: ExitRoute, itemid: ItemIdentifier, sourceRouter: ServerRouter, routersToExclude: List<Int>): Boolean =
+        route.destination.id != sourceRouter.id &&
+                !routersToExclude.contains(route.destination.simpleID) &&
+                route.containsFlag(PipeRoutingConnectionType.canRouteTo) &&
+                route.filters.none { filter -> filter.blockRouting() || filter.isBlocked == filter.isFilteredItem(itemid) } &&
+                route.destination.logisticsModule != null &&
+                route.destination.logisticsModule.recievePassive() &&
+                route.destination.pipe != null &&
+                route.destination.pipe.isEnabled &&
+                !route.destination.pipe.isOnSameContainer(sourceRouter.pipe)
+
+    private fun useDestination(destinationRouterId: Int, sinkReply: SinkReply): Pair<Int, SinkReply> {
+        val pipe = SimpleServiceLocator.routerManager.getServerRouter(destinationRouterId)!!.pipe!!
+        pipe.useEnergy(sinkReply.energyUse)
+        pipe.spawnParticle(Particles.BlueParticle, 10)
+        return Pair(destinationRouterId, sinkReply)
+    }
+
+    private fun getBestReply(stack: ItemStack, itemid: ItemIdentifier, sourceRouter: ServerRouter, destinationStream: Stream<ExitRoute>, routersToExclude: List<Int>, canBeDefault: Boolean): Pair<ExitRoute, SinkReply>? {
+        val candidates = destinationStream.filter {
+            canRouteTo(it, itemid, sourceRouter, routersToExclude)
+        }.sorted().collect(Collectors.toList())
+        val (route, reply) = PrioritizedSinkSearch.findBestSink(candidates) { candidate, bestPriority, bestCustomPriority ->
+            candidate.destination.logisticsModule.sinksItem(stack, itemid, bestPriority, bestCustomPriority, canBeDefault, true, true)
+        } ?: return null
+        useDestination(route.destination.simpleID, reply)
+        return Pair(route, reply)
     }
 
 }
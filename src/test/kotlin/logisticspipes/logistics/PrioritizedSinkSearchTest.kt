@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2021  RS485
+ *
+ * "LogisticsPipes" is distributed under the terms of the Minecraft Mod Public
+ * License 1.0.1, or MMPL. Please check the contents of the license located in
+ * https://github.com/RS485/LogisticsPipes/blob/dev/LICENSE.md
+ *
+ * This file can instead be distributed under the license terms of the
+ * MIT license:
+ *
+ * Copyright (c) 2021  RS485
+ *
+ * This MIT license was reworded to only match this file. If you use the regular
+ * MIT license in your project, replace this copyright notice (this line and any
+ * lines below and NOT the copyright line above) with the lines from the original
+ * MIT license located here: http://opensource.org/licenses/MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this file and associated documentation files (the "Source Code"), to deal in
+ * the Source Code without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Source Code, and to permit persons to whom the Source Code is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Source Code, which also can be
+ * distributed under the MIT.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package logisticspipes.logistics
+
+import logisticspipes.utils.SinkReply
+import logisticspipes.utils.SinkReply.FixedPriority
+import java.util.*
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+import kotlin.test.assertSame
+
+class PrioritizedSinkSearchTest {
+
+    /**
+     * A sink module, which replies with [reply] to every query it can
+     * beat, and reports [bound] as its highest possible reply.
+     */
+    private class Sink(val reply: SinkReply?, val bound: SinkReply?) {
+        var asked = 0
+
+        fun sinksItem(bestPriority: Int, bestCustomPriority: Int): SinkReply? {
+            asked++
+            val reply = reply ?: return null
+            // same check as the sink modules
+            if (bestPriority > reply.fixedPriority.ordinal || (bestPriority == reply.fixedPriority.ordinal && bestCustomPriority >= reply.customPriority)) {
+                return null
+            }
+            return reply
+        }
+    }
+
+    private fun reply(fixedPriority: FixedPriority, customPriority: Int, maxNumberOfItems: Int = 0) =
+        SinkReply(fixedPriority, customPriority, false, false, 1, maxNumberOfItems, null)
+
+    private fun search(candidates: List<Sink>) =
+        PrioritizedSinkSearch.findBestSink(candidates, { it.bound }) { candidate, bestPriority, bestCustomPriority ->
+            candidate.sinksItem(bestPriority, bestCustomPriority)
+        }
+
+    /**
+     * The search before candidates were ordered by their bound: every
+     * candidate is asked in distance order with the best reply so far.
+     */
+    private fun distanceOrderedScan(candidates: List<Sink>): Int {
+        var best: SinkReply? = null
+        var bestIndex = -1
+        candidates.forEachIndexed { index, candidate ->
+            val reply = best.let { if (it == null) candidate.sinksItem(-1, 0) else candidate.sinksItem(it.fixedPriority.ordinal, it.customPriority) }
+            if (reply != null && (best?.maxNumberOfItems ?: 0) >= 0) {
+                best = reply
+                bestIndex = index
+            }
+        }
+        return bestIndex
+    }
+
+    private fun randomSink(random: Random): Sink {
+        val priorities = FixedPriority.values()
+        if (random.nextInt(5) == 0) {
+            // never sinks, like a provider module
+            return Sink(null, null)
+        }
+        // no module replies with a negative maximum, see PrioritizedSinkSearch
+        val maxNumberOfItems = if (random.nextBoolean()) 0 else 1 + random.nextInt(64)
+        val bound = reply(priorities[random.nextInt(3)], random.nextInt(3), maxNumberOfItems)
+        val reply = when (random.nextInt(3)) {
+            // does not sink this item
+            0 -> null
+            // replies with less than its bound
+            1 -> reply(priorities[random.nextInt(bound.fixedPriority.ordinal + 1)], random.nextInt(bound.customPriority + 1) - random.nextInt(2), maxNumberOfItems)
+            else -> bound
+        }
+        return Sink(reply, bound)
+    }
+
+    @Test
+    fun `test same result as distance ordered scan`() {
+        val random = Random(4242)
+        repeat(20000) { run ->
+            val candidates = List(random.nextInt(10)) { randomSink(random) }
+            val expectedIndex = distanceOrderedScan(candidates)
+            val result = search(candidates)
+            if (expectedIndex < 0) {
+                assertNull(result, "run $run")
+            } else {
+                val (sink, reply) = result ?: error("no result in run $run, expected candidate $expectedIndex")
+                assertSame(candidates[expectedIndex], sink, "run $run")
+                assertSame(candidates[expectedIndex].reply, reply, "run $run")
+            }
+        }
+    }
+
+    @Test
+    fun `test closer candidate wins a tie`() {
+        val far = Sink(reply(FixedPriority.ItemSink, 1), reply(FixedPriority.ItemSink, 2))
+        val close = Sink(reply(FixedPriority.ItemSink, 1), reply(FixedPriority.ItemSink, 1))
+        val (sink, _) = search(listOf(close, far)) ?: error("no result")
+        assertSame(close, sink)
+    }
+
+    @Test
+    fun `test candidates which cannot win are not asked`() {
+        val best = Sink(reply(FixedPriority.PassiveSupplier, 0), reply(FixedPriority.PassiveSupplier, 0))
+        val others = List(5) { Sink(reply(FixedPriority.ItemSink, it), reply(FixedPriority.ItemSink, it)) }
+        val (sink, _) = search(others + best) ?: error("no result")
+        assertSame(best, sink)
+        others.forEach { assertEquals(0, it.asked) }
+    }
+
+    @Test
+    fun `test no candidates`() {
+        assertNull(search(emptyList()))
+        assertNull(search(listOf(Sink(null, null), Sink(null, reply(FixedPriority.ItemSink, 0)))))
+    }
+}
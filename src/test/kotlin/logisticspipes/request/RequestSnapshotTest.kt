@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2021  RS485
+ *
+ * "LogisticsPipes" is distributed under the terms of the Minecraft Mod Public
+ * License 1.0.1, or MMPL. Please check the contents of the license located in
+ * https://github.com/RS485/LogisticsPipes/blob/dev/LICENSE.md
+ *
+ * This file can instead be distributed under the license terms of the
+ * MIT license:
+ *
+ * Copyright (c) 2021  RS485
+ *
+ * This MIT license was reworded to only match this file. If you use the regular
+ * MIT license in your project, replace this copyright notice (this line and any
+ * lines below and NOT the copyright line above) with the lines from the original
+ * MIT license located here: http://opensource.org/licenses/MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this file and associated documentation files (the "Source Code"), to deal in
+ * the Source Code without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Source Code, and to permit persons to whom the Source Code is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Source Code, which also can be
+ * distributed under the MIT.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package logisticspipes.request
+
+import logisticspipes.interfaces.routing.IAdditionalTargetInformation
+import logisticspipes.interfaces.routing.ICraftItems
+import logisticspipes.interfaces.routing.IFilter
+import logisticspipes.interfaces.routing.IProvideItems
+import logisticspipes.interfaces.routing.IRequestItems
+import logisticspipes.request.resources.IResource
+import logisticspipes.request.resources.ItemResource
+import logisticspipes.routing.IRouter
+import logisticspipes.routing.LogisticsExtraPromise
+import logisticspipes.routing.LogisticsPromise
+import logisticspipes.routing.order.IOrderInfoProvider.ResourceType
+import logisticspipes.routing.order.LogisticsOrder
+import logisticspipes.utils.item.ItemIdentifier
+import net.minecraft.init.Bootstrap
+import net.minecraft.init.Items
+import network.rs485.logisticspipes.util.stub
+import network.rs485.logisticspipes.world.DoubleCoordinates
+import org.junit.jupiter.api.BeforeAll
+import java.util.*
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class RequestSnapshotTest {
+
+    companion object {
+        @BeforeAll
+        @JvmStatic
+        fun bootstrap() = Bootstrap.register()
+    }
+
+    private class TestProvider(val available: MutableMap<ItemIdentifier, Int>) : IProvideItems {
+        private val router: IRouter = stub()
+
+        override fun getAllItems(list: MutableMap<ItemIdentifier, Int>, filter: List<IFilter>) {
+            list.putAll(available)
+        }
+
+        override fun canProvide(tree: RequestTreeNode, root: RequestTree, filter: List<IFilter>) {
+            throw UnsupportedOperationException("the snapshot answers")
+        }
+
+        override fun fullFill(promise: LogisticsPromise, destination: IRequestItems, info: IAdditionalTargetInformation): LogisticsOrder = throw UnsupportedOperationException()
+        override fun getRouter() = router
+    }
+
+    private class TestFilter(
+        private val blocked: Boolean,
+        private val filtered: Set<ItemIdentifier>,
+        private val blockProvider: Boolean = false,
+    ) : IFilter {
+        override fun isBlocked() = blocked
+        override fun isFilteredItem(item: ItemIdentifier) = item in filtered
+        override fun isFilteredItem(resultItem: IResource) = filtered.any { resultItem.matches(it, IResource.MatchSettings.NORMAL) }
+        override fun blockProvider() = blockProvider
+        override fun blockCrafting() = false
+        override fun blockRouting() = false
+        override fun blockPower() = false
+        override fun getLPPosition(): DoubleCoordinates? = null
+    }
+
+    private val stick: ItemIdentifier get() = ItemIdentifier.get(Items.STICK, 0, null)
+    private val bone: ItemIdentifier get() = ItemIdentifier.get(Items.BONE, 0, null)
+
+    private fun snapshotOf(provider: TestProvider) = RequestSnapshot.startCapture(stub()).snapshot.apply { captureItems(provider) }
+
+    /**
+     * @return the amount still missing after asking the snapshot for the provider
+     */
+    private fun request(snapshot: RequestSnapshot, provider: TestProvider, item: ItemIdentifier, amount: Int, filters: List<IFilter>): Int {
+        val tree = RequestTree(ItemResource(item.makeStack(amount), null), null, EnumSet.noneOf(RequestTree.ActiveRequestType::class.java), null)
+        snapshot.canProvide(provider, tree, tree, filters)
+        return tree.missingAmount
+    }
+
+    @Test
+    fun `test provides captured items without filters`() {
+        val provider = TestProvider(mutableMapOf(stick to 10))
+        val snapshot = snapshotOf(provider)
+        assertEquals(0, request(snapshot, provider, stick, 4, emptyList()))
+        assertEquals(2, request(snapshot, provider, stick, 12, emptyList()))
+    }
+
+    @Test
+    fun `test blacklist filter blocks the filtered item only`() {
+        val provider = TestProvider(mutableMapOf(stick to 10, bone to 10))
+        val snapshot = snapshotOf(provider)
+        val blacklist = listOf(TestFilter(blocked = true, filtered = setOf(stick)))
+        assertEquals(4, request(snapshot, provider, stick, 4, blacklist))
+        assertEquals(0, request(snapshot, provider, bone, 4, blacklist))
+    }
+
+    @Test
+    fun `test whitelist filter blocks every other item`() {
+        val provider = TestProvider(mutableMapOf(stick to 10, bone to 10))
+        val snapshot = snapshotOf(provider)
+        val whitelist = listOf(TestFilter(blocked = false, filtered = setOf(bone)))
+        assertEquals(4, request(snapshot, provider, stick, 4, whitelist))
+        assertEquals(0, request(snapshot, provider, bone, 4, whitelist))
+    }
+
+    @Test
+    fun `test filter blocking providers blocks all items`() {
+        val provider = TestProvider(mutableMapOf(stick to 10))
+        val snapshot = snapshotOf(provider)
+        val blockProvider = listOf(TestFilter(blocked = true, filtered = emptySet(), blockProvider = true))
+        assertEquals(4, request(snapshot, provider, stick, 4, blockProvider))
+    }
+
+    @Test
+    fun `test snapshot does not change with the provider`() {
+        val provider = TestProvider(mutableMapOf(stick to 10))
+        val snapshot = snapshotOf(provider)
+        provider.available.clear()
+        assertEquals(0, request(snapshot, provider, stick, 4, emptyList()))
+    }
+
+    @Test
+    fun `test plan is outdated when the provider lost promised items`() {
+        val provider = TestProvider(mutableMapOf(stick to 10))
+        val snapshot = snapshotOf(provider)
+        val promises = listOf<IPromise>(LogisticsPromise(stick, 6, provider, ResourceType.PROVIDER), LogisticsPromise(stick, 2, provider, ResourceType.PROVIDER))
+        assertTrue(snapshot.isStillValid(promises))
+        provider.available[stick] = 7
+        assertFalse(snapshot.isStillValid(promises), "both promises together need 8 sticks")
+        provider.available[stick] = 8
+        assertTrue(snapshot.isStillValid(promises))
+    }
+
+    @Test
+    fun `test plan is outdated when the crafter cannot craft anymore`() {
+        val crafter: ICraftItems = stub()
+        val snapshot = snapshotOf(TestProvider(mutableMapOf()))
+        assertFalse(snapshot.isStillValid(listOf(LogisticsPromise(stick, 1, crafter, ResourceType.CRAFTING))))
+    }
+
+    @Test
+    fun `test extras made by the plan itself are not checked`() {
+        val crafter: ICraftItems = stub()
+        val snapshot = snapshotOf(TestProvider(mutableMapOf()))
+        assertTrue(snapshot.isStillValid(listOf(LogisticsExtraPromise(stick, 3, crafter, false))))
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2021  RS485
+ *
+ * "LogisticsPipes" is distributed under the terms of the Minecraft Mod Public
+ * License 1.0.1, or MMPL. Please check the contents of the license located in
+ * https://github.com/RS485/LogisticsPipes/blob/dev/LICENSE.md
+ *
+ * This file can instead be distributed under the license terms of the
+ * MIT license:
+ *
+ * Copyright (c) 2021  RS485
+ *
+ * This MIT license was reworded to only match this file. If you use the regular
+ * MIT license in your project, replace this copyright notice (this line and any
+ * lines below and NOT the copyright line above) with the lines from the original
+ * MIT license located here: http://opensource.org/licenses/MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this file and associated documentation files (the "Source Code"), to deal in
+ * the Source Code without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Source Code, and to permit persons to whom the Source Code is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Source Code, which also can be
+ * distributed under the MIT.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package logisticspipes.routing
+
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class LSAChangeJournalTest {
+
+    private val capacity = 8
+
+    @Test
+    fun `test entries are read back`() {
+        val journal = LSAChangeJournal(capacity)
+        assertEquals(0L, journal.sequence)
+        journal.add(LSAChangeJournal.EDGE_IMPROVED, 1, 2)
+        journal.add(LSAChangeJournal.ROUTER_CHANGED, 3, 3)
+        assertEquals(2L, journal.sequence)
+        assertEquals(LSAChangeJournal.EDGE_IMPROVED, journal.getKind(0))
+        assertEquals(1, journal.getFrom(0))
+        assertEquals(2, journal.getTo(0))
+        assertEquals(LSAChangeJournal.ROUTER_CHANGED, journal.getKind(1))
+        assertEquals(3, journal.getFrom(1))
+        assertEquals(3, journal.getTo(1))
+        assertTrue(journal.isAvailableSince(0))
+        assertTrue(journal.isAvailableSince(2))
+        assertFalse(journal.isAvailableSince(3))
+    }
+
+    @Test
+    fun `test wrap around`() {
+        val journal = LSAChangeJournal(capacity)
+        repeat(3 * capacity + 3) { journal.add(LSAChangeJournal.EDGE_WORSENED, it, it + 1) }
+        val sequence = journal.sequence
+        assertEquals(3L * capacity + 3, sequence)
+        for (seq in sequence - capacity + 1 until sequence) {
+            assertTrue(journal.isAvailableSince(seq), "since $seq")
+            assertEquals(seq.toInt(), journal.getFrom(seq))
+            assertEquals(seq.toInt() + 1, journal.getTo(seq))
+        }
+        assertTrue(journal.isAvailableSince(sequence))
+        // the slot of this entry is the one written next, so a reader could see it half overwritten
+        assertFalse(journal.isAvailableSince(sequence - capacity))
+        assertFalse(journal.isAvailableSince(0))
+    }
+
+    @Test
+    fun `test entry is gone while its slot is rewritten`() {
+        val journal = LSAChangeJournal(capacity)
+        repeat(capacity - 1) { journal.add(LSAChangeJournal.EDGE_IMPROVED, it, it) }
+        assertTrue(journal.isAvailableSince(0))
+        journal.add(LSAChangeJournal.EDGE_IMPROVED, capacity - 1, capacity - 1)
+        // the next add writes the slot of entry 0 before the sequence moves on
+        assertFalse(journal.isAvailableSince(0))
+        assertTrue(journal.isAvailableSince(1))
+    }
+}
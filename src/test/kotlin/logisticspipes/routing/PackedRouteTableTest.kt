@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2021  RS485
+ *
+ * "LogisticsPipes" is distributed under the terms of the Minecraft Mod Public
+ * License 1.0.1, or MMPL. Please check the contents of the license located in
+ * https://github.com/RS485/LogisticsPipes/blob/dev/LICENSE.md
+ *
+ * This file can instead be distributed under the license terms of the
+ * MIT license:
+ *
+ * Copyright (c) 2021  RS485
+ *
+ * This MIT license was reworded to only match this file. If you use the regular
+ * MIT license in your project, replace this copyright notice (this line and any
+ * lines below and NOT the copyright line above) with the lines from the original
+ * MIT license located here: http://opensource.org/licenses/MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this file and associated documentation files (the "Source Code"), to deal in
+ * the Source Code without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Source Code, and to permit persons to whom the Source Code is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Source Code, which also can be
+ * distributed under the MIT.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package logisticspipes.routing
+
+import java.lang.reflect.Modifier
+import java.util.*
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNotSame
+import kotlin.test.assertNull
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+import net.minecraft.util.EnumFacing
+import network.rs485.logisticspipes.util.stub
+
+class PackedRouteTableTest {
+
+    private val source = stub<IRouter>()
+    private val near = stub<IRouter>()
+    private val far = stub<IRouter>()
+
+    private fun route(destination: IRouter, exit: EnumFacing, distance: Double, vararg flags: PipeRoutingConnectionType) =
+        ExitRoute(source, destination, exit, null, distance, EnumSet.copyOf(flags.asList()), distance.toInt() + 1)
+
+    private fun table(): PackedRouteTable {
+        val toNear = route(near, EnumFacing.NORTH, 2.0, PipeRoutingConnectionType.canRouteTo, PipeRoutingConnectionType.canRequestFrom)
+        val toFar = route(far, EnumFacing.EAST, 5.0, PipeRoutingConnectionType.canRouteTo)
+        val toFarAgain = route(far, EnumFacing.UP, 9.0, PipeRoutingConnectionType.canRequestFrom)
+        return PackedRouteTable.pack(source, listOf(null, listOf(toNear), listOf(toFar, toFarAgain)), listOf(toNear, toFar, toFarAgain))
+    }
+
+    @Test
+    fun `test only arrays are kept per route`() {
+        val table = table()
+        // look at every route, nothing of it may stay behind in the table
+        table.filterNotNull().forEach { routes -> routes.forEach { it.exitOrientation } }
+        table.routesByCost.forEach { it.exitOrientation }
+
+        PackedRouteTable::class.java.declaredFields.filterNot { Modifier.isStatic(it.modifiers) }.forEach { field ->
+            field.isAccessible = true
+            val value = field.get(table)
+            when {
+                field.type.isArray -> assertTrue(
+                    field.type.componentType.isPrimitive || field.type.componentType in listOf(IRouter::class.java, List::class.java),
+                    "${field.name} stores ${field.type.componentType.simpleName}",
+                )
+                field.type == IRouter::class.java -> assertSame(source, value, field.name)
+                else -> assertSame(table.routesByCost, value, "${field.name} is no array, source or cost view")
+            }
+        }
+    }
+
+    @Test
+    fun `test routes are new on every access`() {
+        val table = table()
+        val first = table[2][0]
+        val second = table[2][0]
+        assertNotSame(first, second)
+        assertSame(far, second.destination)
+        assertEquals(EnumFacing.EAST, second.exitOrientation)
+        assertEquals(5.0, second.distanceToDestination)
+        assertEquals(6, second.blockDistance)
+
+        // changing a handed out route does not change the table
+        first.exitOrientation = EnumFacing.DOWN
+        first.connectionDetails.clear()
+        assertEquals(EnumFacing.EAST, table[2][0].exitOrientation)
+        assertTrue(table[2][0].containsFlag(PipeRoutingConnectionType.canRouteTo))
+    }
+
+    @Test
+    fun `test cost order and lookups`() {
+        val table = table()
+        assertNull(table[0])
+        assertEquals(listOf(near, far, far), table.routesByCost.map { it.destination })
+        assertEquals(listOf(2.0, 5.0, Int.MAX_VALUE.toDouble()), table.routesByCost.map { it.distanceToDestination })
+        assertEquals(9.0, table.routesByCost[2].destinationDistanceToRoot)
+        assertEquals(EnumFacing.NORTH, table.getRoute(1, false, null)?.exitOrientation)
+        assertNull(table.getRoute(0, false, null))
+        assertTrue(table.hasRoute(2, true, null))
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2021  RS485
+ *
+ * "LogisticsPipes" is distributed under the terms of the Minecraft Mod Public
+ * License 1.0.1, or MMPL. Please check the contents of the license located in
+ * https://github.com/RS485/LogisticsPipes/blob/dev/LICENSE.md
+ *
+ * This file can instead be distributed under the license terms of the
+ * MIT license:
+ *
+ * Copyright (c) 2021  RS485
+ *
+ * This MIT license was reworded to only match this file. If you use the regular
+ * MIT license in your project, replace this copyright notice (this line and any
+ * lines below and NOT the copyright line above) with the lines from the original
+ * MIT license located here: http://opensource.org/licenses/MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this file and associated documentation files (the "Source Code"), to deal in
+ * the Source Code without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Source Code, and to permit persons to whom the Source Code is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Source Code, which also can be
+ * distributed under the MIT.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package logisticspipes.routing.order
+
+import logisticspipes.interfaces.routing.IRequestItems
+import logisticspipes.request.resources.DictResource
+import logisticspipes.routing.order.IOrderInfoProvider.ResourceType
+import logisticspipes.utils.item.ItemIdentifier
+import net.minecraft.init.Bootstrap
+import net.minecraft.init.Items
+import network.rs485.logisticspipes.util.stub
+import org.junit.jupiter.api.BeforeAll
+import kotlin.test.Test
+import kotlin.test.assertEquals
+
+class LogisticsItemOrderManagerTest {
+
+    companion object {
+        @BeforeAll
+        @JvmStatic
+        fun bootstrap() = Bootstrap.register()
+    }
+
+    private val stick = ItemIdentifier.get(Items.STICK, 0, null)
+    private val coal = ItemIdentifier.get(Items.COAL, 0, null)
+    private val requester: IRequestItems = stub()
+    private val manager = LogisticsItemOrderManager(stub())
+
+    private fun order(item: ItemIdentifier, amount: Int) =
+        manager.addOrder(item.makeStack(amount), requester, ResourceType.PROVIDER, null)
+
+    private fun extra(item: ItemIdentifier, amount: Int) = manager.addExtra(DictResource(item.makeStack(amount), null))
+
+    @Test
+    fun `test totals follow sent stacks`() {
+        order(stick, 10)
+        order(coal, 3)
+        order(stick, 5)
+        assertEquals(15, manager.totalItemsCountInOrders(stick))
+        assertEquals(3, manager.totalItemsCountInOrders(coal))
+
+        manager.sendSuccessfull(4, false, null)
+        assertEquals(11, manager.totalItemsCountInOrders(stick))
+
+        // finishing the first order only removes what was left of it
+        manager.sendSuccessfull(6, false, null)
+        assertEquals(5, manager.totalItemsCountInOrders(stick))
+        assertEquals(2, manager.size())
+    }
+
+    @Test
+    fun `test failed order leaves the totals`() {
+        order(coal, 8)
+        order(coal, 2)
+        manager.sendSuccessfull(3, false, null)
+        manager.sendFailed()
+        assertEquals(2, manager.totalItemsCountInOrders(coal))
+        manager.sendFailed()
+        assertEquals(0, manager.totalItemsCountInOrders(coal))
+    }
+
+    @Test
+    fun `test removed extras leave the totals`() {
+        extra(stick, 4)
+        extra(stick, 6)
+        extra(coal, 1)
+        assertEquals(10, manager.totalItemsCountInOrders(stick))
+
+        // takes the first extra and half of the second
+        manager.removeExtras(DictResource(stick.makeStack(7), null))
+        assertEquals(3, manager.totalItemsCountInOrders(stick))
+        assertEquals(1, manager.totalItemsCountInOrders(coal))
+
+        manager.removeExtras(DictResource(stick.makeStack(3), null))
+        assertEquals(0, manager.totalItemsCountInOrders(stick))
+        assertEquals(1, manager.size())
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2021  RS485
+ *
+ * "LogisticsPipes" is distributed under the terms of the Minecraft Mod Public
+ * License 1.0.1, or MMPL. Please check the contents of the license located in
+ * https://github.com/RS485/LogisticsPipes/blob/dev/LICENSE.md
+ *
+ * This file can instead be distributed under the license terms of the
+ * MIT license:
+ *
+ * Copyright (c) 2021  RS485
+ *
+ * This MIT license was reworded to only match this file. If you use the regular
+ * MIT license in your project, replace this copyright notice (this line and any
+ * lines below and NOT the copyright line above) with the lines from the original
+ * MIT license located here: http://opensource.org/licenses/MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this file and associated documentation files (the "Source Code"), to deal in
+ * the Source Code without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Source Code, and to permit persons to whom the Source Code is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Source Code, which also can be
+ * distributed under the MIT.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package logisticspipes.routing.order
+
+import logisticspipes.routing.IRouter
+import logisticspipes.routing.order.IOrderInfoProvider.ResourceType
+import logisticspipes.utils.item.ItemIdentifierStack
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+class LogisticsOrderLinkedListTest {
+
+    private class Order(val ident: Int, type: ResourceType) : LogisticsOrder(type, null) {
+        override fun getRouter(): IRouter? = null
+        override fun sendFailed() {}
+        override fun getAmount(): Int = 1
+        override fun reduceAmountBy(amount: Int) {}
+        override fun getAsDisplayItem(): ItemIdentifierStack? = null
+    }
+
+    private fun orderList() = LogisticsOrderLinkedList(object : LogisticsOrderLinkedList.IIdentityProvider<Order, Int> {
+        override fun getIdentity(o: Order): Int = o.ident
+        override fun isExtra(o: Order): Boolean = o.type == ResourceType.EXTRA
+    })
+
+    private fun crafting(ident: Int) = Order(ident, ResourceType.CRAFTING)
+
+    private fun extra(ident: Int) = Order(ident, ResourceType.EXTRA)
+
+    @Test
+    fun `test orders keep their order`() {
+        val orders = orderList()
+        val added = listOf(crafting(1), crafting(2), crafting(1), crafting(3))
+        added.forEach(orders::addLast)
+        assertEquals(added, orders.toList())
+        assertSame(added[0], orders.first)
+        assertSame(added[0], orders.removeFirst())
+        assertEquals(3, orders.size())
+        assertFalse(orders.hasExtras())
+    }
+
+    @Test
+    fun `test extras move behind the next order of their identity`() {
+        val orders = orderList()
+        val extraA = extra(1)
+        val extraB = extra(2)
+        val extraC = extra(1)
+        val craft = crafting(1)
+        listOf(extraA, extraB, extraC, craft).forEach(orders::addLast)
+        assertEquals(listOf(extraB, craft, extraA, extraC), orders.toList())
+
+        // and again behind the one after, without touching the others
+        val craftB = crafting(2)
+        val craftAgain = crafting(1)
+        orders.addLast(craftB)
+        orders.addLast(craftAgain)
+        assertEquals(listOf(craft, craftB, extraB, craftAgain, extraA, extraC), orders.toList())
+    }
+
+    @Test
+    fun `test removed extras are no longer moved`() {
+        val orders = orderList()
+        val first = extra(1)
+        val second = extra(1)
+        orders.addLast(first)
+        orders.addLast(second)
+        assertTrue(orders.hasExtras())
+
+        assertSame(first, orders.removeFirst())
+        orders.removeAll(listOf(second))
+        assertFalse(orders.hasExtras())
+        assertTrue(orders.isEmpty)
+
+        val craft = crafting(1)
+        val other = extra(2)
+        orders.addLast(other)
+        orders.addLast(craft)
+        assertEquals(listOf(other, craft), orders.toList())
+    }
+
+    @Test
+    fun `test removing orders not in the list changes nothing`() {
+        val orders = orderList()
+        val queued = extra(1)
+        orders.addLast(queued)
+        orders.removeAll(listOf(extra(1), crafting(1)))
+        assertTrue(orders.hasExtras())
+        assertEquals(listOf(queued), orders.toList())
+    }
+}
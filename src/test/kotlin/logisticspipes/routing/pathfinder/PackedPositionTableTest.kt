@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2021  RS485
+ *
+ * "LogisticsPipes" is distributed under the terms of the Minecraft Mod Public
+ * License 1.0.1, or MMPL. Please check the contents of the license located in
+ * https://github.com/RS485/LogisticsPipes/blob/dev/LICENSE.md
+ *
+ * This file can instead be distributed under the license terms of the
+ * MIT license:
+ *
+ * Copyright (c) 2021  RS485
+ *
+ * This MIT license was reworded to only match this file. If you use the regular
+ * MIT license in your project, replace this copyright notice (this line and any
+ * lines below and NOT the copyright line above) with the lines from the original
+ * MIT license located here: http://opensource.org/licenses/MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this file and associated documentation files (the "Source Code"), to deal in
+ * the Source Code without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Source Code, and to permit persons to whom the Source Code is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Source Code, which also can be
+ * distributed under the MIT.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package logisticspipes.routing.pathfinder
+
+import java.util.*
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class PackedPositionTableTest {
+
+    @Test
+    fun `test pack keeps positions apart`() {
+        val keys = HashSet<Long>()
+        for (x in -2..2) for (y in 0..255 step 51) for (z in -2..2) {
+            assertTrue(keys.add(PackedPositionTable.pack(x, y, z)), "$x $y $z")
+        }
+        assertFalse(PackedPositionTable.pack(30_000_000, 0, 0) == PackedPositionTable.pack(-30_000_000, 0, 0))
+    }
+
+    @Test
+    fun `test same content as hash map`() {
+        val random = Random(6006)
+        val table = PackedPositionTable()
+        val expected = HashMap<Long, Double>()
+        repeat(50) { round ->
+            // a small area, so probe sequences overlap and removals shift entries back
+            repeat(random.nextInt(400)) {
+                val key = PackedPositionTable.pack(random.nextInt(16), random.nextInt(4), random.nextInt(16))
+                if (random.nextInt(3) == 0) {
+                    table.remove(key)
+                    expected.remove(key)
+                } else {
+                    val value = random.nextDouble()
+                    table.put(key, value)
+                    expected[key] = value
+                }
+            }
+            assertEquals(expected.size, table.size(), "round $round")
+            for (x in 0 until 16) for (y in 0 until 4) for (z in 0 until 16) {
+                val key = PackedPositionTable.pack(x, y, z)
+                assertEquals(expected.containsKey(key), table.contains(key), "round $round at $x $y $z")
+            }
+            assertEquals(expected.values.sum(), table.sum(), 1e-9, "round $round")
+            if (random.nextInt(10) == 0) {
+                table.clear()
+                expected.clear()
+            }
+        }
+    }
+
+    @Test
+    fun `test remove all after growing`() {
+        val table = PackedPositionTable()
+        val keys = (0 until 1000).map { PackedPositionTable.pack(it % 10, it / 100, (it / 10) % 10) }
+        keys.forEach { table.put(it, 1.0) }
+        assertEquals(1000, table.size())
+        keys.shuffled(Random(7)).forEachIndexed { index, key ->
+            table.remove(key)
+            assertFalse(table.contains(key))
+            assertEquals(999 - index, table.size())
+        }
+        assertEquals(0.0, table.sum())
+    }
+
+    @Test
+    fun `test clear shrinks after small use`() {
+        val table = PackedPositionTable()
+        repeat(4096) { table.add(PackedPositionTable.pack(it, 0, 0)) }
+        table.clear()
+        table.add(PackedPositionTable.pack(1, 2, 3))
+        table.clear()
+        assertEquals(0, table.size())
+        assertFalse(table.contains(PackedPositionTable.pack(1, 2, 3)))
+        table.put(PackedPositionTable.pack(1, 2, 3), 3.0)
+        table.put(PackedPositionTable.pack(4, 5, 6), -2.0)
+        assertEquals(1.0, table.sum())
+        assertEquals(1.0, table.clampedSum())
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2021  RS485
+ *
+ * "LogisticsPipes" is distributed under the terms of the Minecraft Mod Public
+ * License 1.0.1, or MMPL. Please check the contents of the license located in
+ * https://github.com/RS485/LogisticsPipes/blob/dev/LICENSE.md
+ *
+ * This file can instead be distributed under the license terms of the
+ * MIT license:
+ *
+ * Copyright (c) 2021  RS485
+ *
+ * This MIT license was reworded to only match this file. If you use the regular
+ * MIT license in your project, replace this copyright notice (this line and any
+ * lines below and NOT the copyright line above) with the lines from the original
+ * MIT license located here: http://opensource.org/licenses/MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this file and associated documentation files (the "Source Code"), to deal in
+ * the Source Code without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Source Code, and to permit persons to whom the Source Code is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Source Code, which also can be
+ * distributed under the MIT.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package logisticspipes.routing.pathfinder
+
+import logisticspipes.asm.te.ILPTEInformation
+import logisticspipes.asm.te.ITileEntityChangeListener
+import logisticspipes.asm.te.LPTileEntityObject
+import logisticspipes.interfaces.IPipeUpgradeManager
+import logisticspipes.interfaces.routing.IFilter
+import logisticspipes.interfaces.routing.ISpecialPipedConnection
+import logisticspipes.pipes.PipeItemsBasicLogistics
+import logisticspipes.pipes.basic.CoreRoutedPipe
+import logisticspipes.proxy.SimpleServiceLocator
+import logisticspipes.proxy.specialconnection.SpecialPipeConnection
+import logisticspipes.proxy.specialconnection.SpecialPipeConnection.ConnectionInformation
+import logisticspipes.proxy.specialconnection.SpecialTileConnection
+import logisticspipes.routing.IRouter
+import logisticspipes.routing.PipeRoutingConnectionType
+import logisticspipes.transport.LPTravelingItem
+import logisticspipes.utils.item.ItemIdentifier
+import net.minecraft.init.Bootstrap
+import net.minecraft.tileentity.TileEntity
+import net.minecraft.util.EnumFacing
+import network.rs485.logisticspipes.connection.ConnectionType
+import network.rs485.logisticspipes.util.stub
+import network.rs485.logisticspipes.world.DoubleCoordinates
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.BeforeEach
+import java.util.*
+import java.util.stream.Stream
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNotNull
+import kotlin.test.assertNotSame
+import kotlin.test.assertTrue
+
+class PathFinderTest {
+
+    companion object {
+        @BeforeAll
+        @JvmStatic
+        fun bootstrap() = Bootstrap.register()
+    }
+
+    /**
+     * Pipe at the given position, which connects to the neighbours set with [link] only. Like every pipe in the game
+     * it carries the change listeners of [ILPTEInformation].
+     */
+    private open class TestPipe(private val posX: Int, private val posY: Int, private val posZ: Int, private val distance: Double) : TileEntity(), IPipeInformationProvider,
+        ILPTEInformation {
+        val neighbours = EnumMap<EnumFacing, TileEntity>(EnumFacing::class.java)
+        private var lpObject: LPTileEntityObject? = LPTileEntityObject()
+
+        override fun getObject(): LPTileEntityObject? = lpObject
+        override fun setObject(`object`: LPTileEntityObject?) {
+            lpObject = `object`
+        }
+
+        override fun isCorrect(type: ConnectionType) = true
+        override fun getX() = posX
+        override fun getY() = posY
+        override fun getZ() = posZ
+        override fun isRouterInitialized() = true
+        override fun isRoutingPipe() = false
+        override fun getRoutingPipe(): CoreRoutedPipe? = null
+        override fun getNextConnectedTile(direction: EnumFacing): TileEntity? = neighbours[direction]
+        override fun isFirewallPipe() = false
+        override fun getFirewallFilter(): IFilter? = null
+        override fun getTile(): TileEntity = this
+        override fun divideNetwork() = false
+        override fun powerOnly() = false
+        override fun isOnewayPipe() = false
+        override fun isOutputClosed(direction: EnumFacing) = false
+        override fun canConnect(to: TileEntity, direction: EnumFacing, flag: Boolean) = neighbours[direction] === to
+        override fun getDistance() = distance
+        override fun getDistanceWeight() = 1.0
+        override fun isItemPipe() = true
+        override fun isFluidPipe() = false
+        override fun isPowerPipe() = false
+        override fun getDistanceTo(destinationint: Int, ignore: EnumFacing, ident: ItemIdentifier, isActive: Boolean, travled: Double, max: Double, visited: List<DoubleCoordinates>) = 0.0
+        override fun acceptItem(item: LPTravelingItem, from: TileEntity) = false
+        override fun refreshTileCacheOnSide(side: EnumFacing) {}
+        override fun isMultiBlock() = false
+        override fun getPartsOfPipe(): Stream<TileEntity> = Stream.empty()
+    }
+
+    private class TestRoutedPipe(private val testRouter: IRouter) : PipeItemsBasicLogistics(null) {
+        override fun getRouter(): IRouter = testRouter
+        override fun stillNeedReplace() = false
+        override fun getUpgradeManager(): IPipeUpgradeManager = stub()
+    }
+
+    private class TestRouterPipe(posX: Int, posY: Int, posZ: Int) : TestPipe(posX, posY, posZ, 0.0) {
+        val pipe = TestRoutedPipe(stub())
+
+        override fun isRoutingPipe() = true
+        override fun getRoutingPipe(): CoreRoutedPipe = pipe
+    }
+
+    private class TestSpecialConnection(private val from: TestPipe, private val to: TestPipe, private val distance: Double) : ISpecialPipedConnection {
+        override fun init() = true
+        override fun isType(startPipe: IPipeInformationProvider) = startPipe === from
+        override fun getConnections(startPipe: IPipeInformationProvider, connection: EnumSet<PipeRoutingConnectionType>, side: EnumFacing) =
+            listOf(ConnectionInformation(to, EnumSet.copyOf(connection), EnumFacing.EAST, side, distance))
+    }
+
+    private class RecordingListener : ITileEntityChangeListener {
+        val heard = ArrayList<String>()
+
+        override fun pipeRemoved(pos: DoubleCoordinates) {
+            heard.add("removed")
+        }
+
+        override fun pipeAdded(pos: DoubleCoordinates, side: EnumFacing) {
+            heard.add("added")
+        }
+
+        override fun pipeModified(pos: DoubleCoordinates) {
+            heard.add("modified")
+        }
+    }
+
+    private fun link(from: TestPipe, direction: EnumFacing, to: TestPipe) {
+        from.neighbours[direction] = to
+        to.neighbours[direction.opposite] = from
+    }
+
+    @BeforeEach
+    fun services() {
+        SimpleServiceLocator.pipeInformationManager = PipeInformationManager()
+        SimpleServiceLocator.specialpipeconnection = SpecialPipeConnection()
+        SimpleServiceLocator.specialtileconnection = SpecialTileConnection()
+    }
+
+    private fun search(start: TestRouterPipe) = PathFinder(start, 1000, 100, EnumFacing.EAST).result
+
+    @Test
+    fun `test special connection keeps distance of its pipe`() {
+        // start -> junction -> pipe -> neighbour, the junction also has a special connection to remote -> far
+        val start = TestRouterPipe(0, 0, 0)
+        val junction = TestPipe(1, 0, 0, 1.0)
+        val pipe = TestPipe(2, 0, 0, 1.0)
+        val neighbour = TestRouterPipe(3, 0, 0)
+        val remote = TestPipe(10, 5, 0, 1.0)
+        val far = TestRouterPipe(11, 5, 0)
+        link(start, EnumFacing.EAST, junction)
+        link(junction, EnumFacing.EAST, pipe)
+        link(pipe, EnumFacing.EAST, neighbour)
+        link(remote, EnumFacing.EAST, far)
+
+        val withoutSpecial = search(start)
+        assertEquals(setOf<CoreRoutedPipe>(neighbour.pipe), withoutSpecial.keys)
+
+        SimpleServiceLocator.specialpipeconnection.registerHandler(TestSpecialConnection(junction, remote, 5.0))
+        val result = search(start)
+        assertEquals(setOf<CoreRoutedPipe>(neighbour.pipe, far.pipe), result.keys)
+
+        // the normal neighbour is searched after the special connection and still sees the junction
+        val neighbourRoute = assertNotNull(result[neighbour.pipe])
+        assertEquals(withoutSpecial.getValue(neighbour.pipe).distanceToDestination, neighbourRoute.distanceToDestination)
+        assertEquals(withoutSpecial.getValue(neighbour.pipe).blockDistance, neighbourRoute.blockDistance)
+        assertEquals(2.0, neighbourRoute.distanceToDestination)
+        assertEquals(3, neighbourRoute.blockDistance)
+
+        // the special connection adds to the distance of the junction instead of replacing it
+        val farRoute = assertNotNull(result[far.pipe])
+        assertEquals(1.0 + 5.0 + 1.0, farRoute.distanceToDestination)
+        assertEquals(4, farRoute.blockDistance)
+        assertEquals(EnumFacing.EAST, farRoute.exitOrientation)
+        assertEquals(EnumFacing.WEST, farRoute.insertOrientation)
+    }
+
+    /**
+     * start -> four plain pipes, the first two going east and the others north -> end
+     */
+    private fun chain(): List<TestPipe> {
+        val start = TestRouterPipe(0, 0, 0)
+        val pipes = listOf(TestPipe(1, 0, 0, 1.0), TestPipe(2, 0, 0, 2.0), TestPipe(2, 0, -1, 0.5), TestPipe(2, 0, -2, 3.0))
+        val end = TestRouterPipe(2, 0, -3)
+        link(start, EnumFacing.EAST, pipes[0])
+        link(pipes[0], EnumFacing.EAST, pipes[1])
+        link(pipes[1], EnumFacing.NORTH, pipes[2])
+        link(pipes[2], EnumFacing.NORTH, pipes[3])
+        link(pipes[3], EnumFacing.NORTH, end)
+        return pipes
+    }
+
+    @Test
+    fun `test segment is one weighted edge`() {
+        val pipes = chain()
+        val segment = assertNotNull(PipeSegmentGraph().getSegment(pipes[0], EnumFacing.EAST))
+
+        assertEquals(4, segment.length())
+        assertEquals(listOf(0.0, 1.0, 3.0, 3.5, 6.5), segment.distancePrefix.toList())
+        assertEquals(listOf(0.0, 1.0, 2.0, 2.5, 3.5), segment.clampedPrefix.toList())
+        assertEquals(listOf(0.0, 1.0, 2.0, 3.0), segment.visitPrefix.toList())
+        assertEquals(2, segment.firstTurn)
+        assertTrue(pipes.all { it.getObject()!!.changeListeners.contains(segment) })
+    }
+
+    @Test
+    fun `test segment change reaches path finders`() {
+        val pipes = chain()
+        val graph = PipeSegmentGraph()
+        val segment = assertNotNull(graph.getSegment(pipes[0], EnumFacing.EAST))
+        val listener = RecordingListener()
+        segment.addDependent(listener)
+        val heard = listener.heard
+
+        segment.pipeModified(DoubleCoordinates(pipes[2] as TileEntity))
+        assertEquals(listOf("modified"), heard)
+        assertEquals(0, graph.size())
+        assertFalse(pipes.any { it.getObject()!!.changeListeners.contains(segment) })
+        // further changes are not passed on by the dropped segment
+        segment.pipeModified(DoubleCoordinates(pipes[2] as TileEntity))
+        assertEquals(listOf("modified"), heard)
+
+        val rebuilt = assertNotNull(graph.getSegment(pipes[0], EnumFacing.EAST))
+        assertNotSame(segment, rebuilt)
+        rebuilt.addDependent(listener)
+        PipeSegmentGraph.tileRemoved(pipes[1])
+        assertEquals(listOf("modified", "removed"), heard)
+        assertEquals(0, graph.size())
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2021  RS485
+ *
+ * "LogisticsPipes" is distributed under the terms of the Minecraft Mod Public
+ * License 1.0.1, or MMPL. Please check the contents of the license located in
+ * https://github.com/RS485/LogisticsPipes/blob/dev/LICENSE.md
+ *
+ * This file can instead be distributed under the license terms of the
+ * MIT license:
+ *
+ * Copyright (c) 2021  RS485
+ *
+ * This MIT license was reworded to only match this file. If you use the regular
+ * MIT license in your project, replace this copyright notice (this line and any
+ * lines below and NOT the copyright line above) with the lines from the original
+ * MIT license located here: http://opensource.org/licenses/MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this file and associated documentation files (the "Source Code"), to deal in
+ * the Source Code without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Source Code, and to permit persons to whom the Source Code is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Source Code, which also can be
+ * distributed under the MIT.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package logisticspipes.transport
+
+import net.minecraft.world.World
+import net.minecraft.world.chunk.IChunkProvider
+import sun.misc.Unsafe
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class ItemTransportEngineTest {
+
+    /**
+     * Only used as the key of its engine, so it is allocated without running the world constructor.
+     */
+    @Suppress("unused")
+    private class KeyWorld : World(null, null, null, null, false) {
+        override fun createChunkProvider(): IChunkProvider = throw UnsupportedOperationException()
+        override fun isChunkLoaded(x: Int, z: Int, allowEmpty: Boolean): Boolean = false
+    }
+
+    private val world: World = Unsafe::class.java.getDeclaredField("theUnsafe").let {
+        it.isAccessible = true
+        (it.get(null) as Unsafe).allocateInstance(KeyWorld::class.java) as World
+    }
+
+    /**
+     * A transport which has work for the given number of ticks and counts how often it is ticked.
+     */
+    private inner class CountingTransport(var workLeft: Int) : PipeTransportLogistics(false) {
+        var ticked = 0
+        var valid = true
+        var onTick: () -> Unit = {}
+
+        override fun getWorld(): World = this@ItemTransportEngineTest.world
+
+        override fun canTransport(): Boolean = valid
+
+        override fun hasTransportWork(): Boolean = workLeft > 0
+
+        override fun tickTransport() {
+            ticked++
+            workLeft--
+            onTick()
+        }
+    }
+
+    @Test
+    fun `test transport leaves the engine without work`() {
+        val transport = CountingTransport(2)
+        ItemTransportEngine.activate(transport)
+        assertTrue(transport.engineActive)
+
+        repeat(4) { ItemTransportEngine.tick(world) }
+        assertEquals(2, transport.ticked)
+        assertFalse(transport.engineActive)
+
+        // joins again with new work
+        transport.workLeft = 1
+        ItemTransportEngine.activate(transport)
+        ItemTransportEngine.tick(world)
+        assertEquals(3, transport.ticked)
+    }
+
+    @Test
+    fun `test transport joining during the pass is moved in it`() {
+        val next = CountingTransport(1)
+        val first = CountingTransport(1)
+        first.onTick = { ItemTransportEngine.activate(next) }
+        ItemTransportEngine.activate(first)
+
+        ItemTransportEngine.tick(world)
+        assertEquals(1, first.ticked)
+        assertEquals(1, next.ticked)
+        assertFalse(next.engineActive)
+    }
+
+    @Test
+    fun `test invalid transport is dropped without moving`() {
+        val transport = CountingTransport(5)
+        ItemTransportEngine.activate(transport)
+        transport.valid = false
+
+        ItemTransportEngine.tick(world)
+        assertEquals(0, transport.ticked)
+        assertFalse(transport.engineActive)
+    }
+
+    @Test
+    fun `test unloading the world stops its engine`() {
+        val transport = CountingTransport(5)
+        ItemTransportEngine.activate(transport)
+        ItemTransportEngine.worldUnloaded(world)
+        assertFalse(transport.engineActive)
+
+        ItemTransportEngine.tick(world)
+        assertEquals(0, transport.ticked)
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2021  RS485
+ *
+ * "LogisticsPipes" is distributed under the terms of the Minecraft Mod Public
+ * License 1.0.1, or MMPL. Please check the contents of the license located in
+ * https://github.com/RS485/LogisticsPipes/blob/dev/LICENSE.md
+ *
+ * This file can instead be distributed under the license terms of the
+ * MIT license:
+ *
+ * Copyright (c) 2021  RS485
+ *
+ * This MIT license was reworded to only match this file. If you use the regular
+ * MIT license in your project, replace this copyright notice (this line and any
+ * lines below and NOT the copyright line above) with the lines from the original
+ * MIT license located here: http://opensource.org/licenses/MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this file and associated documentation files (the "Source Code"), to deal in
+ * the Source Code without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Source Code, and to permit persons to whom the Source Code is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Source Code, which also can be
+ * distributed under the MIT.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package logisticspipes.transport
+
+import logisticspipes.transport.LPTravelingItem.LPTravelingItemClient
+import net.minecraft.util.EnumFacing
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+import kotlin.test.assertSame
+
+class LPItemListTest {
+
+    private fun item(id: Int, position: Float) = LPTravelingItemClient(id, position, EnumFacing.WEST, EnumFacing.EAST, 0F)
+
+    @Test
+    fun `test movement state lives in the list`() {
+        val list = LPItemList(PipeTransportLogistics(false))
+        val item = item(1, 0.25F)
+        item.setSpeed(0.1F)
+        list.add(item)
+
+        list.advance(0)
+        assertEquals(0.35F, list.positions[0], 1e-6F)
+        assertEquals(0.35F, item.getPosition(), 1e-6F)
+        item.setYaw(450F)
+        assertEquals(90F, list.yaws[0])
+
+        list.scheduleRemoval(item)
+        list.removeScheduledItems()
+        assertNull(item.list)
+        // the item keeps its state after leaving the list
+        assertEquals(0.35F, item.getPosition(), 1e-6F)
+        assertEquals(0.1F, item.getSpeed())
+        assertEquals(90F, item.getYaw())
+    }
+
+    @Test
+    fun `test compaction moves the state with the items`() {
+        val list = LPItemList(PipeTransportLogistics(false))
+        val items = (1..20).map { item(it, it / 100F) }
+        items.forEach(list::add)
+        items.filter { it.getId() % 3 == 0 }.forEach { list.scheduleRemoval(it) }
+        list.removeScheduledItems()
+
+        val kept = items.filter { it.getId() % 3 != 0 }
+        assertEquals(kept.size, list.size())
+        kept.forEachIndexed { index, item ->
+            assertSame(item, list.itemAt(index))
+            assertEquals(index, item.index)
+            assertEquals(item.getId() / 100F, list.positions[index])
+        }
+        items.filter { it.getId() % 3 == 0 }.forEach { assertEquals(it.getId() / 100F, it.getPosition()) }
+    }
+
+    @Test
+    fun `test item passed to the next list keeps its state there`() {
+        val first = LPItemList(PipeTransportLogistics(false))
+        val second = LPItemList(PipeTransportLogistics(false))
+        val item = item(1, 0.5F)
+        first.add(item)
+        item.setPosition(0.9F)
+
+        // the item stays in the first list until it is flushed
+        second.add(item)
+        assertSame(second, item.list)
+        assertEquals(0.9F, second.positions[0])
+        item.setPosition(0.1F)
+        first.scheduleRemoval(item)
+        first.removeScheduledItems()
+        assertSame(second, item.list)
+        assertEquals(0.1F, item.getPosition())
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2021  RS485
+ *
+ * "LogisticsPipes" is distributed under the terms of the Minecraft Mod Public
+ * License 1.0.1, or MMPL. Please check the contents of the license located in
+ * https://github.com/RS485/LogisticsPipes/blob/dev/LICENSE.md
+ *
+ * This file can instead be distributed under the license terms of the
+ * MIT license:
+ *
+ * Copyright (c) 2021  RS485
+ *
+ * This MIT license was reworded to only match this file. If you use the regular
+ * MIT license in your project, replace this copyright notice (this line and any
+ * lines below and NOT the copyright line above) with the lines from the original
+ * MIT license located here: http://opensource.org/licenses/MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this file and associated documentation files (the "Source Code"), to deal in
+ * the Source Code without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Source Code, and to permit persons to whom the Source Code is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Source Code, which also can be
+ * distributed under the MIT.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package logisticspipes.utils
+
+import logisticspipes.utils.item.ItemIdentifier
+import net.minecraft.init.Bootstrap
+import net.minecraft.init.Items
+import net.minecraft.item.ItemStack
+import net.minecraft.nbt.NBTTagCompound
+import net.minecraftforge.items.ItemStackHandler
+import network.rs485.logisticspipes.inventory.ProviderMode
+import org.junit.jupiter.api.BeforeAll
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNotNull
+import kotlin.test.assertNotSame
+import kotlin.test.assertNull
+import kotlin.test.assertSame
+
+class InventorySnapshotTest {
+
+    companion object {
+        @BeforeAll
+        @JvmStatic
+        fun bootstrap() = Bootstrap.register()
+
+        /**
+         * Snapshots are only taken on the server, which is found by the name of the thread.
+         */
+        fun onServerThread(body: () -> Unit) {
+            var failure: Throwable? = null
+            val thread = Thread({
+                try {
+                    body()
+                } catch (t: Throwable) {
+                    failure = t
+                }
+            }, "Server thread")
+            thread.start()
+            thread.join()
+            failure?.let { throw it }
+        }
+    }
+
+    /**
+     * Hands out a copy of the stack on every call, like many wrapping item handlers do.
+     */
+    private class CopyingHandler(size: Int) : ItemStackHandler(size) {
+        override fun getStackInSlot(slot: Int): ItemStack = super.getStackInSlot(slot).copy()
+    }
+
+    @Test
+    fun `test snapshot is reused for copied stacks`() = onServerThread {
+        val handler = CopyingHandler(3)
+        handler.setStackInSlot(0, ItemStack(Items.STICK, 5))
+        handler.setStackInSlot(2, ItemStack(Items.STICK, 7))
+        val snapshot = InventorySnapshot.of(handler)
+        assertNotNull(snapshot)
+        assertSame(snapshot, InventorySnapshot.of(handler))
+        assertEquals(mapOf(ItemIdentifier.get(Items.STICK, 0, null) to 12), snapshot.getItemsAndCount(ProviderMode.DEFAULT))
+    }
+
+    @Test
+    fun `test tag changes are seen`() = onServerThread {
+        val handler = ItemStackHandler(1)
+        val stack = ItemStack(Items.DIAMOND_SWORD)
+        handler.setStackInSlot(0, stack)
+        val snapshot = InventorySnapshot.of(handler)!!
+        assertEquals(ItemIdentifier.get(stack), snapshot.getIdentifier(0))
+
+        // same stack object and count, only the tag changes
+        stack.tagCompound = NBTTagCompound().apply { setString("name", "sharp") }
+        val changed = InventorySnapshot.of(handler)
+        assertNotSame(snapshot, changed)
+        assertEquals(ItemIdentifier.get(stack), changed!!.getIdentifier(0))
+        assertEquals(ItemIdentifier.get(stack), snapshot.getIdentifier(0, stack))
+    }
+
+    @Test
+    fun `test unstable inventory is not snapshotted`() = onServerThread {
+        val handler = ItemStackHandler(1)
+        handler.setStackInSlot(0, ItemStack(Items.STICK, 1))
+        assertNotNull(InventorySnapshot.of(handler))
+        handler.getStackInSlot(0).grow(1)
+        val changedOnce = InventorySnapshot.of(handler)
+        assertEquals(2, changedOnce!!.getItemsAndCount(ProviderMode.DEFAULT).values.single())
+        // a query without change in between ends the streak
+        assertSame(changedOnce, InventorySnapshot.of(handler))
+        handler.getStackInSlot(0).grow(1)
+        assertNotNull(InventorySnapshot.of(handler))
+        handler.getStackInSlot(0).grow(1)
+        assertNull(InventorySnapshot.of(handler))
+        assertNull(InventorySnapshot.of(handler))
+
+        // the inventory utility still answers without a snapshot
+        assertEquals(4, InventoryUtil(handler, ProviderMode.DEFAULT).itemCount(ItemIdentifier.get(Items.STICK, 0, null)))
+    }
+
+    @Test
+    fun `test no snapshot off the server thread`() {
+        assertNull(InventorySnapshot.of(ItemStackHandler(1)))
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2021  RS485
+ *
+ * "LogisticsPipes" is distributed under the terms of the Minecraft Mod Public
+ * License 1.0.1, or MMPL. Please check the contents of the license located in
+ * https://github.com/RS485/LogisticsPipes/blob/dev/LICENSE.md
+ *
+ * This file can instead be distributed under the license terms of the
+ * MIT license:
+ *
+ * Copyright (c) 2021  RS485
+ *
+ * This MIT license was reworded to only match this file. If you use the regular
+ * MIT license in your project, replace this copyright notice (this line and any
+ * lines below and NOT the copyright line above) with the lines from the original
+ * MIT license located here: http://opensource.org/licenses/MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this file and associated documentation files (the "Source Code"), to deal in
+ * the Source Code without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Source Code, and to permit persons to whom the Source Code is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Source Code, which also can be
+ * distributed under the MIT.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package logisticspipes.utils.item
+
+import net.minecraft.init.Bootstrap
+import net.minecraft.init.Items
+import org.junit.jupiter.api.BeforeAll
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+class ItemIdentifierIntMapTest {
+
+    companion object {
+        @BeforeAll
+        @JvmStatic
+        fun bootstrap() = Bootstrap.register()
+    }
+
+    private fun identifiers(count: Int) = List(count) { ItemIdentifier.get(Items.STICK, it, null) }
+
+    @Test
+    fun `test values of single items`() {
+        val (stick, other) = identifiers(2)
+        val map = ItemIdentifierIntMap()
+        assertEquals(0, map.get(stick))
+        assertFalse(map.containsKey(stick))
+
+        assertEquals(5, map.addTo(stick, 5))
+        assertEquals(12, map.addTo(stick, 7))
+        map.put(other, 3)
+        assertEquals(12, map.get(stick))
+        assertEquals(3, map.get(other))
+
+        // an item added down to 0 stays in the map until it is removed
+        assertEquals(0, map.addTo(other, -3))
+        assertTrue(map.containsKey(other))
+        assertEquals(0, map.remove(other))
+        assertFalse(map.containsKey(other))
+        assertEquals(1, map.size())
+    }
+
+    @Test
+    fun `test growing keeps insertion order`() {
+        val items = identifiers(100)
+        val map = ItemIdentifierIntMap(2)
+        items.forEachIndexed { index, item -> map.put(item, index * 10) }
+        assertEquals(100, map.size())
+        items.forEachIndexed { index, item ->
+            assertSame(item, map.keyAt(index))
+            assertEquals(index * 10, map.valueAt(index))
+            assertEquals(index * 10, map.get(item))
+        }
+    }
+
+    @Test
+    fun `test remove moves the last entry into the gap`() {
+        val (first, second, third) = identifiers(3)
+        val map = ItemIdentifierIntMap()
+        map.put(first, 1)
+        map.put(second, 2)
+        map.put(third, 3)
+        assertEquals(1, map.remove(first))
+        assertSame(third, map.keyAt(0))
+        assertEquals(3, map.valueAt(0))
+        assertSame(second, map.keyAt(1))
+        assertEquals(2, map.valueAt(1))
+        assertFalse(map.containsKey(first))
+        assertEquals(0, map.remove(first))
+        assertEquals(2, map.remove(second))
+        assertEquals(3, map.remove(third))
+        assertTrue(map.isEmpty)
+    }
+
+    @Test
+    fun `test views after removals and clear`() {
+        val items = identifiers(10)
+        val map = ItemIdentifierIntMap()
+        items.forEach { map.addTo(it, it.itemDamage + 1) }
+        items.filter { it.itemDamage % 2 == 0 }.forEach { map.remove(it) }
+
+        val expected = items.filter { it.itemDamage % 2 == 1 }.associateWith { it.itemDamage + 1 }
+        assertEquals(expected, map.toMap())
+        val visited = HashMap<ItemIdentifier, Int>()
+        map.forEach { item, value -> assertEquals(null, visited.put(item, value)) }
+        assertEquals(expected, visited)
+
+        map.clear()
+        assertTrue(map.isEmpty)
+        assertEquals(0, map.get(items[1]))
+        map.put(items[1], 4)
+        assertSame(items[1], map.keyAt(0))
+    }
+}